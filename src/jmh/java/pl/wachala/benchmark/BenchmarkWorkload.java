@@ -0,0 +1,41 @@
+package pl.wachala.benchmark;
+
+import pl.wachala.generator.WorkloadGenerator;
+import pl.wachala.generator.WorkloadSpec;
+import pl.wachala.models.Order;
+import pl.wachala.models.PaymentMethod;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+//Seeded input for benchmarks, see WorkloadGenerator. Limits cover about half of the promotions, so the greedy pass
+//has to skip candidates.
+public class BenchmarkWorkload {
+
+    private final WorkloadSpec spec = new WorkloadSpec();
+
+    public BenchmarkWorkload(int ordersCount, int methodsCount, int promotionsPerOrder) {
+        spec.setSeed(42);
+        spec.setOrdersCount(ordersCount);
+        spec.setMethodsCount(methodsCount);
+        spec.setPromotionsPerOrder(promotionsPerOrder);
+    }
+
+    //orders and payment methods in memory
+    public Generated generate() {
+        List<Order> orders = new ArrayList<>(spec.getOrdersCount());
+        List<PaymentMethod> paymentMethods = new WorkloadGenerator(spec).generate(orders::add);
+        return new Generated(orders, paymentMethods);
+    }
+
+    //orders file streamed to disk, workloads too large for memory can be parsed from it
+    public void write(Path ordersFile, Path paymentMethodsFile) throws IOException {
+        new WorkloadGenerator(spec).write(ordersFile, paymentMethodsFile);
+    }
+
+    public record Generated(List<Order> orders, List<PaymentMethod> paymentMethods) {
+    }
+
+}
@@ -0,0 +1,85 @@
+package pl.wachala.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+//Cold starts of the fat jar and of the native image on the same input: wall time of the process, time to first output
+//and peak RSS as printed by optimizer.startup-report (RSS on Linux only), medians over the runs. Fails when the two
+//print different summaries.
+//
+//./gradlew startupComparison (see build.gradle for the arguments)
+public class StartupComparison {
+
+    private static final Pattern REPORT = Pattern.compile("first output after (\\d+) ms since JVM start(?:, peak RSS (\\d+) KB)?");
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length != 5) {
+            throw new IllegalArgumentException("Usage: StartupComparison <jar> <native image> <orders file> <payment methods file> <runs>");
+        }
+        String ordersFile = args[2];
+        String paymentMethodsFile = args[3];
+        int runs = Integer.parseInt(args[4]);
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+
+        Result jar = measure("jar", List.of(java, "-Doptimizer.startup-report=true", "-jar", args[0], ordersFile, paymentMethodsFile), runs);
+        Result image = measure("native", List.of(args[1], "-Doptimizer.startup-report=true", ordersFile, paymentMethodsFile), runs);
+
+        System.out.printf("%-8s %12s %18s %14s%n", "launch", "wall [ms]", "first output [ms]", "peak RSS [MB]");
+        jar.print();
+        image.print();
+        if (!jar.output().equals(image.output())) {
+            throw new IllegalStateException("Native image printed a different summary than the jar:\n" + jar.output() + "\n---\n" + image.output());
+        }
+        System.out.println("Output identical.");
+    }
+
+    private static Result measure(String name, List<String> command, int runs) throws IOException, InterruptedException {
+        long[] wall = new long[runs];
+        long[] firstOutput = new long[runs];
+        long[] peakRss = new long[runs];
+        String output = null;
+
+        Path errors = Files.createTempFile("startup", ".err");
+        try {
+            for (int run = 0; run < runs; run++) {
+                long start = System.nanoTime();
+                Process process = new ProcessBuilder(command).redirectError(errors.toFile()).start();
+                String stdout = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+                int exitCode = process.waitFor();
+                wall[run] = (System.nanoTime() - start) / 1_000_000;
+
+                String stderr = Files.readString(errors);
+                Matcher report = REPORT.matcher(stderr);
+                if (exitCode != 0 || !report.find()) {
+                    throw new IllegalStateException(name + " run failed with exit code " + exitCode + ":\n" + stderr);
+                }
+                firstOutput[run] = Long.parseLong(report.group(1));
+                peakRss[run] = report.group(2) != null ? Long.parseLong(report.group(2)) : -1;
+                output = stdout;
+            }
+        } finally {
+            Files.deleteIfExists(errors);
+        }
+        return new Result(name, median(wall), median(firstOutput), median(peakRss), output);
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private record Result(String name, long wallMillis, long firstOutputMillis, long peakRssKilobytes, String output) {
+        void print() {
+            String rss = peakRssKilobytes >= 0 ? String.valueOf(peakRssKilobytes / 1024) : "n/a";
+            System.out.printf("%-8s %12d %18d %14s%n", name, wallMillis, firstOutputMillis, rss);
+        }
+    }
+
+}
@@ -0,0 +1,124 @@
+package pl.wachala.optimizer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.wachala.benchmark.BenchmarkWorkload;
+import pl.wachala.config.OptimizerProperties;
+import pl.wachala.models.DiscountOption;
+import pl.wachala.models.Order;
+import pl.wachala.models.PaymentMethod;
+import pl.wachala.util.IdDictionary;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+//Phases of PaymentMethodAssigner.assignGreedy measured separately, each on the output of the previous one.
+//Run with -prof gc to see bytes allocated per operation next to the time.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+public class PipelineBenchmark {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    private int ordersCount;
+
+    @Param({"1", "10", "100", "1000"})
+    private int methodsCount;
+
+    @Param({"0", "1", "3"})
+    private int promotionsPerOrder;
+
+    private PaymentMethodAssigner assigner;
+    private PaymentMethodSummaryGenerator summaryGenerator;
+    private List<Order> orders;
+    private List<PaymentMethod> paymentMethods;
+    private HashMap<String, PaymentMethod> methodsMap;
+    private String defaultPaymentMethod;
+
+    private List<DiscountOption> possibleDiscounts;
+    private List<DiscountOption> sortedDiscounts;
+    private Map<String, DiscountOption> assignment;
+    private CandidateTable candidates;
+
+    //copy sorted by sortPossibleDiscounts, refilled before every call
+    private List<DiscountOption> unsortedDiscounts;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkWorkload.Generated workload = new BenchmarkWorkload(ordersCount, methodsCount, promotionsPerOrder).generate();
+        assigner = new PaymentMethodAssigner(new OptimizerProperties());
+        summaryGenerator = new PaymentMethodSummaryGenerator();
+        orders = workload.orders();
+        paymentMethods = workload.paymentMethods();
+        methodsMap = assigner.getMethodsMap(paymentMethods);
+        defaultPaymentMethod = assigner.getDefaultPaymentMethod(paymentMethods);
+
+        possibleDiscounts = assigner.getPossibleDiscounts(orders, methodsMap, defaultPaymentMethod);
+        sortedDiscounts = new ArrayList<>(possibleDiscounts);
+        sortedDiscounts.sort(PaymentMethodAssigner.BY_PROMO_LIMIT_USED_DESC);
+        assignment = assigner.getAssignmentGreedy(orders, paymentMethods, sortedDiscounts, defaultPaymentMethod);
+
+        FixedPointEngine engine = FixedPointEngine.create(assigner, paymentMethods, defaultPaymentMethod, new IdDictionary(), new IdDictionary());
+        engine.addAll(orders, 1);
+        candidates = engine.getCandidates();
+    }
+
+    @Setup(Level.Invocation)
+    public void copyDiscounts() {
+        unsortedDiscounts = new ArrayList<>(possibleDiscounts);
+    }
+
+    @Benchmark
+    public List<DiscountOption> getPossibleDiscounts() {
+        return assigner.getPossibleDiscounts(orders, methodsMap, defaultPaymentMethod);
+    }
+
+    //sort done by assignGreedy on BigDecimal options
+    @Benchmark
+    public List<DiscountOption> sortPossibleDiscounts() {
+        PaymentMethodAssigner.sortByPromoLimitUsedDesc(unsortedDiscounts);
+        return unsortedDiscounts;
+    }
+
+    //same order with BigDecimal comparisons, for comparison with the radix sort above
+    @Benchmark
+    public List<DiscountOption> sortPossibleDiscountsWithComparator() {
+        unsortedDiscounts.sort(PaymentMethodAssigner.BY_PROMO_LIMIT_USED_DESC);
+        return unsortedDiscounts;
+    }
+
+    //same sort on the candidate table of FIXED_POINT arithmetic
+    @Benchmark
+    public int[] sortCandidates() {
+        return candidates.sortedByLimitUsedDescending();
+    }
+
+    @Benchmark
+    public Map<String, DiscountOption> getAssignmentGreedy() {
+        return assigner.getAssignmentGreedy(orders, paymentMethods, sortedDiscounts, defaultPaymentMethod);
+    }
+
+    //generateSummary prints exactly this map, printing itself is left out
+    @Benchmark
+    public Map<String, BigDecimal> generateSummary() {
+        return summaryGenerator.summarize(assignment);
+    }
+
+}
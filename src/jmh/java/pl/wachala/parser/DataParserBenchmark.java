@@ -0,0 +1,67 @@
+package pl.wachala.parser;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.wachala.benchmark.BenchmarkWorkload;
+import pl.wachala.models.Order;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//DataParser.parseOrders on an orders file generated once per trial
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+public class DataParserBenchmark {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    private int ordersCount;
+
+    @Param({"1", "10", "100", "1000"})
+    private int methodsCount;
+
+    @Param({"0", "1", "3"})
+    private int promotionsPerOrder;
+
+    private DataParser parser;
+    private Path ordersFile;
+    private Path paymentMethodsFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        parser = new DataParser(new ObjectMapper());
+        ordersFile = Files.createTempFile("orders", ".json");
+        paymentMethodsFile = Files.createTempFile("paymentmethods", ".json");
+        new BenchmarkWorkload(ordersCount, methodsCount, promotionsPerOrder).write(ordersFile, paymentMethodsFile);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(ordersFile);
+        Files.deleteIfExists(paymentMethodsFile);
+    }
+
+    @Benchmark
+    public List<Order> parseOrders() throws IOException {
+        return parser.parseOrders(ordersFile.toString());
+    }
+
+}
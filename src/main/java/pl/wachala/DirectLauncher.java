@@ -0,0 +1,105 @@
+package pl.wachala;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import pl.wachala.config.OptimizerProperties;
+import pl.wachala.config.PaymentOptimizerConfig;
+import pl.wachala.metrics.MetricsRegistry;
+import pl.wachala.optimizer.PaymentMethodAssigner;
+import pl.wachala.optimizer.PaymentMethodSummaryGenerator;
+import pl.wachala.optimizer.ScenarioEvaluator;
+import pl.wachala.parser.DataParser;
+import pl.wachala.service.OptimizerServer;
+import pl.wachala.util.ArgumentsValidator;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingSystem;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+//Runs PaymentOptimizerApplication without starting the Spring context: no classpath scanning and no bean wiring, the
+//components are created here in the same way the context would create them. optimizer.* and logging.level.* are read
+//from application.properties overridden by system properties and bound by the Spring Boot binder, so values are
+//interpreted like in the Spring path; environment variables and other Spring Boot property sources are not read.
+//
+//java -cp PaymentOptimizer-1.0.jar pl.wachala.DirectLauncher orders.json paymentmethods.json (extracted jar, see README)
+public final class DirectLauncher {
+
+    private static final String OPTIMIZER_PREFIX = "optimizer";
+    private static final String LOGGING_LEVEL_PREFIX = "logging.level.";
+
+    private DirectLauncher() {
+    }
+
+    public static void main(String[] args) {
+        Map<String, String> settings = settings();
+        configureLogging(settings);
+        create(bind(settings)).run(args);
+    }
+
+    static PaymentOptimizerApplication create(OptimizerProperties properties) {
+        ObjectMapper mapper = new PaymentOptimizerConfig().objectMapper();
+        MetricsRegistry metricsRegistry = new MetricsRegistry();
+        DataParser parser = new DataParser(mapper, properties);
+        PaymentMethodAssigner assigner = new PaymentMethodAssigner(properties, metricsRegistry);
+        PaymentMethodSummaryGenerator summaryGenerator = new PaymentMethodSummaryGenerator();
+
+        PaymentOptimizerApplication application = new PaymentOptimizerApplication();
+        application.parser = parser;
+        application.argumentsValidator = new ArgumentsValidator();
+        application.paymentMethodAssigner = assigner;
+        application.paymentMethodSummaryGenerator = summaryGenerator;
+        application.optimizerProperties = properties;
+        application.optimizerServer = new OptimizerServer(parser, assigner, summaryGenerator, mapper);
+        application.metricsRegistry = metricsRegistry;
+        application.mapper = mapper;
+        application.scenarioEvaluator = new ScenarioEvaluator(assigner, summaryGenerator, properties);
+        return application;
+    }
+
+    static OptimizerProperties bind(Map<String, String> settings) {
+        Binder binder = new Binder(new MapConfigurationPropertySource(settings));
+        return binder.bind(OPTIMIZER_PREFIX, Bindable.ofInstance(new OptimizerProperties())).orElseGet(OptimizerProperties::new);
+    }
+
+    //application.properties, then system properties, only the keys used by this launcher
+    static Map<String, String> settings() {
+        Properties properties = new Properties();
+        try (InputStream input = DirectLauncher.class.getClassLoader().getResourceAsStream("application.properties")) {
+            if (input != null) {
+                properties.load(input);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        properties.putAll(System.getProperties());
+
+        Map<String, String> settings = new HashMap<>();
+        for (String name : properties.stringPropertyNames()) {
+            if (name.startsWith(OPTIMIZER_PREFIX + ".") || name.startsWith(LOGGING_LEVEL_PREFIX)) {
+                settings.put(name, properties.getProperty(name));
+            }
+        }
+        return settings;
+    }
+
+    //levels only, the console format is the default one of the logging library
+    private static void configureLogging(Map<String, String> settings) {
+        LoggingSystem loggingSystem = LoggingSystem.get(DirectLauncher.class.getClassLoader());
+        for (Map.Entry<String, String> setting : settings.entrySet()) {
+            if (setting.getKey().startsWith(LOGGING_LEVEL_PREFIX)) {
+                String logger = setting.getKey().substring(LOGGING_LEVEL_PREFIX.length());
+                LogLevel level = LogLevel.valueOf(setting.getValue().trim().toUpperCase(Locale.ROOT));
+                loggingSystem.setLogLevel("root".equalsIgnoreCase(logger) ? LoggingSystem.ROOT_LOGGER_NAME : logger, level);
+            }
+        }
+    }
+
+}
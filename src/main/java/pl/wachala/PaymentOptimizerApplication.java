@@ -1,19 +1,36 @@
 package pl.wachala;
 
 import lombok.extern.slf4j.Slf4j;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import pl.wachala.config.OptimizerProperties;
+import pl.wachala.metrics.MetricsRegistry;
+import pl.wachala.metrics.Phase;
 import pl.wachala.models.DiscountOption;
 import pl.wachala.models.Order;
 import pl.wachala.models.PaymentMethod;
+import pl.wachala.optimizer.AssignmentResult;
+import pl.wachala.optimizer.AssignmentSession;
+import pl.wachala.optimizer.ExternalSortSession;
 import pl.wachala.optimizer.PaymentMethodAssigner;
 import pl.wachala.optimizer.PaymentMethodSummaryGenerator;
+import pl.wachala.optimizer.ScenarioEvaluator;
+import pl.wachala.optimizer.ScenarioResult;
 import pl.wachala.parser.DataParser;
+import pl.wachala.service.OptimizerServer;
 import pl.wachala.util.ArgumentsValidator;
+import pl.wachala.util.IdDictionary;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
+import java.io.File;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -34,12 +51,33 @@ public class PaymentOptimizerApplication implements CommandLineRunner {
     @Autowired
     PaymentMethodSummaryGenerator paymentMethodSummaryGenerator;
 
+    @Autowired
+    OptimizerProperties optimizerProperties;
+
+    @Autowired
+    OptimizerServer optimizerServer;
+
+    @Autowired
+    MetricsRegistry metricsRegistry;
+
+    @Autowired
+    ObjectMapper mapper;
+
+    @Autowired
+    ScenarioEvaluator scenarioEvaluator;
+
     public static void main(String[] args) {
         SpringApplication.run(PaymentOptimizerApplication.class, args);
     }
 
     @Override
     public void run(String... args) {
+        long readyMillis = System.currentTimeMillis();
+        if (optimizerProperties.getServicePort() > 0) {
+            runService(args);
+            return;
+        }
+
         log.info("Validating program arguments");
         argumentsValidator.validateArgsNum(args.length);
 
@@ -47,17 +85,204 @@ public class PaymentOptimizerApplication implements CommandLineRunner {
         String paymentMethodsFilePath = args[1];
 
         try {
+            IdDictionary methodIds = new IdDictionary();
+            IdDictionary orderIds = new IdDictionary();
+
             log.info("Parsing payment methods from file: {}.", paymentMethodsFilePath);
-            List<PaymentMethod> paymentMethods = parser.parsePaymentMethods(paymentMethodsFilePath);
+            List<PaymentMethod> paymentMethods;
+            try (MetricsRegistry.PhaseTimer ignored = metricsRegistry.time(Phase.PARSE_METHODS)) {
+                paymentMethods = parser.parsePaymentMethods(paymentMethodsFilePath, methodIds);
+            }
             log.info("Loaded {} payment methods.", paymentMethods.size());
 
-            log.info("Parsing orders from file: {}.", ordersFilePath);
-            List<Order> orders = parser.parseOrders(ordersFilePath);
-            log.info("Loaded {} orders.", orders.size());
+            if (optimizerProperties.getExternalSortRunSize() > 0) {
+                runExternalSort(ordersFilePath, paymentMethods);
+                if (optimizerProperties.isStartupReport()) {
+                    reportStartup(readyMillis, System.currentTimeMillis());
+                }
+                writeMetrics();
+                return;
+            }
+
+            Map<String, DiscountOption> assignment;
+            if (optimizerProperties.isStreaming()) {
+                log.info("Streaming orders from file: {}.", ordersFilePath);
+                AssignmentSession session = paymentMethodAssigner.openSession(paymentMethods, orderIds, methodIds);
+                //discount options are generated while parsing, so this phase includes candidate generation
+                long ordersCount;
+                try (MetricsRegistry.PhaseTimer ignored = metricsRegistry.time(Phase.PARSE_ORDERS)) {
+                    ordersCount = parser.streamOrders(ordersFilePath, session, orderIds);
+                }
+                log.info("Loaded {} orders.", ordersCount);
+
+                log.info("Generating solution");
+                AssignmentResult result = session.solve();
+                logResult(result);
+                assignment = result.getAssignment();
+            } else {
+                log.info("Parsing orders from file: {}.", ordersFilePath);
+                List<Order> orders;
+                try (MetricsRegistry.PhaseTimer ignored = metricsRegistry.time(Phase.PARSE_ORDERS)) {
+                    orders = parser.parseOrders(ordersFilePath, orderIds);
+                }
+                log.info("Loaded {} orders.", orders.size());
+
+                if (!optimizerProperties.getScenarioFiles().isEmpty()) {
+                    runScenarios(orders, paymentMethods, paymentMethodsFilePath);
+                    writeMetrics();
+                    return;
+                }
+
+                log.info("Generating solution");
+                AssignmentResult result = paymentMethodAssigner.solve(orders, paymentMethods, orderIds, methodIds);
+                logResult(result);
+                assignment = result.getAssignment();
+            }
+            try (MetricsRegistry.PhaseTimer ignored = metricsRegistry.time(Phase.SUMMARY)) {
+                writeOutput(assignment);
+            }
+            if (optimizerProperties.isStartupReport()) {
+                reportStartup(readyMillis, System.currentTimeMillis());
+            }
+            writeMetrics();
+        } catch (IOException e) {
+            log.error("Error while reading files: {}", e.getMessage());
+        } catch (Exception e) {
+            log.error("Error while processing files: {}", e.getMessage());
+        }
+    }
+
+    private void logResult(AssignmentResult result) {
+        log.info("Strategy {} found total discount {} (greedy {}), upper bound {}, optimality gap {}, optimal: {}, took {} ms.",
+                result.getStrategy(), result.getTotalDiscount(), result.getGreedyDiscount(), result.getUpperBound(),
+                result.getOptimalityGap(), result.isOptimal(), result.getElapsedMillis());
+        if (result.getIterations() > 0) {
+            log.info("Improvement search: {} iterations, {} iterations/s, gain {} per ms.",
+                    result.getIterations(), Math.round(result.getIterationsPerSecond()), result.getGainPerMillis());
+        }
+    }
+
+    //orders streamed into sorted runs on disk, only the summary is produced
+    private void runExternalSort(String ordersFilePath, List<PaymentMethod> paymentMethods) throws IOException {
+        log.info("Streaming orders from file: {} into runs of {} candidates.", ordersFilePath, optimizerProperties.getExternalSortRunSize());
+        Map<String, BigDecimal> summary;
+        try (ExternalSortSession session = paymentMethodAssigner.openExternalSession(paymentMethods)) {
+            long ordersCount;
+            try (MetricsRegistry.PhaseTimer ignored = metricsRegistry.time(Phase.PARSE_ORDERS)) {
+                ordersCount = parser.streamOrders(ordersFilePath, session);
+            }
+            log.info("Loaded {} orders, spilled {} runs.", ordersCount, session.getRunsCount());
 
             log.info("Generating solution");
-            Map<String, DiscountOption> assignment = paymentMethodAssigner.assign(orders, paymentMethods);
+            summary = session.finish();
+        }
+
+        try (MetricsRegistry.PhaseTimer ignored = metricsRegistry.time(Phase.SUMMARY)) {
+            String outputFile = optimizerProperties.getOutputFile();
+            if (outputFile != null && !outputFile.isBlank()) {
+                paymentMethodSummaryGenerator.generateTotals(summary, Path.of(outputFile));
+                log.info("Summary written to file: {}.", outputFile);
+            } else {
+                paymentMethodSummaryGenerator.generateTotals(summary);
+            }
+        }
+        String orderReportFile = optimizerProperties.getOrderReportFile();
+        if (orderReportFile != null && !orderReportFile.isBlank()) {
+            log.warn("Order report is not written when orders are sorted externally.");
+        }
+    }
+
+    //summary of every scenario printed after a line with its payment methods file, the file given as argument goes first
+    private void runScenarios(List<Order> orders, List<PaymentMethod> paymentMethods, String paymentMethodsFilePath) throws IOException {
+        List<String> scenarioFiles = new ArrayList<>();
+        List<List<PaymentMethod>> scenarios = new ArrayList<>();
+        scenarioFiles.add(paymentMethodsFilePath);
+        scenarios.add(paymentMethods);
+        for (String scenarioFile : optimizerProperties.getScenarioFiles()) {
+            log.info("Parsing scenario payment methods from file: {}.", scenarioFile);
+            try (MetricsRegistry.PhaseTimer ignored = metricsRegistry.time(Phase.PARSE_METHODS)) {
+                scenarios.add(parser.parsePaymentMethods(scenarioFile));
+            }
+            scenarioFiles.add(scenarioFile);
+        }
+
+        log.info("Evaluating {} scenarios", scenarios.size());
+        List<ScenarioResult> results = scenarioEvaluator.evaluate(orders, scenarios);
+        for (int i = 0; i < results.size(); i++) {
+            log.info("Scenario {} found total discount {}.", scenarioFiles.get(i), results.get(i).getTotalDiscount());
+            System.out.println("# " + scenarioFiles.get(i));
+            for (Map.Entry<String, BigDecimal> entry : results.get(i).getSummary().entrySet()) {
+                System.out.println(entry.getKey() + " " + entry.getValue());
+            }
+        }
+    }
+
+    private void writeOutput(Map<String, DiscountOption> assignment) throws IOException {
+        String outputFile = optimizerProperties.getOutputFile();
+        if (outputFile != null && !outputFile.isBlank()) {
+            paymentMethodSummaryGenerator.generateSummary(assignment, Path.of(outputFile));
+            log.info("Summary written to file: {}.", outputFile);
+        } else {
             paymentMethodSummaryGenerator.generateSummary(assignment);
+        }
+
+        String orderReportFile = optimizerProperties.getOrderReportFile();
+        if (orderReportFile != null && !orderReportFile.isBlank()) {
+            paymentMethodSummaryGenerator.generateOrderReport(assignment, Path.of(orderReportFile));
+            log.info("Order report written to file: {}.", orderReportFile);
+        }
+    }
+
+    //wall clock since the JVM started, to compare the Spring path with DirectLauncher and the native image; on standard
+    //error so that the summary on standard output stays unchanged
+    private void reportStartup(long readyMillis, long outputMillis) {
+        long startMillis = ManagementFactory.getRuntimeMXBean().getStartTime();
+        StringBuilder report = new StringBuilder("Startup: ready after ").append(readyMillis - startMillis)
+                .append(" ms, first output after ").append(outputMillis - startMillis).append(" ms since JVM start");
+        long peakRss = peakRssKilobytes();
+        if (peakRss >= 0) {
+            report.append(", peak RSS ").append(peakRss).append(" KB");
+        }
+        System.err.println(report.append('.'));
+    }
+
+    //VmHWM of the process, -1 where /proc isn't available
+    private static long peakRssKilobytes() {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc/self/status"))) {
+                if (line.startsWith("VmHWM:")) {
+                    return Long.parseLong(line.substring("VmHWM:".length()).replace("kB", "").trim());
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.debug("Peak RSS not available: {}", e.getMessage());
+        }
+        return -1;
+    }
+
+    private void writeMetrics() throws IOException {
+        String metricsFile = optimizerProperties.getMetricsFile();
+        if (metricsFile != null && !metricsFile.isBlank()) {
+            mapper.writerWithDefaultPrettyPrinter().writeValue(new File(metricsFile), metricsRegistry.snapshot());
+            log.info("Metrics written to file: {}.", metricsFile);
+        }
+    }
+
+    //keeps running after this method returns, until the JVM is stopped
+    private void runService(String... args) {
+        log.info("Validating program arguments");
+        argumentsValidator.validateServiceArgsNum(args.length);
+
+        String paymentMethodsFilePath = args[0];
+        try {
+            log.info("Parsing payment methods from file: {}.", paymentMethodsFilePath);
+            List<PaymentMethod> paymentMethods = parser.parsePaymentMethods(paymentMethodsFilePath);
+            log.info("Loaded {} payment methods.", paymentMethods.size());
+
+            optimizerServer.start(paymentMethods, optimizerProperties.getServicePort(), optimizerProperties.getServiceThreads(),
+                    optimizerProperties.isServiceSharedLimits());
+            Runtime.getRuntime().addShutdownHook(new Thread(optimizerServer::stop));
+            log.info("Listening on port {}.", optimizerServer.getPort());
         } catch (IOException e) {
             log.error("Error while reading files: {}", e.getMessage());
         } catch (Exception e) {
@@ -0,0 +1,72 @@
+package pl.wachala.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import pl.wachala.optimizer.ArithmeticEngine;
+import pl.wachala.optimizer.AssignmentStrategyType;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+public class OptimizerProperties {
+
+    //parse orders incrementally and feed them straight into discount option generation
+    private boolean streaming = false;
+
+    //read orders.json with the memory mapped scanner instead of Jackson, files it doesn't understand still go to Jackson
+    private boolean mappedOrderScanner = false;
+
+    //threads parsing orders files when several are given (one per file up to this number)
+    private int ingestionThreads = 8;
+
+    //FIXED_POINT computes discounts on long minor units, batches with amounts not fitting into them use BIG_DECIMAL anyway
+    private ArithmeticEngine arithmetic = ArithmeticEngine.BIG_DECIMAL;
+
+    //number of threads generating discount options, result doesn't depend on it
+    private int parallelism = 1;
+
+    //run the greedy pass separately for groups of orders sharing payment methods, result doesn't depend on it
+    private boolean partitioning = false;
+
+    //card discount options kept per order (those with the largest discounts), 0 keeps all; implies fixed point arithmetic
+    private int candidatesPerOrder = 0;
+
+    //candidates per sorted run spilled to disk, orders are then assigned greedily without keeping them in memory; 0 disables
+    private int externalSortRunSize = 0;
+
+    //directory of the spilled runs, empty uses the system temporary directory
+    private String spillDirectory = "";
+
+    private AssignmentStrategyType strategy = AssignmentStrategyType.GREEDY;
+
+    //how long BRANCH_AND_BOUND and LOCAL_SEARCH search before returning the best assignment found so far
+    private Duration solverTimeBudget = Duration.ofSeconds(1);
+
+    //port of the resident HTTP service, 0 runs the one-shot command line mode
+    private int servicePort = 0;
+
+    //number of requests processed concurrently in service mode
+    private int serviceThreads = 4;
+
+    //in service mode limits are a budget shared by all requests instead of applying to every request separately
+    private boolean serviceSharedLimits = false;
+
+    //file the per-phase metrics of the run are written to as JSON, empty disables the dump
+    private String metricsFile = "";
+
+    //payment methods files with alternative limits, orders are additionally evaluated against each of them
+    private List<String> scenarioFiles = new ArrayList<>();
+
+    //file the summary is written to instead of standard output, empty prints it
+    private String outputFile = "";
+
+    //file with the assignment of every order, empty disables the report
+    private String orderReportFile = "";
+
+    //print time from JVM start until the application is ready and until the summary is written to standard error
+    private boolean startupReport = false;
+
+}
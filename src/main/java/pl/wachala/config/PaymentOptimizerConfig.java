@@ -1,10 +1,17 @@
 package pl.wachala.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import pl.wachala.models.DiscountOption;
+import pl.wachala.models.Order;
+import pl.wachala.models.PaymentMethod;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+//models read and written by Jackson need reflection metadata in the native image
 @Configuration
+@RegisterReflectionForBinding({Order.class, PaymentMethod.class, DiscountOption.class})
 public class PaymentOptimizerConfig {
 
     @Bean
@@ -12,4 +19,10 @@ public class PaymentOptimizerConfig {
         return new ObjectMapper();
     }
 
+    @Bean
+    @ConfigurationProperties(prefix = "optimizer")
+    public OptimizerProperties optimizerProperties() {
+        return new OptimizerProperties();
+    }
+
 }
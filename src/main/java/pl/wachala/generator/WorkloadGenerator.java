@@ -0,0 +1,184 @@
+package pl.wachala.generator;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import pl.wachala.models.Order;
+import pl.wachala.models.PaymentMethod;
+import pl.wachala.util.Consts;
+import pl.wachala.util.FixedPoint;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+
+//Seeded generator of orders.json and paymentmethods.json. Orders are streamed one by one and never kept in memory,
+//payment method limits are derived from the promotions actually generated, so they are written after the orders.
+public class WorkloadGenerator {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final WorkloadSpec spec;
+
+    public WorkloadGenerator(WorkloadSpec spec) {
+        if (spec.getOrdersCount() < 0 || spec.getMethodsCount() < 1) {
+            throw new IllegalArgumentException("Workload needs a non-negative number of orders and at least one card method.");
+        }
+        if (spec.getMinOrderValue() < 1 || spec.getMinOrderValue() > spec.getMaxOrderValue()) {
+            throw new IllegalArgumentException("Order values have to satisfy 1 <= minOrderValue <= maxOrderValue.");
+        }
+        if (spec.getPromotionsPerOrder() < 0 || spec.getValueSkew() < 0 || spec.getLimitTightness() < 0 || spec.getLoyaltyPointsShare() < 0) {
+            throw new IllegalArgumentException("Promotions per order, value skew, limit tightness and loyalty points share can't be negative.");
+        }
+        this.spec = spec;
+    }
+
+    //orders are passed to the consumer in generation order, payment methods (cards first, PUNKTY last) are returned at the end
+    public List<PaymentMethod> generate(Consumer<Order> consumer) {
+        SplittableRandom random = new SplittableRandom(spec.getSeed());
+        int methodsCount = spec.getMethodsCount();
+
+        int[] cardDiscounts = new int[methodsCount];
+        for (int method = 0; method < methodsCount; method++) {
+            cardDiscounts[method] = 5 + random.nextInt(16);
+        }
+        int loyaltyPointsDiscount = 10 + random.nextInt(11);
+
+        //discount (= limit used) of all card promotions per method
+        long[] demand = new long[methodsCount];
+        long totalValue = 0;
+        int[] picked = new int[methodsCount];
+        for (int i = 0; i < spec.getOrdersCount(); i++) {
+            long value = nextValue(random);
+            int promotionsCount = nextPromotionsCount(random);
+
+            List<String> promotions = new ArrayList<>(promotionsCount);
+            for (int k = 0; k < promotionsCount; k++) {
+                int method = pickDistinct(random, picked, k);
+                demand[method] += FixedPoint.percentage(value, cardDiscounts[method]);
+                promotions.add(cardMethodId(method));
+            }
+
+            totalValue += value;
+            consumer.accept(new Order("ORDER" + i, FixedPoint.toBigDecimal(value), promotions));
+        }
+
+        List<PaymentMethod> paymentMethods = new ArrayList<>(methodsCount + 1);
+        for (int method = 0; method < methodsCount; method++) {
+            long limit = Math.round(demand[method] * spec.getLimitTightness());
+            paymentMethods.add(new PaymentMethod(cardMethodId(method), cardDiscounts[method], FixedPoint.toBigDecimal(limit)));
+        }
+        long loyaltyPointsLimit = Math.round(totalValue * spec.getLoyaltyPointsShare());
+        paymentMethods.add(new PaymentMethod(Consts.LOYALTY_POINTS_PAYMENT_METHOD_ID, loyaltyPointsDiscount, FixedPoint.toBigDecimal(loyaltyPointsLimit)));
+        return paymentMethods;
+    }
+
+    //streams both files to disk, returns the generated payment methods
+    public List<PaymentMethod> write(Path ordersFile, Path paymentMethodsFile) throws IOException {
+        List<PaymentMethod> paymentMethods;
+        try (JsonGenerator orders = JSON.createGenerator(ordersFile.toFile(), JsonEncoding.UTF8)) {
+            orders.writeStartArray();
+            try {
+                paymentMethods = generate(order -> writeOrder(orders, order));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            orders.writeEndArray();
+        }
+
+        try (JsonGenerator methods = JSON.createGenerator(paymentMethodsFile.toFile(), JsonEncoding.UTF8)) {
+            methods.writeStartArray();
+            for (PaymentMethod method : paymentMethods) {
+                methods.writeStartObject();
+                methods.writeStringField("id", method.getId());
+                methods.writeNumberField("discount", method.getDiscount());
+                methods.writeNumberField("limit", method.getLimit());
+                methods.writeEndObject();
+            }
+            methods.writeEndArray();
+        }
+        return paymentMethods;
+    }
+
+    private static void writeOrder(JsonGenerator generator, Order order) {
+        try {
+            generator.writeStartObject();
+            generator.writeStringField("id", order.getId());
+            generator.writeNumberField("value", order.getValue());
+            generator.writeArrayFieldStart("promotions");
+            for (String promotion : order.getPromotions()) {
+                generator.writeString(promotion);
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long nextValue(SplittableRandom random) {
+        double position = Math.pow(random.nextDouble(), 1 + spec.getValueSkew());
+        return spec.getMinOrderValue() + (long) ((spec.getMaxOrderValue() - spec.getMinOrderValue() + 1) * position);
+    }
+
+    //whole part of the average always, fractional part with matching probability
+    private int nextPromotionsCount(SplittableRandom random) {
+        double average = spec.getPromotionsPerOrder();
+        int count = (int) average;
+        if (random.nextDouble() < average - count) {
+            count++;
+        }
+        return Math.min(count, spec.getMethodsCount());
+    }
+
+    //k-th distinct method of the order, picked[0..k) holds earlier picks in ascending order
+    private int pickDistinct(SplittableRandom random, int[] picked, int k) {
+        int method = random.nextInt(spec.getMethodsCount() - k);
+        int position = 0;
+        while (position < k && method >= picked[position]) {
+            method++;
+            position++;
+        }
+        System.arraycopy(picked, position, picked, position + 1, k - position);
+        picked[position] = method;
+        return method;
+    }
+
+    private static String cardMethodId(int method) {
+        return "BANK" + method;
+    }
+
+    //java -cp ... pl.wachala.generator.WorkloadGenerator orders.json paymentmethods.json [property=value ...]
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            throw new IllegalArgumentException("Usage: WorkloadGenerator <orders file> <payment methods file> [property=value ...]");
+        }
+
+        WorkloadSpec spec = new WorkloadSpec();
+        for (int i = 2; i < args.length; i++) {
+            String[] property = args[i].split("=", 2);
+            if (property.length != 2) {
+                throw new IllegalArgumentException("Expected property=value, got: " + args[i]);
+            }
+            switch (property[0]) {
+                case "seed" -> spec.setSeed(Long.parseLong(property[1]));
+                case "ordersCount" -> spec.setOrdersCount(Integer.parseInt(property[1]));
+                case "methodsCount" -> spec.setMethodsCount(Integer.parseInt(property[1]));
+                case "promotionsPerOrder" -> spec.setPromotionsPerOrder(Double.parseDouble(property[1]));
+                case "minOrderValue" -> spec.setMinOrderValue(Long.parseLong(property[1]));
+                case "maxOrderValue" -> spec.setMaxOrderValue(Long.parseLong(property[1]));
+                case "valueSkew" -> spec.setValueSkew(Double.parseDouble(property[1]));
+                case "limitTightness" -> spec.setLimitTightness(Double.parseDouble(property[1]));
+                case "loyaltyPointsShare" -> spec.setLoyaltyPointsShare(Double.parseDouble(property[1]));
+                default -> throw new IllegalArgumentException("Unknown workload property: " + property[0]);
+            }
+        }
+
+        new WorkloadGenerator(spec).write(Path.of(args[0]), Path.of(args[1]));
+    }
+
+}
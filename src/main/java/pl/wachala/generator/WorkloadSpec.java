@@ -0,0 +1,34 @@
+package pl.wachala.generator;
+
+import lombok.Getter;
+import lombok.Setter;
+
+//Parameters of a synthetic workload, the same spec (including seed) always produces the same files
+@Getter
+@Setter
+public class WorkloadSpec {
+
+    private long seed = 1;
+
+    private int ordersCount = 10_000;
+
+    //card methods BANK0..BANK(n-1), PUNKTY is always added
+    private int methodsCount = 10;
+
+    //average number of distinct promotions per order, capped by methodsCount
+    private double promotionsPerOrder = 1.0;
+
+    //order values in grosze
+    private long minOrderValue = 100;
+    private long maxOrderValue = 50_000;
+
+    //0 spreads order values uniformly, higher values make most orders small with a long tail of large ones
+    private double valueSkew = 0;
+
+    //card method limit as a fraction of the discounts all its promotions would use, 1 lets every promotion fit
+    private double limitTightness = 0.5;
+
+    //PUNKTY limit as a fraction of the total value of all orders
+    private double loyaltyPointsShare = 0.1;
+
+}
@@ -0,0 +1,173 @@
+package pl.wachala.metrics;
+
+import org.springframework.stereotype.Component;
+import pl.wachala.models.DiscountOption;
+import pl.wachala.models.PaymentMethod;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+//Per-phase durations and allocations, counters and limit utilization of optimizer runs. Phases may be timed from many
+//threads at once (service mode), values accumulate over all runs of the process. Allocations are those of the thread
+//timing the phase, work handed to other threads (optimizer.parallelism > 1) is not included.
+@Component
+public class MetricsRegistry {
+
+    public static final String ORDERS = "orders";
+    public static final String CANDIDATES = "candidates";
+    //card candidates dropped by optimizer.candidates-per-order and orders for which the greedy pass would have used one
+    public static final String PRUNED_CANDIDATES = "prunedCandidates";
+    public static final String PRUNED_CANDIDATES_NEEDED = "prunedCandidatesNeeded";
+    //discounts of BigDecimal options taken from the per order value cache and computed
+    public static final String DISCOUNT_CACHE_HITS = "discountCacheHits";
+    public static final String DISCOUNT_CACHE_MISSES = "discountCacheMisses";
+    //sorted runs of candidates written to disk by the external sort mode
+    public static final String SPILLED_RUNS = "spilledRuns";
+    //passes merging groups of spilled runs into longer ones before the final merge, see ExternalSortSession.MAX_FAN_IN
+    public static final String MERGE_PASSES = "mergePasses";
+
+    private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+
+    private final Map<Phase, PhaseStats> phases = new EnumMap<>(Phase.class);
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    //of the last recorded assignment
+    private volatile Map<String, Map<String, BigDecimal>> limitUtilization = Map.of();
+
+    public MetricsRegistry() {
+        for (Phase phase : Phase.values()) {
+            phases.put(phase, new PhaseStats());
+        }
+    }
+
+    //try (PhaseTimer ignored = metrics.time(Phase.SORT)) { ... }
+    public PhaseTimer time(Phase phase) {
+        return new PhaseTimer(phases.get(phase));
+    }
+
+    public void increment(String counter, long delta) {
+        counters.computeIfAbsent(counter, name -> new LongAdder()).add(delta);
+    }
+
+    //limit used by the assignment per payment method, as amount and fraction of the limit
+    public void recordLimitUtilization(List<PaymentMethod> paymentMethods, Map<String, DiscountOption> assignment) {
+        Map<String, BigDecimal> used = new HashMap<>();
+        for (DiscountOption option : assignment.values()) {
+            used.merge(option.getPromoMethodId(), option.getPromoLimitUsed(), BigDecimal::add);
+        }
+
+        Map<String, Map<String, BigDecimal>> utilization = new TreeMap<>();
+        for (PaymentMethod method : paymentMethods) {
+            BigDecimal methodUsed = used.getOrDefault(method.getId(), BigDecimal.ZERO);
+            Map<String, BigDecimal> stats = new LinkedHashMap<>();
+            stats.put("limit", method.getLimit());
+            stats.put("used", methodUsed);
+            stats.put("utilization", method.getLimit().signum() > 0
+                    ? methodUsed.divide(method.getLimit(), 4, RoundingMode.HALF_UP)
+                    : BigDecimal.ZERO);
+            utilization.put(method.getId(), stats);
+        }
+        limitUtilization = utilization;
+    }
+
+    public long getCount(Phase phase) {
+        return phases.get(phase).count.sum();
+    }
+
+    public long getCounter(String counter) {
+        LongAdder adder = counters.get(counter);
+        return adder != null ? adder.sum() : 0;
+    }
+
+    public Map<String, Map<String, BigDecimal>> getLimitUtilization() {
+        return limitUtilization;
+    }
+
+    //plain maps, ready to be written as JSON
+    public Map<String, Object> snapshot() {
+        Map<String, Object> phasesSnapshot = new LinkedHashMap<>();
+        long allocatedBytes = 0;
+        for (Map.Entry<Phase, PhaseStats> entry : phases.entrySet()) {
+            PhaseStats stats = entry.getValue();
+            Map<String, Object> phaseSnapshot = new LinkedHashMap<>();
+            phaseSnapshot.put("count", stats.count.sum());
+            phaseSnapshot.put("totalMillis", stats.totalNanos.sum() / 1_000_000.0);
+            phaseSnapshot.put("maxMillis", stats.maxNanos.get() / 1_000_000.0);
+            phaseSnapshot.put("allocatedBytes", stats.allocatedBytes.sum());
+            phasesSnapshot.put(entry.getKey().getKey(), phaseSnapshot);
+            allocatedBytes += stats.allocatedBytes.sum();
+        }
+
+        Map<String, Object> countersSnapshot = new TreeMap<>();
+        counters.forEach((name, adder) -> countersSnapshot.put(name, adder.sum()));
+
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("phases", phasesSnapshot);
+        snapshot.put("allocatedBytes", allocatedBytes);
+        snapshot.put("counters", countersSnapshot);
+        snapshot.put("limitUtilization", limitUtilization);
+        return snapshot;
+    }
+
+    //-1 when the JVM can't measure allocations per thread
+    static long allocatedBytes() {
+        if (THREADS == null) {
+            return -1;
+        }
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                && bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+            return bean;
+        }
+        return null;
+    }
+
+    static class PhaseStats {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+        private final LongAdder allocatedBytes = new LongAdder();
+
+        void record(long nanos, long allocated) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+            if (allocated > 0) {
+                allocatedBytes.add(allocated);
+            }
+        }
+    }
+
+    //measures from creation to close() on the creating thread
+    public static class PhaseTimer implements AutoCloseable {
+        private final PhaseStats stats;
+        private final long startNanos;
+        private final long startAllocated;
+
+        private PhaseTimer(PhaseStats stats) {
+            this.stats = stats;
+            this.startAllocated = allocatedBytes();
+            this.startNanos = System.nanoTime();
+        }
+
+        @Override
+        public void close() {
+            long nanos = System.nanoTime() - startNanos;
+            long allocated = startAllocated >= 0 ? allocatedBytes() - startAllocated : 0;
+            stats.record(nanos, allocated);
+        }
+    }
+
+}
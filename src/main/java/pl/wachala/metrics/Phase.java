@@ -0,0 +1,22 @@
+package pl.wachala.metrics;
+
+//stages of an optimizer run timed by MetricsRegistry, name is the key used in the JSON dump
+public enum Phase {
+    PARSE_METHODS("parseMethods"),
+    PARSE_ORDERS("parseOrders"),
+    CANDIDATE_GENERATION("candidateGeneration"),
+    SORT("sort"),
+    GREEDY("greedy"),
+    LOYALTY_FALLBACK("loyaltyFallback"),
+    SUMMARY("summary");
+
+    private final String key;
+
+    Phase(String key) {
+        this.key = key;
+    }
+
+    public String getKey() {
+        return key;
+    }
+}
@@ -0,0 +1,6 @@
+package pl.wachala.optimizer;
+
+public enum ArithmeticEngine {
+    BIG_DECIMAL,
+    FIXED_POINT,
+}
@@ -0,0 +1,64 @@
+package pl.wachala.optimizer;
+
+import lombok.Builder;
+import lombok.Getter;
+import pl.wachala.models.DiscountOption;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Map;
+
+@Getter
+@Builder
+public class AssignmentResult {
+    private AssignmentStrategyType strategy;
+    private Map<String, DiscountOption> assignment;
+    //sum of discounts of applied promotions (orders paid without promotion don't count)
+    private BigDecimal totalDiscount;
+    //total discount of the greedy assignment, for comparison
+    private BigDecimal greedyDiscount;
+    //no assignment can have larger total discount, null when not computed
+    private BigDecimal upperBound;
+    //true when total discount is proven to be the best possible
+    private boolean optimal;
+    private long elapsedMillis;
+    //work done by the improvement phase after greedy, zero when there was none
+    private long iterations;
+    private long searchNanos;
+
+    //relative distance between total discount and upper bound, null when upper bound is unknown
+    public BigDecimal getOptimalityGap() {
+        if (upperBound == null) {
+            return null;
+        }
+        if (upperBound.signum() <= 0) {
+            return BigDecimal.ZERO;
+        }
+        return upperBound.subtract(totalDiscount).divide(upperBound, 6, RoundingMode.HALF_UP);
+    }
+
+    public double getIterationsPerSecond() {
+        return searchNanos > 0 ? iterations * 1_000_000_000.0 / searchNanos : 0;
+    }
+
+    //discount gained over greedy per millisecond of improvement phase
+    public BigDecimal getGainPerMillis() {
+        if (searchNanos <= 0 || greedyDiscount == null) {
+            return BigDecimal.ZERO;
+        }
+        return totalDiscount.subtract(greedyDiscount)
+                .multiply(BigDecimal.valueOf(1_000_000))
+                .divide(BigDecimal.valueOf(searchNanos), 6, RoundingMode.HALF_UP);
+    }
+
+    static BigDecimal totalDiscount(Map<String, DiscountOption> assignment) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (DiscountOption option : assignment.values()) {
+            if (option.getPromoType() != null) {
+                total = total.add(option.getDiscount());
+            }
+        }
+        return total;
+    }
+
+}
@@ -0,0 +1,131 @@
+package pl.wachala.optimizer;
+
+import pl.wachala.metrics.MetricsRegistry;
+import pl.wachala.metrics.Phase;
+import pl.wachala.models.DiscountOption;
+import pl.wachala.models.Order;
+import pl.wachala.models.PaymentMethod;
+import pl.wachala.util.IdDictionary;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+//collects discount options for orders as they arrive and runs the greedy assignment once all orders are in. The only
+//saving over parsing the whole file is that no parsed List<Order> with promotion lists is built: options of every order
+//(and id and value of every order) are kept until solve(), so memory is not bounded and grows linearly with the batch.
+//Bounded memory comes with ExternalSortSession (optimizer.external-sort-run-size).
+//Other strategies generate candidates from complete orders, with one of them configured the orders are kept as they
+//arrive and handed to the strategy by solve().
+public class AssignmentSession implements Consumer<Order> {
+
+    private final PaymentMethodAssigner assigner;
+    private final List<PaymentMethod> paymentMethods;
+    private final IdDictionary orderIds;
+    private final IdDictionary methodIds;
+    private final PaymentMethodCatalog catalog;
+    private final String defaultPaymentMethod;
+    //false when orders are kept for a strategy other than greedy
+    private final boolean greedy;
+
+    //null when discounts are calculated with BigDecimal
+    private FixedPointEngine fixedPointEngine;
+
+    private List<Order> orders = new ArrayList<>();
+    private List<DiscountOption> possibleDiscounts = new ArrayList<>();
+
+    AssignmentSession(PaymentMethodAssigner assigner, List<PaymentMethod> paymentMethods, IdDictionary orderIds, IdDictionary methodIds,
+                      PaymentMethodCatalog catalog, String defaultPaymentMethod, FixedPointEngine fixedPointEngine, boolean greedy) {
+        this.assigner = assigner;
+        this.paymentMethods = paymentMethods;
+        this.orderIds = orderIds;
+        this.methodIds = methodIds;
+        this.catalog = catalog;
+        this.defaultPaymentMethod = defaultPaymentMethod;
+        this.fixedPointEngine = fixedPointEngine;
+        this.greedy = greedy;
+    }
+
+    @Override
+    public void accept(Order order) {
+        if (!greedy) {
+            orders.add(order);
+            return;
+        }
+
+        if (fixedPointEngine != null) {
+            if (fixedPointEngine.add(order)) {
+                return;
+            }
+
+            //order value doesn't fit into minor units - continue with BigDecimal options generated so far
+            orders = fixedPointEngine.getOrders();
+            possibleDiscounts = fixedPointEngine.getPossibleDiscounts();
+            fixedPointEngine = null;
+        }
+
+        possibleDiscounts.addAll(catalog.discountOptions(order));
+
+        //promotions are no longer needed once discount options are generated - keep only what the greedy pass reads
+        orders.add(Order.builder()
+                .id(order.getId())
+                .value(order.getValue())
+                .promotions(List.of())
+                .build());
+    }
+
+    public int getOrdersCount() {
+        return fixedPointEngine != null ? fixedPointEngine.getOrdersCount() : orders.size();
+    }
+
+    //discount options kept until solve()
+    int getCandidatesCount() {
+        return fixedPointEngine != null ? fixedPointEngine.getCandidates().size() : possibleDiscounts.size();
+    }
+
+    //orders kept until solve(): complete for strategies other than greedy, id and value only for the greedy pass with
+    //BigDecimal arithmetic, none with fixed point arithmetic
+    List<Order> getRetainedOrders() {
+        return orders;
+    }
+
+    public Map<String, DiscountOption> finish() {
+        return solve().getAssignment();
+    }
+
+    //assignment of the configured strategy, see PaymentMethodAssigner.solve
+    public AssignmentResult solve() {
+        if (!greedy) {
+            return assigner.solve(orders, paymentMethods, orderIds, methodIds);
+        }
+
+        long start = System.nanoTime();
+        MetricsRegistry metrics = assigner.getMetrics();
+        Map<String, DiscountOption> assignment;
+        if (fixedPointEngine != null) {
+            metrics.increment(MetricsRegistry.CANDIDATES, fixedPointEngine.getCandidates().size());
+            assignment = assigner.assignWithEngine(fixedPointEngine);
+        } else {
+            metrics.increment(MetricsRegistry.CANDIDATES, possibleDiscounts.size());
+            catalog.recordStatistics(metrics);
+            try (MetricsRegistry.PhaseTimer ignored = metrics.time(Phase.SORT)) {
+                PaymentMethodAssigner.sortByPromoLimitUsedDesc(possibleDiscounts);
+            }
+            assignment = assigner.getAssignmentGreedy(orders, paymentMethods, possibleDiscounts, defaultPaymentMethod);
+        }
+
+        metrics.increment(MetricsRegistry.ORDERS, getOrdersCount());
+        metrics.recordLimitUtilization(paymentMethods, assignment);
+        BigDecimal totalDiscount = AssignmentResult.totalDiscount(assignment);
+        return AssignmentResult.builder()
+                .strategy(AssignmentStrategyType.GREEDY)
+                .assignment(assignment)
+                .totalDiscount(totalDiscount)
+                .greedyDiscount(totalDiscount)
+                .elapsedMillis((System.nanoTime() - start) / 1_000_000)
+                .build();
+    }
+
+}
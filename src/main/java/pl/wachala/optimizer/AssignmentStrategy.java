@@ -0,0 +1,14 @@
+package pl.wachala.optimizer;
+
+import pl.wachala.models.Order;
+import pl.wachala.models.PaymentMethod;
+import pl.wachala.util.IdDictionary;
+
+import java.util.List;
+
+//decides which discount option is applied to each order
+public interface AssignmentStrategy {
+
+    AssignmentResult assign(List<Order> orders, List<PaymentMethod> paymentMethods, IdDictionary orderIds, IdDictionary methodIds);
+
+}
@@ -0,0 +1,7 @@
+package pl.wachala.optimizer;
+
+public enum AssignmentStrategyType {
+    GREEDY,
+    BRANCH_AND_BOUND,
+    LOCAL_SEARCH,
+}
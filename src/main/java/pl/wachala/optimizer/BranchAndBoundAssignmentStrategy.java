@@ -0,0 +1,269 @@
+package pl.wachala.optimizer;
+
+import pl.wachala.models.DiscountOption;
+import pl.wachala.models.Order;
+import pl.wachala.models.PaymentMethod;
+import pl.wachala.util.FixedPoint;
+import pl.wachala.util.IdDictionary;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+//Depth-first branch and bound maximizing total discount within payment method limits. The greedy assignment is the
+//starting incumbent, so the result is never worse than greedy; when the time budget runs out the best assignment
+//found so far is returned together with an upper bound, which gives the optimality gap.
+public class BranchAndBoundAssignmentStrategy implements AssignmentStrategy {
+
+    private static final int TIME_CHECK_INTERVAL = 1024;
+
+    private final PaymentMethodAssigner assigner;
+    private final Duration timeBudget;
+
+    public BranchAndBoundAssignmentStrategy(PaymentMethodAssigner assigner, Duration timeBudget) {
+        this.assigner = assigner;
+        this.timeBudget = timeBudget;
+    }
+
+    @Override
+    public AssignmentResult assign(List<Order> orders, List<PaymentMethod> paymentMethods, IdDictionary orderIds, IdDictionary methodIds) {
+        long start = System.nanoTime();
+        String defaultPaymentMethod = assigner.getDefaultPaymentMethod(paymentMethods);
+
+        //all candidates, also with optimizer.candidates-per-order set: optimality and the upper bound hold only when the
+        //search covers the whole problem
+        FixedPointEngine engine = FixedPointEngine.create(assigner, paymentMethods, defaultPaymentMethod, orderIds, methodIds);
+        if (engine == null || !engine.addAll(orders, 1)) {
+            //amounts don't fit into minor units - only greedy answer is available
+            Map<String, DiscountOption> assignment = assigner.assignGreedy(orders, paymentMethods, orderIds, methodIds);
+            return AssignmentResult.builder()
+                    .strategy(AssignmentStrategyType.BRANCH_AND_BOUND)
+                    .assignment(assignment)
+                    .totalDiscount(AssignmentResult.totalDiscount(assignment))
+                    .greedyDiscount(AssignmentResult.totalDiscount(assignment))
+                    .elapsedMillis((System.nanoTime() - start) / 1_000_000)
+                    .build();
+        }
+
+        int[] greedyRows = engine.selectGreedy();
+        Search search = new Search(engine, greedyRows, start + timeBudget.toNanos());
+        long searchStart = System.nanoTime();
+        search.run();
+        long searchNanos = System.nanoTime() - searchStart;
+
+        Map<String, DiscountOption> assignment = engine.buildAssignment(search.getBestRows());
+        return AssignmentResult.builder()
+                .strategy(AssignmentStrategyType.BRANCH_AND_BOUND)
+                .assignment(assignment)
+                .totalDiscount(FixedPoint.toBigDecimal(search.getBestValue()))
+                .greedyDiscount(FixedPoint.toBigDecimal(search.getGreedyValue()))
+                .upperBound(FixedPoint.toBigDecimal(search.getUpperBound()))
+                .optimal(search.isComplete())
+                .iterations(search.getIterations())
+                .searchNanos(searchNanos)
+                .elapsedMillis((System.nanoTime() - start) / 1_000_000)
+                .build();
+    }
+
+    static class Search {
+
+        private final CandidateTable candidates;
+        private final long deadline;
+
+        //items are order ids with at least one candidate, ordered by their best discount; itemRows[itemStart[i]..itemStart[i+1])
+        //are candidate rows of item i ordered by discount descending
+        private final int[] itemStart;
+        private final int[] itemRows;
+        private final int itemsCount;
+        //sum of best discounts of items from i to the end
+        private final long[] suffixBest;
+        //best discount per unit of limit for each method, bounds what remaining limit can still bring
+        private final double[] methodRatio;
+
+        private final long[] remainingLimit;
+        private final long greedyValue;
+        private long bestValue;
+        private int[] bestRows;
+        private long upperBound;
+        private boolean complete;
+        private long iterations;
+
+        Search(FixedPointEngine engine, int[] greedyRows, long deadline) {
+            CandidateIndex index = new CandidateIndex(engine);
+            this.candidates = index.getCandidates();
+            this.deadline = deadline;
+            this.remainingLimit = Arrays.copyOf(engine.getMethodLimits(), engine.getMethodLimits().length);
+
+            //items (orders having profitable candidates) ordered by best discount descending
+            int ordersCount = index.getOrdersCount();
+            Integer[] items = new Integer[ordersCount];
+            int count = 0;
+            long[] itemBest = new long[ordersCount];
+            for (int order = 0; order < ordersCount; order++) {
+                if (index.orderEnd(order) > index.orderStart(order)) {
+                    itemBest[order] = candidates.getDiscount(index.orderRow(index.orderStart(order)));
+                    items[count++] = order;
+                }
+            }
+            Arrays.sort(items, 0, count, (a, b) -> Long.compare(itemBest[b], itemBest[a]));
+
+            this.itemsCount = count;
+            this.itemStart = new int[count + 1];
+            this.itemRows = new int[index.orderStart(ordersCount)];
+            this.suffixBest = new long[count + 1];
+            int written = 0;
+            for (int i = 0; i < count; i++) {
+                int order = items[i];
+                itemStart[i] = written;
+                for (int k = index.orderStart(order); k < index.orderEnd(order); k++) {
+                    itemRows[written++] = index.orderRow(k);
+                }
+            }
+            itemStart[count] = written;
+            for (int i = count - 1; i >= 0; i--) {
+                suffixBest[i] = suffixBest[i + 1] + itemBest[items[i]];
+            }
+
+            this.methodRatio = new double[remainingLimit.length];
+            for (int row = 0; row < candidates.size(); row++) {
+                long discount = candidates.getDiscount(row);
+                if (discount <= 0) {
+                    continue;
+                }
+                long limitUsed = candidates.getLimitUsed(row);
+                int method = candidates.getMethodIndex(row);
+                double ratio = limitUsed > 0 ? (double) discount / limitUsed : Double.POSITIVE_INFINITY;
+                methodRatio[method] = Math.max(methodRatio[method], ratio);
+            }
+
+            long greedy = 0;
+            for (int row : greedyRows) {
+                greedy += candidates.getDiscount(row);
+            }
+            this.greedyValue = greedy;
+            this.bestValue = greedy;
+            this.bestRows = greedyRows;
+        }
+
+        void run() {
+            long rootBound = bound(0, 0);
+            int[] next = new int[itemsCount + 1];
+            int[] chosen = new int[itemsCount + 1];
+            Arrays.fill(chosen, -1);
+            long value = 0;
+            int depth = 0;
+            boolean timedOut = false;
+
+            while (depth >= 0) {
+                if (++iterations % TIME_CHECK_INTERVAL == 0 && System.nanoTime() > deadline) {
+                    timedOut = true;
+                    break;
+                }
+
+                boolean backtrack;
+                if (depth == itemsCount) {
+                    if (value > bestValue) {
+                        bestValue = value;
+                        bestRows = chosenRows(chosen);
+                    }
+                    backtrack = true;
+                } else if (next[depth] == 0 && bound(depth, value) <= bestValue) {
+                    backtrack = true;
+                } else {
+                    int alternatives = itemStart[depth + 1] - itemStart[depth];
+                    //alternatives are candidate rows by discount descending, last one leaves the order without promotion
+                    backtrack = next[depth] > alternatives;
+                    if (!backtrack) {
+                        int alternative = next[depth]++;
+                        if (alternative < alternatives) {
+                            int row = itemRows[itemStart[depth] + alternative];
+                            int method = candidates.getMethodIndex(row);
+                            if (remainingLimit[method] < candidates.getLimitUsed(row)) {
+                                continue;
+                            }
+                            remainingLimit[method] -= candidates.getLimitUsed(row);
+                            value += candidates.getDiscount(row);
+                            chosen[depth] = row;
+                        }
+                        depth++;
+                        next[depth] = 0;
+                        chosen[depth] = -1;
+                        continue;
+                    }
+                }
+
+                //go back to parent and undo its choice
+                depth--;
+                if (depth >= 0 && chosen[depth] >= 0) {
+                    int row = chosen[depth];
+                    remainingLimit[candidates.getMethodIndex(row)] += candidates.getLimitUsed(row);
+                    value -= candidates.getDiscount(row);
+                    chosen[depth] = -1;
+                }
+            }
+
+            complete = !timedOut;
+            upperBound = complete ? bestValue : Math.max(bestValue, rootBound);
+        }
+
+        //no completion of the current partial assignment can exceed this value
+        private long bound(int depth, long value) {
+            double limitBound = 0;
+            for (int method = 0; method < remainingLimit.length; method++) {
+                if (methodRatio[method] > 0) {
+                    limitBound += methodRatio[method] * remainingLimit[method];
+                }
+            }
+            long itemsBound = suffixBest[depth];
+            if (limitBound < itemsBound) {
+                //rounding of the floating point bound must never cut off a better assignment
+                itemsBound = (long) Math.ceil(limitBound + 1e-6 * Math.max(1, limitBound));
+            }
+            return value + itemsBound;
+        }
+
+        private int[] chosenRows(int[] chosen) {
+            int count = 0;
+            for (int i = 0; i < itemsCount; i++) {
+                if (chosen[i] >= 0) {
+                    count++;
+                }
+            }
+            int[] rows = new int[count];
+            int written = 0;
+            for (int i = 0; i < itemsCount; i++) {
+                if (chosen[i] >= 0) {
+                    rows[written++] = chosen[i];
+                }
+            }
+            return rows;
+        }
+
+        long getBestValue() {
+            return bestValue;
+        }
+
+        int[] getBestRows() {
+            return bestRows;
+        }
+
+        long getGreedyValue() {
+            return greedyValue;
+        }
+
+        long getUpperBound() {
+            return upperBound;
+        }
+
+        boolean isComplete() {
+            return complete;
+        }
+
+        long getIterations() {
+            return iterations;
+        }
+
+    }
+
+}
@@ -0,0 +1,99 @@
+package pl.wachala.optimizer;
+
+//Profitable candidate rows (discount > 0) of a FixedPointEngine grouped by dense order id and by payment method.
+//Within each group rows are ordered by discount descending, equal discounts keep generation order.
+class CandidateIndex {
+
+    private final CandidateTable candidates;
+    private final int[] rowOrder;
+    private final int[] orderStart;
+    private final int[] orderRows;
+    private final int[] methodStart;
+    private final int[] methodRows;
+
+    CandidateIndex(FixedPointEngine engine) {
+        this.candidates = engine.getCandidates();
+        int rowsCount = candidates.size();
+        int ordersCount = engine.getOrderIdsCount();
+        int methodsCount = engine.getMethodLimits().length;
+
+        this.rowOrder = new int[rowsCount];
+        int[] rowsPerOrder = new int[ordersCount + 1];
+        int[] rowsPerMethod = new int[methodsCount + 1];
+        int profitable = 0;
+        for (int row = 0; row < rowsCount; row++) {
+            rowOrder[row] = engine.getOrderIndex(candidates.getOrderIndex(row));
+            if (candidates.getDiscount(row) > 0) {
+                rowsPerOrder[rowOrder[row] + 1]++;
+                rowsPerMethod[candidates.getMethodIndex(row) + 1]++;
+                profitable++;
+            }
+        }
+        for (int order = 0; order < ordersCount; order++) {
+            rowsPerOrder[order + 1] += rowsPerOrder[order];
+        }
+        for (int method = 0; method < methodsCount; method++) {
+            rowsPerMethod[method + 1] += rowsPerMethod[method];
+        }
+
+        //distributing rows sorted by discount into buckets keeps every bucket sorted
+        this.orderStart = rowsPerOrder;
+        this.methodStart = rowsPerMethod;
+        this.orderRows = new int[profitable];
+        this.methodRows = new int[profitable];
+        int[] orderFill = new int[ordersCount];
+        int[] methodFill = new int[methodsCount];
+        System.arraycopy(orderStart, 0, orderFill, 0, ordersCount);
+        System.arraycopy(methodStart, 0, methodFill, 0, methodsCount);
+        for (int row : candidates.sortedByDiscountDescending()) {
+            if (candidates.getDiscount(row) > 0) {
+                orderRows[orderFill[rowOrder[row]]++] = row;
+                methodRows[methodFill[candidates.getMethodIndex(row)]++] = row;
+            }
+        }
+    }
+
+    CandidateTable getCandidates() {
+        return candidates;
+    }
+
+    //dense order id of the candidate row
+    int getOrder(int row) {
+        return rowOrder[row];
+    }
+
+    int getOrdersCount() {
+        return orderStart.length - 1;
+    }
+
+    int getMethodsCount() {
+        return methodStart.length - 1;
+    }
+
+    //rows of the order are orderRows[orderStart(order)..orderEnd(order))
+    int orderStart(int order) {
+        return orderStart[order];
+    }
+
+    int orderEnd(int order) {
+        return orderStart[order + 1];
+    }
+
+    int orderRow(int index) {
+        return orderRows[index];
+    }
+
+    //rows of the method are methodRows[methodStart(method)..methodEnd(method))
+    int methodStart(int method) {
+        return methodStart[method];
+    }
+
+    int methodEnd(int method) {
+        return methodStart[method + 1];
+    }
+
+    int methodRow(int index) {
+        return methodRows[index];
+    }
+
+}
@@ -0,0 +1,246 @@
+package pl.wachala.optimizer;
+
+import pl.wachala.models.PromotionType;
+
+import java.util.Arrays;
+
+//Discount options (candidates) stored as parallel primitive arrays - one row per candidate. Amounts are long minor units,
+//orders and payment methods are referenced by index, so a row costs 25 bytes instead of a DiscountOption object graph.
+class CandidateTable {
+
+    private static final PromotionType[] PROMOTION_TYPES = PromotionType.values();
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] orderIndex;
+    private int[] methodIndex;
+    private long[] discount;
+    private long[] limitUsed;
+    private byte[] promoType;
+    private int size;
+
+    //heap of row numbers used by keepLargestDiscounts
+    private int[] kept = new int[0];
+
+    CandidateTable() {
+        this(INITIAL_CAPACITY);
+    }
+
+    CandidateTable(int capacity) {
+        capacity = Math.max(capacity, 1);
+        orderIndex = new int[capacity];
+        methodIndex = new int[capacity];
+        discount = new long[capacity];
+        limitUsed = new long[capacity];
+        promoType = new byte[capacity];
+    }
+
+    int add(int order, int method, PromotionType type, long discountValue, long limitUsedValue) {
+        if (size == orderIndex.length) {
+            grow();
+        }
+
+        orderIndex[size] = order;
+        methodIndex[size] = method;
+        discount[size] = discountValue;
+        limitUsed[size] = limitUsedValue;
+        promoType[size] = (byte) type.ordinal();
+        return size++;
+    }
+
+    //appends all rows of the other table keeping their order
+    void append(CandidateTable other) {
+        int newSize = size + other.size;
+        while (newSize > orderIndex.length) {
+            grow();
+        }
+
+        System.arraycopy(other.orderIndex, 0, orderIndex, size, other.size);
+        System.arraycopy(other.methodIndex, 0, methodIndex, size, other.size);
+        System.arraycopy(other.discount, 0, discount, size, other.size);
+        System.arraycopy(other.limitUsed, 0, limitUsed, size, other.size);
+        System.arraycopy(other.promoType, 0, promoType, size, other.size);
+        size = newSize;
+    }
+
+    //drops rows added after the given size
+    void truncate(int newSize) {
+        size = newSize;
+    }
+
+    //keeps count rows with the largest discount among rows [from, size) (on equal discounts the earlier row), in their
+    //order; the other rows are appended to removed
+    void keepLargestDiscounts(int from, int count, CandidateTable removed) {
+        if (size - from <= count) {
+            return;
+        }
+        if (kept.length < count) {
+            kept = new int[count];
+        }
+
+        //min-heap of the best rows seen so far, the worst of them on top
+        int heapSize = 0;
+        for (int row = from; row < size; row++) {
+            if (heapSize < count) {
+                kept[heapSize] = row;
+                siftUp(heapSize++);
+            } else if (count > 0 && discount[row] > discount[kept[0]]) {
+                kept[0] = row;
+                siftDown(0, heapSize);
+            }
+        }
+        Arrays.sort(kept, 0, heapSize);
+
+        int next = 0;
+        int out = from;
+        for (int row = from; row < size; row++) {
+            if (next < heapSize && kept[next] == row) {
+                next++;
+                orderIndex[out] = orderIndex[row];
+                methodIndex[out] = methodIndex[row];
+                discount[out] = discount[row];
+                limitUsed[out] = limitUsed[row];
+                promoType[out] = promoType[row];
+                out++;
+            } else {
+                removed.add(orderIndex[row], methodIndex[row], getPromoType(row), discount[row], limitUsed[row]);
+            }
+        }
+        size = out;
+    }
+
+    //true when row a is worse than row b: smaller discount, on equal discounts the later row
+    private boolean worse(int a, int b) {
+        return discount[a] < discount[b] || discount[a] == discount[b] && a > b;
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!worse(kept[index], kept[parent])) {
+                return;
+            }
+            swapKept(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index, int heapSize) {
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= heapSize) {
+                return;
+            }
+            if (child + 1 < heapSize && worse(kept[child + 1], kept[child])) {
+                child++;
+            }
+            if (!worse(kept[child], kept[index])) {
+                return;
+            }
+            swapKept(index, child);
+            index = child;
+        }
+    }
+
+    private void swapKept(int a, int b) {
+        int swap = kept[a];
+        kept[a] = kept[b];
+        kept[b] = swap;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int getOrderIndex(int row) {
+        return orderIndex[row];
+    }
+
+    int getMethodIndex(int row) {
+        return methodIndex[row];
+    }
+
+    long getDiscount(int row) {
+        return discount[row];
+    }
+
+    long getLimitUsed(int row) {
+        return limitUsed[row];
+    }
+
+    PromotionType getPromoType(int row) {
+        return PROMOTION_TYPES[promoType[row]];
+    }
+
+    //row numbers ordered by limit used descending, equal limits keep insertion order like List.sort in BigDecimal path
+    int[] sortedByLimitUsedDescending() {
+        return sortedDescending(limitUsed);
+    }
+
+    //row numbers ordered by discount descending, equal discounts keep insertion order
+    int[] sortedByDiscountDescending() {
+        return sortedDescending(discount);
+    }
+
+    //sorts the given row numbers by limit used descending, equal limits keep their order in the array
+    void sortByLimitUsedDescending(int[] rows) {
+        sortDescending(rows, limitUsed, rows.length);
+    }
+
+    private int[] sortedDescending(long[] keys) {
+        int[] rows = new int[size];
+        for (int row = 0; row < size; row++) {
+            rows[row] = row;
+        }
+        sortDescending(rows, keys, size);
+        return rows;
+    }
+
+    //stable sort of row numbers by their keys descending: radix sort, bottom-up merge sort for small arrays
+    static void sortDescending(int[] rows, long[] keys, int count) {
+        if (count >= RadixSort.MIN_SIZE) {
+            RadixSort.sortDescending(rows, keys, count);
+            return;
+        }
+
+        int[] source = rows;
+        int[] target = new int[count];
+
+        for (int width = 1; width < count; width <<= 1) {
+            for (int low = 0; low < count; low += width << 1) {
+                int middle = Math.min(low + width, count);
+                int high = Math.min(low + (width << 1), count);
+                int left = low;
+                int right = middle;
+                int out = low;
+
+                while (left < middle && right < high) {
+                    target[out++] = keys[source[right]] > keys[source[left]] ? source[right++] : source[left++];
+                }
+                while (left < middle) {
+                    target[out++] = source[left++];
+                }
+                while (right < high) {
+                    target[out++] = source[right++];
+                }
+            }
+
+            int[] swap = source;
+            source = target;
+            target = swap;
+        }
+
+        if (source != rows) {
+            System.arraycopy(source, 0, rows, 0, count);
+        }
+    }
+
+    private void grow() {
+        int capacity = orderIndex.length * 2;
+        orderIndex = Arrays.copyOf(orderIndex, capacity);
+        methodIndex = Arrays.copyOf(methodIndex, capacity);
+        discount = Arrays.copyOf(discount, capacity);
+        limitUsed = Arrays.copyOf(limitUsed, capacity);
+        promoType = Arrays.copyOf(promoType, capacity);
+    }
+
+}
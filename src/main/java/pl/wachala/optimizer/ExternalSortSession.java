@@ -0,0 +1,455 @@
+package pl.wachala.optimizer;
+
+import pl.wachala.metrics.MetricsRegistry;
+import pl.wachala.metrics.Phase;
+import pl.wachala.models.Order;
+import pl.wachala.models.PaymentMethod;
+import pl.wachala.models.PromotionType;
+import pl.wachala.util.Consts;
+import pl.wachala.util.FixedPoint;
+import pl.wachala.util.IdDictionary;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+//Greedy assignment of batches larger than the heap, returned as the per payment method summary. Discount options are
+//generated on long minor units as orders arrive and collected into runs; every full run is sorted like the in-memory
+//candidates and spilled to a temporary file. finish merges the runs into the greedy pass (on equal limits used the
+//earlier run goes first, so the merged sequence is the one of a single stable sort) and then covers the remaining
+//orders with loyalty points, reading order values back from another temporary file. Only one run, the covered orders
+//bit set, limits and per method totals are kept in memory. At most MAX_FAN_IN runs are read at once: with more of them,
+//groups of consecutive runs are first merged into longer runs, pass after pass, so open files stay bounded for any
+//input size and run size.
+//
+//Orders are told apart by their position in the batch, so orders sharing an id are assigned separately (the in-memory
+//path assigns only one of them). The summary is the one PaymentMethodSummaryGenerator.summarize makes of the
+//assignment of the in-memory path.
+public class ExternalSortSession implements Consumer<Order>, Closeable {
+
+    private static final PromotionType[] PROMOTION_TYPES = PromotionType.values();
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+    //runs merged at once, each of them keeps a file and a read buffer open
+    static final int MAX_FAN_IN = 64;
+
+    private final PaymentMethodAssigner assigner;
+    private final FixedPointEngine engine;
+    private final IdDictionary methodIds;
+    private final int runSize;
+    private final int maxFanIn;
+    private final Path spillDirectory;
+    private final int loyaltyPointsIndex;
+    private final int defaultMethodIndex;
+    //scale of PUNKTY limit, the loyalty points left keep the largest scale subtracted from it
+    private final int loyaltyPointsLimitScale;
+
+    //candidates of the current run, by order position, and values of its orders by position - firstPosition
+    private final CandidateTable run;
+    private final CandidateTable pruned = new CandidateTable();
+    private final long[] runValues;
+    private final byte[] runScales;
+    private int firstPosition;
+    private int ordersCount;
+    private long candidatesCount;
+
+    private final List<Path> runFiles = new ArrayList<>();
+    private final List<Long> runCounts = new ArrayList<>();
+    //value and scale of every order, in batch order
+    private final Path valuesFile;
+    private final DataOutputStream values;
+
+    ExternalSortSession(PaymentMethodAssigner assigner, List<PaymentMethod> paymentMethods, String defaultPaymentMethod,
+                        int runSize, Path spillDirectory) throws IOException {
+        this(assigner, paymentMethods, defaultPaymentMethod, runSize, MAX_FAN_IN, spillDirectory);
+    }
+
+    ExternalSortSession(PaymentMethodAssigner assigner, List<PaymentMethod> paymentMethods, String defaultPaymentMethod,
+                        int runSize, int maxFanIn, Path spillDirectory) throws IOException {
+        if (maxFanIn < 2) {
+            throw new IllegalArgumentException("At least two runs have to be merged at once.");
+        }
+        this.assigner = assigner;
+        this.methodIds = new IdDictionary();
+        this.engine = FixedPointEngine.create(assigner, paymentMethods, defaultPaymentMethod, new IdDictionary(), methodIds,
+                assigner.getCandidatesPerOrder());
+        if (engine == null) {
+            throw new IllegalArgumentException("Limits of payment methods can't be stored in minor units.");
+        }
+        this.runSize = runSize;
+        this.maxFanIn = maxFanIn;
+        this.spillDirectory = spillDirectory;
+        this.loyaltyPointsIndex = engine.getLoyaltyPointsIndex();
+        this.defaultMethodIndex = methodIds.indexOf(defaultPaymentMethod);
+        PaymentMethod loyaltyPoints = assigner.getMethodsMap(paymentMethods).get(Consts.LOYALTY_POINTS_PAYMENT_METHOD_ID);
+        this.loyaltyPointsLimitScale = loyaltyPoints != null ? loyaltyPoints.getLimit().scale() : 0;
+
+        this.run = new CandidateTable(runSize);
+        this.runValues = new long[runSize];
+        this.runScales = new byte[runSize];
+
+        this.valuesFile = Files.createTempFile(spillDirectory, "orders", ".values");
+        this.values = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(valuesFile), WRITE_BUFFER_SIZE));
+    }
+
+    //throws IllegalArgumentException when the order value doesn't fit into minor units
+    @Override
+    public void accept(Order order) {
+        if (ordersCount == Integer.MAX_VALUE) {
+            throw new IllegalStateException("At most " + Integer.MAX_VALUE + " orders can be assigned in one batch.");
+        }
+
+        long value;
+        try {
+            value = FixedPoint.toCents(order.getValue());
+            engine.generate(order, ordersCount, run, pruned);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Value " + order.getValue() + " of order " + order.getId() + " can't be stored in minor units.");
+        }
+        assigner.getMetrics().increment(MetricsRegistry.PRUNED_CANDIDATES, pruned.size());
+        pruned.truncate(0);
+
+        //toCents accepted the value, so its scale is between -18 and 2
+        byte scale = (byte) order.getValue().scale();
+        runValues[ordersCount - firstPosition] = value;
+        runScales[ordersCount - firstPosition] = scale;
+        try {
+            values.writeLong(value);
+            values.writeByte(scale);
+            ordersCount++;
+            if (run.size() >= runSize || ordersCount - firstPosition == runSize) {
+                spill();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public int getOrdersCount() {
+        return ordersCount;
+    }
+
+    //number of runs spilled so far
+    public int getRunsCount() {
+        return runFiles.size();
+    }
+
+    //amount spent per payment method, temporary files are deleted afterwards
+    public Map<String, BigDecimal> finish() throws IOException {
+        MetricsRegistry metrics = assigner.getMetrics();
+        try {
+            spill();
+            values.close();
+            metrics.increment(MetricsRegistry.ORDERS, ordersCount);
+            metrics.increment(MetricsRegistry.CANDIDATES, candidatesCount);
+            metrics.increment(MetricsRegistry.SPILLED_RUNS, runFiles.size());
+
+            Totals totals = new Totals(methodIds.size());
+            long[] availableLimit = Arrays.copyOf(engine.getMethodLimits(), engine.getMethodLimits().length);
+            BitSet coveredOrders = new BitSet(ordersCount);
+            int loyaltyPointsScale;
+            try (MetricsRegistry.PhaseTimer ignored = metrics.time(Phase.GREEDY)) {
+                reduceRuns();
+                loyaltyPointsScale = mergeGreedy(totals, availableLimit, coveredOrders);
+            }
+
+            if (loyaltyPointsIndex >= 0) {
+                try (MetricsRegistry.PhaseTimer ignored = metrics.time(Phase.LOYALTY_FALLBACK)) {
+                    coverRemaining(totals, availableLimit, coveredOrders, loyaltyPointsScale);
+                }
+            }
+            return totals.toSummary(methodIds);
+        } finally {
+            close();
+        }
+    }
+
+    //deletes the temporary files, finish can't be called afterwards
+    @Override
+    public void close() throws IOException {
+        values.close();
+        for (Path runFile : runFiles) {
+            Files.deleteIfExists(runFile);
+        }
+        runFiles.clear();
+        runCounts.clear();
+        Files.deleteIfExists(valuesFile);
+    }
+
+    //sorted run as records of: limit used, value after discount, order position, method, promotion type, scale of the
+    //value after discount
+    private void spill() throws IOException {
+        if (run.size() > 0) {
+            int[] sorted = run.sortedByLimitUsedDescending();
+            Path runFile = Files.createTempFile(spillDirectory, "candidates", ".run");
+            runFiles.add(runFile);
+            runCounts.add((long) sorted.length);
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(runFile), WRITE_BUFFER_SIZE))) {
+                for (int row : sorted) {
+                    int position = run.getOrderIndex(row);
+                    long value = runValues[position - firstPosition];
+                    long discount = run.getDiscount(row);
+                    //same amounts as the DiscountOption built by PaymentMethodAssigner for this candidate
+                    long valueAfterDiscount = switch (run.getPromoType(row)) {
+                        case CARD -> value - discount;
+                        case LOYALTY_POINTS_PARTIAL -> value - discount - discount;
+                        case LOYALTY_POINTS_FULL -> run.getLimitUsed(row);
+                    };
+
+                    writeRecord(out, run.getLimitUsed(row), valueAfterDiscount, position, run.getMethodIndex(row),
+                            run.getPromoType(row).ordinal(), Math.max(runScales[position - firstPosition], FixedPoint.SCALE));
+                }
+            }
+        }
+
+        candidatesCount += run.size();
+        run.truncate(0);
+        firstPosition = ordersCount;
+    }
+
+    private static void writeRecord(DataOutputStream out, long limitUsed, long valueAfterDiscount, int position, int method,
+                                    int promoType, int scale) throws IOException {
+        out.writeLong(limitUsed);
+        out.writeLong(valueAfterDiscount);
+        out.writeInt(position);
+        out.writeInt(method);
+        out.writeByte(promoType);
+        out.writeByte(scale);
+    }
+
+    //merges groups of maxFanIn consecutive runs into one run each until at most maxFanIn runs are left; consecutive
+    //runs keep the tie order of the final merge (earlier run first)
+    private void reduceRuns() throws IOException {
+        while (runFiles.size() > maxFanIn) {
+            List<Path> mergedFiles = new ArrayList<>();
+            List<Long> mergedCounts = new ArrayList<>();
+            try {
+                for (int from = 0; from < runFiles.size(); from += maxFanIn) {
+                    Path mergedFile = Files.createTempFile(spillDirectory, "candidates", ".run");
+                    mergedFiles.add(mergedFile);
+                    mergedCounts.add(mergeRuns(from, Math.min(from + maxFanIn, runFiles.size()), mergedFile));
+                }
+            } catch (IOException | RuntimeException e) {
+                for (Path mergedFile : mergedFiles) {
+                    Files.deleteIfExists(mergedFile);
+                }
+                throw e;
+            }
+
+            for (Path runFile : runFiles) {
+                Files.deleteIfExists(runFile);
+            }
+            runFiles.clear();
+            runFiles.addAll(mergedFiles);
+            runCounts.clear();
+            runCounts.addAll(mergedCounts);
+            assigner.getMetrics().increment(MetricsRegistry.MERGE_PASSES, 1);
+        }
+    }
+
+    //writes runs from..to merged into the target file, returns the number of records
+    private long mergeRuns(int from, int to, Path target) throws IOException {
+        long count = 0;
+        PriorityQueue<RunReader> heads = openRuns(from, to);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(target), WRITE_BUFFER_SIZE))) {
+            while (!heads.isEmpty()) {
+                RunReader head = heads.poll();
+                writeRecord(out, head.limitUsed, head.valueAfterDiscount, head.position, head.method, head.promoType, head.scale);
+                count++;
+                advance(heads, head);
+            }
+        } finally {
+            for (RunReader reader : heads) {
+                reader.close();
+            }
+        }
+        return count;
+    }
+
+    //readers of runs from..to positioned on their first records, the head is the next record of a stable sort of them
+    private PriorityQueue<RunReader> openRuns(int from, int to) throws IOException {
+        PriorityQueue<RunReader> heads = new PriorityQueue<>(Math.max(1, to - from), (a, b) -> {
+            if (a.limitUsed != b.limitUsed) {
+                return Long.compare(b.limitUsed, a.limitUsed);
+            }
+            return Integer.compare(a.run, b.run);
+        });
+
+        try {
+            for (int i = from; i < to; i++) {
+                RunReader reader = new RunReader(runFiles.get(i), i, runCounts.get(i));
+                if (reader.next()) {
+                    heads.add(reader);
+                } else {
+                    reader.close();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            for (RunReader reader : heads) {
+                reader.close();
+            }
+            throw e;
+        }
+        return heads;
+    }
+
+    private static void advance(PriorityQueue<RunReader> heads, RunReader head) throws IOException {
+        if (head.next()) {
+            heads.add(head);
+        } else {
+            head.close();
+        }
+    }
+
+    //greedy pass over all runs merged, returns the scale of loyalty points left
+    private int mergeGreedy(Totals totals, long[] availableLimit, BitSet coveredOrders) throws IOException {
+        int loyaltyPointsScale = loyaltyPointsLimitScale;
+        PriorityQueue<RunReader> heads = openRuns(0, runFiles.size());
+
+        try {
+            while (!heads.isEmpty()) {
+                RunReader head = heads.poll();
+                int method = head.method;
+                //we already have this order covered - no further processing needed
+                if (!coveredOrders.get(head.position) && availableLimit[method] >= head.limitUsed) {
+                    coveredOrders.set(head.position);
+                    availableLimit[method] -= head.limitUsed;
+
+                    PromotionType type = PROMOTION_TYPES[head.promoType];
+                    if (method == loyaltyPointsIndex) {
+                        loyaltyPointsScale = Math.max(loyaltyPointsScale, type == PromotionType.LOYALTY_POINTS_FULL ? head.scale : FixedPoint.SCALE);
+                    }
+                    switch (type) {
+                        case CARD -> totals.add(method, head.valueAfterDiscount, head.scale);
+                        case LOYALTY_POINTS_PARTIAL -> {
+                            totals.add(loyaltyPointsIndex, head.limitUsed, FixedPoint.SCALE);
+                            totals.add(defaultMethodIndex, head.valueAfterDiscount, head.scale);
+                        }
+                        case LOYALTY_POINTS_FULL -> totals.add(loyaltyPointsIndex, head.valueAfterDiscount, head.scale);
+                    }
+                }
+
+                advance(heads, head);
+            }
+        } finally {
+            for (RunReader reader : heads) {
+                reader.close();
+            }
+        }
+        return loyaltyPointsScale;
+    }
+
+    //orders without an option pay with loyalty points left (or default method), in batch order like getFallbackOption;
+    //summarize counts only the loyalty points of such orders
+    private void coverRemaining(Totals totals, long[] availableLimit, BitSet coveredOrders, int loyaltyPointsScale) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(valuesFile), READ_BUFFER_SIZE))) {
+            for (int position = 0; position < ordersCount; position++) {
+                long value = in.readLong();
+                int scale = in.readByte();
+                if (coveredOrders.get(position)) {
+                    continue;
+                }
+
+                long availableLoyaltyPoints = availableLimit[loyaltyPointsIndex];
+                if (availableLoyaltyPoints > 0) {
+                    //BigDecimal.min keeps the loyalty points (and their scale) when equal
+                    boolean pointsUsedUp = availableLoyaltyPoints <= value;
+                    long loyaltyPointsToUse = pointsUsedUp ? availableLoyaltyPoints : value;
+                    int usedScale = pointsUsedUp ? loyaltyPointsScale : scale;
+                    totals.add(loyaltyPointsIndex, loyaltyPointsToUse, usedScale);
+                    availableLimit[loyaltyPointsIndex] -= loyaltyPointsToUse;
+                    loyaltyPointsScale = Math.max(loyaltyPointsScale, usedScale);
+                } else {
+                    //no promotion, zero limit used of the default method
+                    totals.add(defaultMethodIndex, 0, 0);
+                }
+            }
+        }
+    }
+
+    //spilled run read back record by record
+    private static class RunReader implements Closeable {
+        private final DataInputStream in;
+        private final int run;
+        private long remaining;
+
+        private long limitUsed;
+        private long valueAfterDiscount;
+        private int position;
+        private int method;
+        private int promoType;
+        private int scale;
+
+        RunReader(Path file, int run, long count) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), READ_BUFFER_SIZE));
+            this.run = run;
+            this.remaining = count;
+        }
+
+        boolean next() throws IOException {
+            if (remaining == 0) {
+                return false;
+            }
+            remaining--;
+            limitUsed = in.readLong();
+            valueAfterDiscount = in.readLong();
+            position = in.readInt();
+            method = in.readInt();
+            promoType = in.readByte();
+            scale = in.readByte();
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    //sums in minor units per dense method id, with the scale BigDecimal addition of the amounts would have
+    private static class Totals {
+        private final long[] cents;
+        private final int[] scales;
+        private final boolean[] present;
+
+        Totals(int methodsCount) {
+            cents = new long[methodsCount];
+            scales = new int[methodsCount];
+            present = new boolean[methodsCount];
+        }
+
+        void add(int method, long amount, int scale) {
+            cents[method] = Math.addExact(cents[method], amount);
+            scales[method] = Math.max(scales[method], scale);
+            present[method] = true;
+        }
+
+        Map<String, BigDecimal> toSummary(IdDictionary methodIds) {
+            Map<String, BigDecimal> summary = new HashMap<>();
+            for (int method = 0; method < cents.length; method++) {
+                if (present[method]) {
+                    summary.put(methodIds.getId(method), FixedPoint.toBigDecimal(cents[method]).setScale(scales[method], RoundingMode.UNNECESSARY));
+                }
+            }
+            return summary;
+        }
+    }
+
+}
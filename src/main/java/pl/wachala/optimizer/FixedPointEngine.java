@@ -0,0 +1,425 @@
+package pl.wachala.optimizer;
+
+import pl.wachala.metrics.MetricsRegistry;
+import pl.wachala.metrics.Phase;
+import pl.wachala.models.DiscountOption;
+import pl.wachala.models.Order;
+import pl.wachala.models.PaymentMethod;
+import pl.wachala.models.PromotionType;
+import pl.wachala.util.Consts;
+import pl.wachala.util.FixedPoint;
+import pl.wachala.util.IdDictionary;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+//Greedy assignment computed on long minor units. Discount options are kept in a CandidateTable, so generating, sorting
+//and the greedy pass do not allocate per option. Only the winning options are turned into DiscountOption objects,
+//using the BigDecimal calculations of PaymentMethodAssigner, which keeps the result identical to the BigDecimal path.
+class FixedPointEngine {
+
+    private static final long PARTIAL_LOYALTY_POINTS_PERCENTAGE = Consts.PARTIAL_LOYALTY_POINTS_DISCOUNT_PERCENTAGE.longValueExact();
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final PaymentMethodAssigner assigner;
+    private final String defaultPaymentMethod;
+
+    //payment methods by dense id, later definitions of the same id win like in HashMap based lookups
+    private final IdDictionary methodIds;
+    private final PaymentMethod[] methods;
+    private final int[] methodDiscounts;
+    private final long[] methodLimits;
+    private final int loyaltyPointsIndex;
+
+    //orders by position in the batch, orders sharing the same id share the dense id
+    private final IdDictionary orderIds;
+    private int[] orderIndex = new int[INITIAL_CAPACITY];
+    private BigDecimal[] orderValues = new BigDecimal[INITIAL_CAPACITY];
+    private int ordersCount;
+
+    private final CandidateTable candidates = new CandidateTable();
+
+    //card candidates kept per order, 0 keeps all of them; the pruned ones are only used by recordPrunedNeeded
+    private final int candidatesPerOrder;
+    private final CandidateTable pruned = new CandidateTable();
+
+    private FixedPointEngine(PaymentMethodAssigner assigner, String defaultPaymentMethod, IdDictionary orderIds, IdDictionary methodIds,
+                             PaymentMethod[] methods, long[] methodLimits, int candidatesPerOrder) {
+        this.assigner = assigner;
+        this.defaultPaymentMethod = defaultPaymentMethod;
+        this.orderIds = orderIds;
+        this.methodIds = methodIds;
+        this.methods = methods;
+        this.methodLimits = methodLimits;
+        this.candidatesPerOrder = candidatesPerOrder;
+        this.methodDiscounts = new int[methods.length];
+        for (int i = 0; i < methods.length; i++) {
+            methodDiscounts[i] = methods[i] != null ? methods[i].getDiscount() : 0;
+        }
+
+        int loyaltyPoints = methodIds.indexOf(Consts.LOYALTY_POINTS_PAYMENT_METHOD_ID);
+        this.loyaltyPointsIndex = loyaltyPoints >= 0 && methods[loyaltyPoints] != null ? loyaltyPoints : -1;
+    }
+
+    //engine keeping all candidates, returns null when some limit can't be represented in minor units
+    static FixedPointEngine create(PaymentMethodAssigner assigner, List<PaymentMethod> paymentMethods, String defaultPaymentMethod,
+                                   IdDictionary orderIds, IdDictionary methodIds) {
+        return create(assigner, paymentMethods, defaultPaymentMethod, orderIds, methodIds, 0);
+    }
+
+    //keeps at most candidatesPerOrder card candidates per order (0 keeps all), pruning is meant for the greedy pass only:
+    //strategies searching beyond greedy would otherwise search, and bound, a smaller problem than the real one
+    static FixedPointEngine create(PaymentMethodAssigner assigner, List<PaymentMethod> paymentMethods, String defaultPaymentMethod,
+                                   IdDictionary orderIds, IdDictionary methodIds, int candidatesPerOrder) {
+        int[] indexes = new int[paymentMethods.size()];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = methodIds.intern(paymentMethods.get(i).getId());
+        }
+
+        //dictionary may know ids which are not in this list of methods, they stay null and are ignored as promotions
+        PaymentMethod[] methods = new PaymentMethod[methodIds.size()];
+        long[] limits = new long[methodIds.size()];
+        try {
+            for (int i = 0; i < indexes.length; i++) {
+                PaymentMethod method = paymentMethods.get(i);
+                methods[indexes[i]] = method;
+                limits[indexes[i]] = FixedPoint.toCents(method.getLimit());
+            }
+        } catch (ArithmeticException e) {
+            return null;
+        }
+
+        return new FixedPointEngine(assigner, defaultPaymentMethod, orderIds, methodIds, methods, limits, candidatesPerOrder);
+    }
+
+    //generates options for all orders, with parallelism > 1 chunks of orders are processed concurrently and appended in
+    //order, so the candidates don't depend on the number of threads; returns false (leaving engine unchanged) if some
+    //value doesn't fit into minor units
+    boolean addAll(List<Order> orders, int parallelism) {
+        int firstCandidate = candidates.size();
+        int firstPruned = pruned.size();
+        boolean added;
+        try (MetricsRegistry.PhaseTimer ignored = assigner.getMetrics().time(Phase.CANDIDATE_GENERATION)) {
+            added = generateAll(orders, parallelism);
+        }
+        if (added) {
+            assigner.getMetrics().increment(MetricsRegistry.CANDIDATES, candidates.size() - firstCandidate);
+            assigner.getMetrics().increment(MetricsRegistry.PRUNED_CANDIDATES, pruned.size() - firstPruned);
+        }
+        return added;
+    }
+
+    private boolean generateAll(List<Order> orders, int parallelism) {
+        if (parallelism <= 1) {
+            int firstCandidate = candidates.size();
+            int firstPruned = pruned.size();
+            int firstPosition = ordersCount;
+            for (Order order : orders) {
+                if (!add(order)) {
+                    candidates.truncate(firstCandidate);
+                    pruned.truncate(firstPruned);
+                    ordersCount = firstPosition;
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        List<Order> randomAccessOrders = orders instanceof RandomAccess ? orders : new ArrayList<>(orders);
+        int firstPosition = ordersCount;
+        List<CandidateTable[]> chunks;
+        try {
+            chunks = ParallelChunks.map(randomAccessOrders.size(), parallelism, (from, to) -> {
+                CandidateTable chunk = new CandidateTable((to - from) * 3);
+                CandidateTable prunedChunk = new CandidateTable();
+                for (int i = from; i < to; i++) {
+                    generate(randomAccessOrders.get(i), firstPosition + i, chunk, prunedChunk);
+                }
+                return new CandidateTable[]{chunk, prunedChunk};
+            });
+        } catch (ArithmeticException e) {
+            return false;
+        }
+
+        for (CandidateTable[] chunk : chunks) {
+            candidates.append(chunk[0]);
+            pruned.append(chunk[1]);
+        }
+        for (Order order : randomAccessOrders) {
+            addOrder(order);
+        }
+        return true;
+    }
+
+    //generates discount options for the order, returns false (leaving engine unchanged) if its value doesn't fit into minor units
+    boolean add(Order order) {
+        int firstCandidate = candidates.size();
+        int firstPruned = pruned.size();
+
+        try {
+            generate(order, ordersCount, candidates, pruned);
+        } catch (ArithmeticException e) {
+            candidates.truncate(firstCandidate);
+            pruned.truncate(firstPruned);
+            return false;
+        }
+
+        addOrder(order);
+        return true;
+    }
+
+    //throws ArithmeticException when the order value doesn't fit into minor units, only reads engine state
+    void generate(Order order, int position, CandidateTable table, CandidateTable prunedTable) {
+        long value = FixedPoint.toCents(order.getValue());
+
+        //CARD promotions calculated first
+        int firstCard = table.size();
+        for (String promo : order.getPromotions()) {
+            int method = methodIds.indexOf(promo);
+            if (method >= 0 && method < methods.length && methods[method] != null) {
+                long discount = FixedPoint.percentage(value, methodDiscounts[method]);
+                table.add(position, method, PromotionType.CARD, discount, discount);
+            }
+        }
+        if (candidatesPerOrder > 0) {
+            table.keepLargestDiscounts(firstCard, candidatesPerOrder, prunedTable);
+        }
+
+        if (loyaltyPointsIndex >= 0) {
+            // discount based on loyalty points >= 10%
+            long tenPercentOfOrderValue = FixedPoint.percentage(value, PARTIAL_LOYALTY_POINTS_PERCENTAGE);
+            table.add(position, loyaltyPointsIndex, PromotionType.LOYALTY_POINTS_PARTIAL, tenPercentOfOrderValue, tenPercentOfOrderValue);
+
+            // discount based on loyalty points == 100%, whole value after discount is paid with points
+            long fullyPaidDiscount = FixedPoint.percentage(value, methodDiscounts[loyaltyPointsIndex]);
+            table.add(position, loyaltyPointsIndex, PromotionType.LOYALTY_POINTS_FULL, fullyPaidDiscount, Math.subtractExact(value, fullyPaidDiscount));
+        }
+    }
+
+    Map<String, DiscountOption> assign() {
+        int[] winners = selectGreedy();
+        recordPrunedNeeded(winners, methodLimits);
+        return buildAssignment(winners);
+    }
+
+    //candidate rows picked by the greedy pass, in order of acceptance
+    int[] selectGreedy() {
+        return selectGreedy(sortedCandidates(), methodLimits);
+    }
+
+    //same as selectGreedy without recording the sort and greedy phases, for callers already timing them
+    int[] selectGreedyUntimed() {
+        return greedyPass(candidates.sortedByLimitUsedDescending(), methodLimits);
+    }
+
+    //rows of the candidate table ordered for the greedy pass
+    int[] sortedCandidates() {
+        try (MetricsRegistry.PhaseTimer ignored = assigner.getMetrics().time(Phase.SORT)) {
+            return candidates.sortedByLimitUsedDescending();
+        }
+    }
+
+    //greedy pass over already sorted rows with the given limits (by dense method id), only reads engine state, so
+    //passes with different limits can run concurrently
+    int[] selectGreedy(int[] sorted, long[] limits) {
+        try (MetricsRegistry.PhaseTimer ignored = assigner.getMetrics().time(Phase.GREEDY)) {
+            return greedyPass(sorted, limits);
+        }
+    }
+
+    private int[] greedyPass(int[] sorted, long[] limits) {
+        long[] availableLimit = Arrays.copyOf(limits, limits.length);
+        BitSet coveredOrders = new BitSet(orderIds.size());
+        int[] winners = new int[Math.min(orderIds.size(), ordersCount)];
+        int winnersCount = 0;
+
+        for (int row : sorted) {
+            int order = orderIndex[candidates.getOrderIndex(row)];
+            //we already have this order covered - no further processing needed
+            if (coveredOrders.get(order)) {
+                continue;
+            }
+
+            int method = candidates.getMethodIndex(row);
+            long limitUsed = candidates.getLimitUsed(row);
+            if (availableLimit[method] >= limitUsed) {
+                coveredOrders.set(order);
+                availableLimit[method] -= limitUsed;
+                winners[winnersCount++] = row;
+            }
+        }
+
+        return Arrays.copyOf(winners, winnersCount);
+    }
+
+    //counts orders which the greedy pass with the given limits would have settled differently if their pruned candidates
+    //were kept: a pruned card still fits into what is left of its method's limit after the pass (so it would have been
+    //accepted when reached) and the order got no option with at least the same limit used before it
+    void recordPrunedNeeded(int[] winners, long[] limits) {
+        if (pruned.size() == 0) {
+            return;
+        }
+
+        long[] availableLimit = Arrays.copyOf(limits, limits.length);
+        long[] chosenLimitUsed = new long[orderIds.size()];
+        Arrays.fill(chosenLimitUsed, -1);
+        for (int row : winners) {
+            availableLimit[candidates.getMethodIndex(row)] -= candidates.getLimitUsed(row);
+            chosenLimitUsed[orderIndex[candidates.getOrderIndex(row)]] = candidates.getLimitUsed(row);
+        }
+
+        BitSet needed = new BitSet(orderIds.size());
+        for (int row = 0; row < pruned.size(); row++) {
+            int order = orderIndex[pruned.getOrderIndex(row)];
+            long limitUsed = pruned.getLimitUsed(row);
+            if (availableLimit[pruned.getMethodIndex(row)] >= limitUsed && chosenLimitUsed[order] < limitUsed) {
+                needed.set(order);
+            }
+        }
+        assigner.getMetrics().increment(MetricsRegistry.PRUNED_CANDIDATES_NEEDED, needed.cardinality());
+    }
+
+    //turns chosen candidate rows (at most one per order id) into DiscountOptions, orders without a chosen row are
+    //covered with loyalty points below 10% or default method, same as in BigDecimal path
+    Map<String, DiscountOption> buildAssignment(int[] winners) {
+        return buildAssignment(winners, loyaltyPointsIndex >= 0 ? methods[loyaltyPointsIndex].getLimit() : null);
+    }
+
+    //same as above with a different limit of loyalty points, only reads engine state
+    Map<String, DiscountOption> buildAssignment(int[] winners, BigDecimal loyaltyPointsLimit) {
+        BitSet coveredOrders = new BitSet(orderIds.size());
+        Map<String, DiscountOption> assignment = new HashMap<>();
+        BigDecimal availableLoyaltyPoints = loyaltyPointsLimit;
+        for (int row : winners) {
+            DiscountOption winner = materialize(row);
+            assignment.put(winner.getOrderId(), winner);
+            coveredOrders.set(orderIndex[candidates.getOrderIndex(row)]);
+            if (candidates.getMethodIndex(row) == loyaltyPointsIndex) {
+                availableLoyaltyPoints = availableLoyaltyPoints.subtract(winner.getPromoLimitUsed());
+            }
+        }
+
+        if (loyaltyPointsIndex >= 0) {
+            try (MetricsRegistry.PhaseTimer ignored = assigner.getMetrics().time(Phase.LOYALTY_FALLBACK)) {
+                for (int position = 0; position < ordersCount; position++) {
+                    int order = orderIndex[position];
+                    if (coveredOrders.get(order)) {
+                        continue;
+                    }
+
+                    String orderId = orderIds.getId(order);
+                    DiscountOption fallbackOption = assigner.getFallbackOption(orderId, orderValues[position], availableLoyaltyPoints, defaultPaymentMethod);
+                    availableLoyaltyPoints = availableLoyaltyPoints.subtract(fallbackOption.getPromoLimitUsed());
+                    assignment.put(orderId, fallbackOption);
+                    coveredOrders.set(order);
+                }
+            }
+        }
+
+        return assignment;
+    }
+
+    CandidateTable getCandidates() {
+        return candidates;
+    }
+
+    //card candidates dropped by pruning, see optimizer.candidates-per-order
+    CandidateTable getPrunedCandidates() {
+        return pruned;
+    }
+
+    //dense order id of the order at given position
+    int getOrderIndex(int position) {
+        return orderIndex[position];
+    }
+
+    int getOrderIdsCount() {
+        return orderIds.size();
+    }
+
+    long[] getMethodLimits() {
+        return methodLimits;
+    }
+
+    //limits of the given methods by dense method id, methods missing in the list get no limit; returns null when some
+    //limit can't be represented in minor units
+    long[] limitsOf(List<PaymentMethod> paymentMethods) {
+        long[] limits = new long[methodLimits.length];
+        try {
+            for (PaymentMethod method : paymentMethods) {
+                int index = methodIds.indexOf(method.getId());
+                if (index >= 0 && index < limits.length) {
+                    limits[index] = FixedPoint.toCents(method.getLimit());
+                }
+            }
+        } catch (ArithmeticException e) {
+            return null;
+        }
+        return limits;
+    }
+
+    //dense id of PUNKTY method, -1 when it is not available
+    int getLoyaltyPointsIndex() {
+        return loyaltyPointsIndex;
+    }
+
+    //orders accepted so far, without promotions (only id and value are kept)
+    List<Order> getOrders() {
+        List<Order> orders = new ArrayList<>(ordersCount);
+        for (int position = 0; position < ordersCount; position++) {
+            orders.add(slimOrder(position));
+        }
+        return orders;
+    }
+
+    //all discount options generated so far as BigDecimal objects, in generation order
+    List<DiscountOption> getPossibleDiscounts() {
+        List<DiscountOption> possibleDiscounts = new ArrayList<>(candidates.size());
+        for (int row = 0; row < candidates.size(); row++) {
+            possibleDiscounts.add(materialize(row));
+        }
+        return possibleDiscounts;
+    }
+
+    int getOrdersCount() {
+        return ordersCount;
+    }
+
+    private DiscountOption materialize(int row) {
+        Order order = slimOrder(candidates.getOrderIndex(row));
+        PaymentMethod method = methods[candidates.getMethodIndex(row)];
+
+        return switch (candidates.getPromoType(row)) {
+            case CARD -> assigner.calculateCardPromo(order, method);
+            case LOYALTY_POINTS_PARTIAL -> assigner.calculatePartialLoyaltyPointsPromo(order, defaultPaymentMethod);
+            case LOYALTY_POINTS_FULL -> assigner.calculateFullLoyaltyPointsPromo(order, method);
+        };
+    }
+
+    private Order slimOrder(int position) {
+        return Order.builder()
+                .id(orderIds.getId(orderIndex[position]))
+                .value(orderValues[position])
+                .promotions(List.of())
+                .build();
+    }
+
+    private void addOrder(Order order) {
+        if (ordersCount == orderIndex.length) {
+            int capacity = ordersCount * 2;
+            orderIndex = Arrays.copyOf(orderIndex, capacity);
+            orderValues = Arrays.copyOf(orderValues, capacity);
+        }
+
+        orderIndex[ordersCount] = orderIds.intern(order.getId());
+        orderValues[ordersCount] = order.getValue();
+        ordersCount++;
+    }
+
+}
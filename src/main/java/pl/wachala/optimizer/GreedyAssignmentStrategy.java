@@ -0,0 +1,36 @@
+package pl.wachala.optimizer;
+
+import pl.wachala.models.DiscountOption;
+import pl.wachala.models.Order;
+import pl.wachala.models.PaymentMethod;
+import pl.wachala.util.IdDictionary;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+//most limit-consuming discounts first, see PaymentMethodAssigner.assignGreedy
+public class GreedyAssignmentStrategy implements AssignmentStrategy {
+
+    private final PaymentMethodAssigner assigner;
+
+    public GreedyAssignmentStrategy(PaymentMethodAssigner assigner) {
+        this.assigner = assigner;
+    }
+
+    @Override
+    public AssignmentResult assign(List<Order> orders, List<PaymentMethod> paymentMethods, IdDictionary orderIds, IdDictionary methodIds) {
+        long start = System.nanoTime();
+        Map<String, DiscountOption> assignment = assigner.assignGreedy(orders, paymentMethods, orderIds, methodIds);
+        BigDecimal totalDiscount = AssignmentResult.totalDiscount(assignment);
+
+        return AssignmentResult.builder()
+                .strategy(AssignmentStrategyType.GREEDY)
+                .assignment(assignment)
+                .totalDiscount(totalDiscount)
+                .greedyDiscount(totalDiscount)
+                .elapsedMillis((System.nanoTime() - start) / 1_000_000)
+                .build();
+    }
+
+}
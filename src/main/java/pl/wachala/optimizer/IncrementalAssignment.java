@@ -0,0 +1,414 @@
+package pl.wachala.optimizer;
+
+import pl.wachala.models.DiscountOption;
+import pl.wachala.models.Order;
+import pl.wachala.models.PaymentMethod;
+import pl.wachala.util.Consts;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+//Greedy assignment kept up to date while orders come and go and limits change. Discount options stay sorted per payment
+//method (same order as the global sort of the greedy pass) in a tree summing limit used by accepted options, together
+//with the greedy decision of every option.
+//A change re-evaluates only options whose inputs changed: options after a changed decision on the same method (until
+//the remaining limit is the same as before the change) and later options of orders whose coverage changed.
+//The result is the same as PaymentMethodAssigner.assign with GREEDY strategy for the current orders (in order of
+//addition) and payment methods. Order ids have to be unique.
+public class IncrementalAssignment {
+
+    //promo limit used descending, equal limits in order of generation like the stable sort of the greedy pass
+    private static final Comparator<Candidate> GREEDY_ORDER = (a, b) -> {
+        int byLimitUsed = b.option.getPromoLimitUsed().compareTo(a.option.getPromoLimitUsed());
+        return byLimitUsed != 0 ? byLimitUsed : Long.compare(a.sequence, b.sequence);
+    };
+
+    private final PaymentMethodAssigner assigner;
+    private final List<PaymentMethod> paymentMethods;
+    private final PaymentMethodCatalog catalog;
+    private final String defaultPaymentMethod;
+    private final Map<String, MethodState> methods = new HashMap<>();
+    private final LinkedHashMap<String, OrderState> orders = new LinkedHashMap<>();
+    private long nextSequence;
+    private long lastReevaluated;
+
+    IncrementalAssignment(PaymentMethodAssigner assigner, List<PaymentMethod> paymentMethods) {
+        this.assigner = assigner;
+        this.paymentMethods = new ArrayList<>(paymentMethods);
+        this.defaultPaymentMethod = assigner.getDefaultPaymentMethod(this.paymentMethods);
+        this.catalog = new PaymentMethodCatalog(assigner, assigner.getMethodsMap(this.paymentMethods), defaultPaymentMethod);
+        for (PaymentMethod method : this.paymentMethods) {
+            methods.put(method.getId(), new MethodState(method.getLimit()));
+        }
+    }
+
+    public void addOrder(Order order) {
+        addOrders(List.of(order));
+    }
+
+    //adding many orders at once settles them in a single pass
+    public void addOrders(Collection<Order> newOrders) {
+        boolean initialLoad = orders.isEmpty();
+        List<Candidate> added = new ArrayList<>();
+        for (Order order : newOrders) {
+            if (orders.containsKey(order.getId())) {
+                throw new IllegalArgumentException("Order " + order.getId() + " is already present.");
+            }
+
+            OrderState state = new OrderState(order);
+            if (order.getPromotions() == null) {
+                order.setPromotions(new ArrayList<>());
+            }
+            for (DiscountOption option : catalog.discountOptions(order)) {
+                Candidate candidate = new Candidate(option, state, methods.get(option.getPromoMethodId()), nextSequence++);
+                state.candidates.add(candidate);
+                added.add(candidate);
+            }
+            orders.put(order.getId(), state);
+        }
+
+        if (initialLoad) {
+            //nothing to update yet - plain greedy pass over sorted options
+            added.sort(GREEDY_ORDER);
+            Map<MethodState, BigDecimal> availableLimit = new HashMap<>();
+            for (Candidate candidate : added) {
+                BigDecimal limitLeft = availableLimit.computeIfAbsent(candidate.method, method -> method.limit);
+                if (candidate.order.winner == null && limitLeft.compareTo(candidate.limitUsed()) >= 0) {
+                    candidate.accepted = true;
+                    candidate.order.winner = candidate;
+                    availableLimit.put(candidate.method, limitLeft.subtract(candidate.limitUsed()));
+                }
+                candidate.method.candidates.add(candidate);
+            }
+            lastReevaluated = added.size();
+            return;
+        }
+
+        TreeSet<Candidate> dirty = new TreeSet<>(GREEDY_ORDER);
+        for (Candidate candidate : added) {
+            candidate.method.candidates.add(candidate);
+            dirty.add(candidate);
+        }
+        settle(dirty, Map.of());
+    }
+
+    //returns false when there is no such order
+    public boolean removeOrder(String orderId) {
+        OrderState state = orders.remove(orderId);
+        if (state == null) {
+            return false;
+        }
+
+        TreeSet<Candidate> dirty = new TreeSet<>(GREEDY_ORDER);
+        Map<MethodState, Shift> freed = new HashMap<>();
+        for (Candidate candidate : state.candidates) {
+            MethodState method = candidate.method;
+            if (candidate.accepted) {
+                //options after the removed one see more limit than before
+                freed.put(method, new Shift(candidate, candidate.limitUsed().negate()));
+                Candidate next = method.candidates.higher(candidate);
+                if (next != null) {
+                    dirty.add(next);
+                }
+            }
+            method.candidates.remove(candidate);
+        }
+        settle(dirty, freed);
+        return true;
+    }
+
+    public void updateLimit(String methodId, BigDecimal limit) {
+        MethodState method = methods.get(methodId);
+        if (method == null) {
+            throw new IllegalArgumentException("Unknown payment method " + methodId + ".");
+        }
+
+        for (ListIterator<PaymentMethod> iterator = paymentMethods.listIterator(); iterator.hasNext(); ) {
+            PaymentMethod paymentMethod = iterator.next();
+            if (paymentMethod.getId().equals(methodId)) {
+                PaymentMethod updated = new PaymentMethod(methodId, paymentMethod.getDiscount(), limit);
+                iterator.set(updated);
+            }
+        }
+
+        BigDecimal previousLimit = method.limit;
+        method.limit = limit;
+        TreeSet<Candidate> dirty = new TreeSet<>(GREEDY_ORDER);
+        if (!method.candidates.isEmpty()) {
+            dirty.add(method.candidates.first());
+        }
+        settle(dirty, Map.of(method, new Shift(null, previousLimit.subtract(limit))));
+    }
+
+    //orders with promotion keep their options, the rest is paid with remaining loyalty points or default method
+    public Map<String, DiscountOption> getAssignment() {
+        Map<String, DiscountOption> assignment = new HashMap<>();
+        for (OrderState order : orders.values()) {
+            if (order.winner != null) {
+                assignment.put(order.order.getId(), order.winner.option);
+            }
+        }
+
+        MethodState loyaltyPoints = methods.get(Consts.LOYALTY_POINTS_PAYMENT_METHOD_ID);
+        if (loyaltyPoints != null) {
+            BigDecimal availableLoyaltyPoints = loyaltyPoints.limit.subtract(loyaltyPoints.candidates.getUsed());
+            for (OrderState order : orders.values()) {
+                if (order.winner == null) {
+                    DiscountOption fallbackOption = assigner.getFallbackOption(order.order.getId(), order.order.getValue(), availableLoyaltyPoints, defaultPaymentMethod);
+                    availableLoyaltyPoints = availableLoyaltyPoints.subtract(fallbackOption.getPromoLimitUsed());
+                    assignment.put(order.order.getId(), fallbackOption);
+                }
+            }
+        }
+
+        return assignment;
+    }
+
+    public List<PaymentMethod> getPaymentMethods() {
+        return Collections.unmodifiableList(paymentMethods);
+    }
+
+    public int getOrdersCount() {
+        return orders.size();
+    }
+
+    //number of discount options re-evaluated by the last change
+    public long getLastReevaluated() {
+        return lastReevaluated;
+    }
+
+    //Re-runs the greedy rule for dirty options in global order. Per method it tracks by how much the remaining limit
+    //differs from the state before the change (shifts give the difference caused by the change itself); while it isn't
+    //zero the next option of the method is re-evaluated as well.
+    private void settle(TreeSet<Candidate> dirty, Map<MethodState, Shift> shifts) {
+        Map<MethodState, Shift> pendingShifts = new HashMap<>(shifts);
+        Map<MethodState, BigDecimal> divergence = new HashMap<>();
+        lastReevaluated = 0;
+
+        Candidate candidate;
+        while ((candidate = dirty.pollFirst()) != null) {
+            lastReevaluated++;
+            MethodState method = candidate.method;
+            BigDecimal limitUsed = candidate.limitUsed();
+            BigDecimal remaining = method.limit.subtract(method.candidates.usedBefore(candidate));
+            Shift shift = pendingShifts.get(method);
+            if (shift != null && (shift.after == null || GREEDY_ORDER.compare(candidate, shift.after) > 0)) {
+                pendingShifts.remove(method);
+                divergence.merge(method, shift.amount, BigDecimal::add);
+            }
+
+            OrderState order = candidate.order;
+            boolean covered = order.winner != null && order.winner != candidate && GREEDY_ORDER.compare(order.winner, candidate) < 0;
+            boolean accepted = !covered && remaining.compareTo(limitUsed) >= 0;
+
+            if (accepted != candidate.accepted) {
+                candidate.accepted = accepted;
+                method.candidates.refresh(candidate);
+                divergence.merge(method, accepted ? limitUsed : limitUsed.negate(), BigDecimal::add);
+                if (accepted) {
+                    order.winner = candidate;
+                } else if (order.winner == candidate) {
+                    order.winner = null;
+                }
+
+                //later options of the order are now covered or uncovered
+                for (Candidate other : order.candidates) {
+                    if (GREEDY_ORDER.compare(other, candidate) > 0) {
+                        dirty.add(other);
+                    }
+                }
+            }
+
+            if (divergence.getOrDefault(method, BigDecimal.ZERO).signum() != 0) {
+                Candidate next = method.candidates.higher(candidate);
+                if (next != null) {
+                    dirty.add(next);
+                }
+            }
+        }
+    }
+
+    private static class Candidate {
+        private final DiscountOption option;
+        private final OrderState order;
+        private final MethodState method;
+        private final long sequence;
+        private boolean accepted;
+
+        //treap node of CandidateTree
+        private final long priority;
+        private Candidate left;
+        private Candidate right;
+        private BigDecimal subtreeUsed = BigDecimal.ZERO;
+
+        private Candidate(DiscountOption option, OrderState order, MethodState method, long sequence) {
+            this.option = option;
+            this.order = order;
+            this.method = method;
+            this.sequence = sequence;
+            this.priority = new SplittableRandom(sequence).nextLong();
+        }
+
+        private BigDecimal limitUsed() {
+            return option.getPromoLimitUsed();
+        }
+    }
+
+    private static class OrderState {
+        private final Order order;
+        private final List<Candidate> candidates = new ArrayList<>();
+        //accepted option, null when the order has no promotion
+        private Candidate winner;
+
+        private OrderState(Order order) {
+            this.order = order;
+        }
+    }
+
+    private static class MethodState {
+        private BigDecimal limit;
+        private final CandidateTree candidates = new CandidateTree();
+
+        private MethodState(BigDecimal limit) {
+            this.limit = limit;
+        }
+    }
+
+    //difference in remaining limit (before minus after the change) for options after the given one, null means all options
+    private record Shift(Candidate after, BigDecimal amount) {
+    }
+
+    //Treap of candidates in greedy order, every node keeps limit used by accepted candidates of its subtree, so the
+    //limit used before any candidate is known in O(log n).
+    private static class CandidateTree {
+        private Candidate root;
+
+        private boolean isEmpty() {
+            return root == null;
+        }
+
+        private BigDecimal getUsed() {
+            return used(root);
+        }
+
+        private void add(Candidate candidate) {
+            update(candidate);
+            Candidate[] parts = split(root, candidate, false);
+            root = merge(merge(parts[0], candidate), parts[1]);
+        }
+
+        private void remove(Candidate candidate) {
+            Candidate[] parts = split(root, candidate, false);
+            Candidate[] rest = split(parts[1], candidate, true);
+            root = merge(parts[0], rest[1]);
+        }
+
+        private Candidate first() {
+            Candidate node = root;
+            while (node != null && node.left != null) {
+                node = node.left;
+            }
+            return node;
+        }
+
+        private Candidate higher(Candidate candidate) {
+            Candidate node = root;
+            Candidate higher = null;
+            while (node != null) {
+                if (GREEDY_ORDER.compare(node, candidate) > 0) {
+                    higher = node;
+                    node = node.left;
+                } else {
+                    node = node.right;
+                }
+            }
+            return higher;
+        }
+
+        private BigDecimal usedBefore(Candidate candidate) {
+            BigDecimal usedBefore = BigDecimal.ZERO;
+            Candidate node = root;
+            while (node != null) {
+                int comparison = GREEDY_ORDER.compare(candidate, node);
+                if (comparison <= 0) {
+                    if (comparison == 0) {
+                        return usedBefore.add(used(node.left));
+                    }
+                    node = node.left;
+                } else {
+                    usedBefore = usedBefore.add(used(node.left)).add(own(node));
+                    node = node.right;
+                }
+            }
+            return usedBefore;
+        }
+
+        //recomputes sums on the path to the candidate after its decision changed
+        private void refresh(Candidate candidate) {
+            List<Candidate> path = new ArrayList<>();
+            Candidate node = root;
+            while (node != null) {
+                path.add(node);
+                int comparison = GREEDY_ORDER.compare(candidate, node);
+                if (comparison == 0) {
+                    break;
+                }
+                node = comparison < 0 ? node.left : node.right;
+            }
+            for (int i = path.size() - 1; i >= 0; i--) {
+                update(path.get(i));
+            }
+        }
+
+        //[nodes before key, the rest]; with inclusive the key itself goes to the first part
+        private static Candidate[] split(Candidate node, Candidate key, boolean inclusive) {
+            if (node == null) {
+                return new Candidate[]{null, null};
+            }
+            int comparison = GREEDY_ORDER.compare(node, key);
+            if (comparison < 0 || inclusive && comparison == 0) {
+                Candidate[] parts = split(node.right, key, inclusive);
+                node.right = parts[0];
+                update(node);
+                parts[0] = node;
+                return parts;
+            }
+            Candidate[] parts = split(node.left, key, inclusive);
+            node.left = parts[1];
+            update(node);
+            parts[1] = node;
+            return parts;
+        }
+
+        //all nodes of a are before nodes of b
+        private static Candidate merge(Candidate a, Candidate b) {
+            if (a == null) {
+                return b;
+            }
+            if (b == null) {
+                return a;
+            }
+            if (a.priority > b.priority) {
+                a.right = merge(a.right, b);
+                update(a);
+                return a;
+            }
+            b.left = merge(a, b.left);
+            update(b);
+            return b;
+        }
+
+        private static void update(Candidate node) {
+            node.subtreeUsed = used(node.left).add(own(node)).add(used(node.right));
+        }
+
+        private static BigDecimal used(Candidate node) {
+            return node != null ? node.subtreeUsed : BigDecimal.ZERO;
+        }
+
+        private static BigDecimal own(Candidate node) {
+            return node.accepted ? node.limitUsed() : BigDecimal.ZERO;
+        }
+    }
+
+}
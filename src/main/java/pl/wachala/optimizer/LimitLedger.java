@@ -0,0 +1,187 @@
+package pl.wachala.optimizer;
+
+import pl.wachala.models.DiscountOption;
+import pl.wachala.models.PaymentMethod;
+import pl.wachala.util.FixedPoint;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+//Limits of payment methods shared by concurrent workers: the available amount of every method is an atomic long of
+//grosze, reserved and released with compare-and-set loops, without locks. Counters of different methods live in the
+//same AtomicLongArray one cache line pair apart, so threads reserving different methods don't invalidate each other's
+//line. Per method the ledger counts reservations, rejections (not enough limit left), releases and CAS retries, the
+//last one showing how contended the method is.
+public class LimitLedger {
+
+    //128 bytes between counters, adjacent line prefetching pulls cache lines in pairs
+    private static final int STRIDE = 16;
+
+    private final Map<String, Integer> indexes = new HashMap<>();
+    private final String[] ids;
+    private final long[] limits;
+    private final AtomicLongArray available;
+    private final Contention[] contention;
+
+    //throws IllegalArgumentException when a limit has more than two decimal places
+    public LimitLedger(List<PaymentMethod> paymentMethods) {
+        this.ids = new String[paymentMethods.size()];
+        this.limits = new long[paymentMethods.size()];
+        this.available = new AtomicLongArray(paymentMethods.size() * STRIDE);
+        this.contention = new Contention[paymentMethods.size()];
+        for (int i = 0; i < paymentMethods.size(); i++) {
+            PaymentMethod method = paymentMethods.get(i);
+            ids[i] = method.getId();
+            limits[i] = toCents(method.getLimit(), "Limit of payment method " + method.getId());
+            available.set(i * STRIDE, limits[i]);
+            contention[i] = new Contention();
+            indexes.put(method.getId(), i);
+        }
+    }
+
+    //false, with nothing reserved, when less than the amount is left
+    public boolean tryReserve(String methodId, long cents) {
+        int method = index(methodId);
+        if (cents < 0) {
+            throw new IllegalArgumentException("Can't reserve a negative amount of " + methodId + ".");
+        }
+
+        int slot = method * STRIDE;
+        long current = available.get(slot);
+        while (true) {
+            if (current < cents) {
+                contention[method].rejections.increment();
+                return false;
+            }
+            long witnessed = available.compareAndExchange(slot, current, current - cents);
+            if (witnessed == current) {
+                contention[method].reservations.increment();
+                return true;
+            }
+            contention[method].retries.increment();
+            current = witnessed;
+        }
+    }
+
+    //returns a reserved amount, throws IllegalStateException when more would be available than the limit
+    public void release(String methodId, long cents) {
+        int method = index(methodId);
+        if (cents < 0) {
+            throw new IllegalArgumentException("Can't release a negative amount of " + methodId + ".");
+        }
+
+        int slot = method * STRIDE;
+        long current = available.get(slot);
+        while (true) {
+            if (cents > limits[method] - current) {
+                throw new IllegalStateException("Releasing " + FixedPoint.toBigDecimal(cents) + " of " + methodId + " exceeds its limit.");
+            }
+            long witnessed = available.compareAndExchange(slot, current, current + cents);
+            if (witnessed == current) {
+                contention[method].releases.increment();
+                return;
+            }
+            contention[method].retries.increment();
+            current = witnessed;
+        }
+    }
+
+    //reserves the limit used by all options or nothing: on the first method without enough limit left, amounts already
+    //reserved are released and false is returned. Throws IllegalArgumentException for amounts with more than two decimal
+    //places or unknown methods.
+    public boolean tryReserveAll(Collection<DiscountOption> options) {
+        Map<String, Long> used = limitUsed(options);
+        Map<String, Long> reserved = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> entry : used.entrySet()) {
+            if (!tryReserve(entry.getKey(), entry.getValue())) {
+                reserved.forEach(this::release);
+                return false;
+            }
+            reserved.put(entry.getKey(), entry.getValue());
+        }
+        return true;
+    }
+
+    public void releaseAll(Collection<DiscountOption> options) {
+        limitUsed(options).forEach(this::release);
+    }
+
+    public long getAvailableCents(String methodId) {
+        return available.get(index(methodId) * STRIDE);
+    }
+
+    //payment methods with their limits replaced by the amounts left, in the order given to the constructor
+    public List<PaymentMethod> remaining(List<PaymentMethod> paymentMethods) {
+        return paymentMethods.stream()
+                .map(method -> new PaymentMethod(method.getId(), method.getDiscount(), FixedPoint.toBigDecimal(getAvailableCents(method.getId()))))
+                .toList();
+    }
+
+    //method id -> limit, available, reservations, rejections, releases and CAS retries, ready to be written as JSON
+    public Map<String, Map<String, Object>> snapshot() {
+        Map<String, Map<String, Object>> snapshot = new TreeMap<>();
+        for (int i = 0; i < ids.length; i++) {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("limit", FixedPoint.toBigDecimal(limits[i]));
+            stats.put("available", FixedPoint.toBigDecimal(available.get(i * STRIDE)));
+            stats.put("reservations", contention[i].reservations.sum());
+            stats.put("rejections", contention[i].rejections.sum());
+            stats.put("releases", contention[i].releases.sum());
+            stats.put("casRetries", contention[i].retries.sum());
+            snapshot.put(ids[i], stats);
+        }
+        return snapshot;
+    }
+
+    public long getRetries(String methodId) {
+        return contention[index(methodId)].retries.sum();
+    }
+
+    public long getRejections(String methodId) {
+        return contention[index(methodId)].rejections.sum();
+    }
+
+    //grosze of the limit used per promo method, in order of first use; options without limit used are skipped
+    private static Map<String, Long> limitUsed(Collection<DiscountOption> options) {
+        Map<String, Long> used = new LinkedHashMap<>();
+        for (DiscountOption option : options) {
+            BigDecimal limitUsed = option.getPromoLimitUsed();
+            if (option.getPromoMethodId() != null && limitUsed != null && limitUsed.signum() != 0) {
+                used.merge(option.getPromoMethodId(), toCents(limitUsed, "Limit used by order " + option.getOrderId()), Math::addExact);
+            }
+        }
+        return used;
+    }
+
+    private int index(String methodId) {
+        Integer index = indexes.get(methodId);
+        if (index == null) {
+            throw new IllegalArgumentException("Unknown payment method " + methodId + ".");
+        }
+        return index;
+    }
+
+    private static long toCents(BigDecimal amount, String description) {
+        try {
+            return FixedPoint.toCents(amount);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException(description + " (" + amount + ") can't be stored in minor units.");
+        }
+    }
+
+    //LongAdders spread concurrent increments over their own cells
+    private static class Contention {
+        private final LongAdder reservations = new LongAdder();
+        private final LongAdder rejections = new LongAdder();
+        private final LongAdder releases = new LongAdder();
+        private final LongAdder retries = new LongAdder();
+    }
+
+}
@@ -0,0 +1,286 @@
+package pl.wachala.optimizer;
+
+import pl.wachala.models.DiscountOption;
+import pl.wachala.models.Order;
+import pl.wachala.models.PaymentMethod;
+import pl.wachala.util.FixedPoint;
+import pl.wachala.util.IdDictionary;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+//Greedy assignment followed by an anytime local search. Moves only ever increase total discount, so stopping at any
+//point (time budget or no improving move left) gives an assignment at least as good as greedy.
+public class LocalSearchAssignmentStrategy implements AssignmentStrategy {
+
+    private static final int TIME_CHECK_INTERVAL = 64;
+    //how many rows of a payment method are looked at when searching for an order to move out of it or into it
+    private static final int MAX_SCAN = 256;
+
+    private final PaymentMethodAssigner assigner;
+    private final Duration timeBudget;
+
+    public LocalSearchAssignmentStrategy(PaymentMethodAssigner assigner, Duration timeBudget) {
+        this.assigner = assigner;
+        this.timeBudget = timeBudget;
+    }
+
+    @Override
+    public AssignmentResult assign(List<Order> orders, List<PaymentMethod> paymentMethods, IdDictionary orderIds, IdDictionary methodIds) {
+        long start = System.nanoTime();
+        String defaultPaymentMethod = assigner.getDefaultPaymentMethod(paymentMethods);
+
+        FixedPointEngine engine = FixedPointEngine.create(assigner, paymentMethods, defaultPaymentMethod, orderIds, methodIds);
+        if (engine == null || !engine.addAll(orders, 1)) {
+            //amounts don't fit into minor units - only greedy answer is available
+            Map<String, DiscountOption> assignment = assigner.assignGreedy(orders, paymentMethods, orderIds, methodIds);
+            return AssignmentResult.builder()
+                    .strategy(AssignmentStrategyType.LOCAL_SEARCH)
+                    .assignment(assignment)
+                    .totalDiscount(AssignmentResult.totalDiscount(assignment))
+                    .greedyDiscount(AssignmentResult.totalDiscount(assignment))
+                    .elapsedMillis((System.nanoTime() - start) / 1_000_000)
+                    .build();
+        }
+
+        int[] greedyRows = engine.selectGreedy();
+        long searchStart = System.nanoTime();
+        //budget covers only the improvement, greedy answer is always computed in full
+        Improver improver = new Improver(engine, greedyRows, searchStart + timeBudget.toNanos());
+        improver.run();
+        long searchNanos = System.nanoTime() - searchStart;
+
+        Map<String, DiscountOption> assignment = engine.buildAssignment(improver.getRows());
+        return AssignmentResult.builder()
+                .strategy(AssignmentStrategyType.LOCAL_SEARCH)
+                .assignment(assignment)
+                .totalDiscount(FixedPoint.toBigDecimal(improver.getValue()))
+                .greedyDiscount(FixedPoint.toBigDecimal(improver.getGreedyValue()))
+                .iterations(improver.getIterations())
+                .searchNanos(searchNanos)
+                .elapsedMillis((System.nanoTime() - start) / 1_000_000)
+                .build();
+    }
+
+    //Improves an assignment of candidate rows (at most one per order) with three kinds of moves:
+    //- switch an order to a better candidate that fits the remaining limits,
+    //- take a better candidate by moving another order out of its payment method (to its next best fitting candidate),
+    //- give up an order's candidate so that its limit can be shared by orders without promotion.
+    //Every move is applied tentatively and rolled back unless total discount increased.
+    static class Improver {
+
+        private final CandidateIndex index;
+        private final CandidateTable candidates;
+        private final long deadline;
+
+        private final long[] remainingLimit;
+        //chosen row per dense order id, -1 when the order has no promotion
+        private final int[] assigned;
+        private long value;
+        private final long greedyValue;
+        private long iterations;
+
+        //orders changed by the tentative move and their previous rows
+        private int[] journalOrders = new int[16];
+        private int[] journalRows = new int[16];
+        private int journalSize;
+
+        Improver(FixedPointEngine engine, int[] greedyRows, long deadline) {
+            this.index = new CandidateIndex(engine);
+            this.candidates = index.getCandidates();
+            this.deadline = deadline;
+            this.remainingLimit = Arrays.copyOf(engine.getMethodLimits(), engine.getMethodLimits().length);
+            this.assigned = new int[index.getOrdersCount()];
+            Arrays.fill(assigned, -1);
+
+            for (int row : greedyRows) {
+                set(index.getOrder(row), row);
+            }
+            journalSize = 0;
+            this.greedyValue = value;
+        }
+
+        void run() {
+            int ordersCount = index.getOrdersCount();
+            boolean improved = true;
+            while (improved) {
+                improved = false;
+                for (int order = 0; order < ordersCount; order++) {
+                    if (index.orderEnd(order) == index.orderStart(order)) {
+                        continue;
+                    }
+                    if (iterations++ % TIME_CHECK_INTERVAL == 0 && System.nanoTime() > deadline) {
+                        return;
+                    }
+                    if (improve(order)) {
+                        improved = true;
+                    }
+                }
+            }
+        }
+
+        private boolean improve(int order) {
+            long before = value;
+            int current = assigned[order];
+            long currentDiscount = current >= 0 ? candidates.getDiscount(current) : 0;
+
+            //switch to a better candidate
+            set(order, -1);
+            int best = bestFitting(order);
+            if (best >= 0 && candidates.getDiscount(best) > currentDiscount) {
+                set(order, best);
+                journalSize = 0;
+                return true;
+            }
+            rollback(0);
+
+            //make room for a better candidate by moving another order out of its method
+            for (int k = index.orderStart(order); k < index.orderEnd(order); k++) {
+                int row = index.orderRow(k);
+                if (candidates.getDiscount(row) <= currentDiscount) {
+                    break;
+                }
+                if (evict(order, row, before)) {
+                    return true;
+                }
+            }
+
+            //share the limit of the current candidate among orders without promotion
+            return current >= 0 && refill(order, current, before);
+        }
+
+        private boolean evict(int order, int row, long before) {
+            int method = candidates.getMethodIndex(row);
+            int current = assigned[order];
+            long available = remainingLimit[method];
+            if (current >= 0 && candidates.getMethodIndex(current) == method) {
+                available += candidates.getLimitUsed(current);
+            }
+            int scanned = 0;
+            //cheapest victims first
+            for (int k = index.methodEnd(method) - 1; k >= index.methodStart(method) && scanned++ < MAX_SCAN; k--) {
+                int victimRow = index.methodRow(k);
+                int victim = index.getOrder(victimRow);
+                if (victim == order || assigned[victim] != victimRow || available + candidates.getLimitUsed(victimRow) < candidates.getLimitUsed(row)) {
+                    continue;
+                }
+
+                set(order, -1);
+                set(victim, -1);
+                set(order, row);
+                set(victim, bestFitting(victim));
+                if (value > before) {
+                    journalSize = 0;
+                    return true;
+                }
+                rollback(0);
+            }
+            return false;
+        }
+
+        private boolean refill(int order, int current, long before) {
+            int method = candidates.getMethodIndex(current);
+            set(order, -1);
+            int scanned = 0;
+            for (int k = index.methodStart(method); k < index.methodEnd(method) && scanned++ < MAX_SCAN; k++) {
+                int row = index.methodRow(k);
+                int other = index.getOrder(row);
+                if (other != order && assigned[other] < 0 && fits(row)) {
+                    set(other, row);
+                }
+            }
+            set(order, bestFitting(order));
+
+            if (value > before) {
+                journalSize = 0;
+                return true;
+            }
+            rollback(0);
+            return false;
+        }
+
+        //best candidate of the order fitting remaining limits, -1 if none
+        private int bestFitting(int order) {
+            for (int k = index.orderStart(order); k < index.orderEnd(order); k++) {
+                int row = index.orderRow(k);
+                if (fits(row)) {
+                    return row;
+                }
+            }
+            return -1;
+        }
+
+        private boolean fits(int row) {
+            return remainingLimit[candidates.getMethodIndex(row)] >= candidates.getLimitUsed(row);
+        }
+
+        private void set(int order, int row) {
+            int previous = assigned[order];
+            if (previous == row) {
+                return;
+            }
+            apply(order, row);
+
+            if (journalSize == journalOrders.length) {
+                journalOrders = Arrays.copyOf(journalOrders, journalSize * 2);
+                journalRows = Arrays.copyOf(journalRows, journalSize * 2);
+            }
+            journalOrders[journalSize] = order;
+            journalRows[journalSize] = previous;
+            journalSize++;
+        }
+
+        private void rollback(int size) {
+            while (journalSize > size) {
+                journalSize--;
+                apply(journalOrders[journalSize], journalRows[journalSize]);
+            }
+        }
+
+        private void apply(int order, int row) {
+            int previous = assigned[order];
+            if (previous >= 0) {
+                remainingLimit[candidates.getMethodIndex(previous)] += candidates.getLimitUsed(previous);
+                value -= candidates.getDiscount(previous);
+            }
+            if (row >= 0) {
+                remainingLimit[candidates.getMethodIndex(row)] -= candidates.getLimitUsed(row);
+                value += candidates.getDiscount(row);
+            }
+            assigned[order] = row;
+        }
+
+        int[] getRows() {
+            int count = 0;
+            for (int row : assigned) {
+                if (row >= 0) {
+                    count++;
+                }
+            }
+            int[] rows = new int[count];
+            int written = 0;
+            for (int row : assigned) {
+                if (row >= 0) {
+                    rows[written++] = row;
+                }
+            }
+            return rows;
+        }
+
+        long getValue() {
+            return value;
+        }
+
+        long getGreedyValue() {
+            return greedyValue;
+        }
+
+        long getIterations() {
+            return iterations;
+        }
+
+    }
+
+}
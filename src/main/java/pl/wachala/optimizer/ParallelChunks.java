@@ -0,0 +1,74 @@
+package pl.wachala.optimizer;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+//splits range [0, count) into chunks processed on a fork-join pool, results are returned in chunk order
+final class ParallelChunks {
+
+    static final int MIN_CHUNK_SIZE = 1024;
+
+    private ParallelChunks() {
+    }
+
+    interface ChunkFunction<T> {
+        T apply(int from, int to);
+    }
+
+    static <T> List<T> map(int count, int parallelism, ChunkFunction<T> function) {
+        int chunkSize = chunkSize(count, parallelism);
+        int chunks = (count + chunkSize - 1) / chunkSize;
+
+        if (parallelism <= 1 || chunks <= 1) {
+            return List.of(function.apply(0, count));
+        }
+
+        return run(parallelism, () -> IntStream.range(0, chunks)
+                .parallel()
+                .mapToObj(chunk -> function.apply(chunk * chunkSize, Math.min(count, (chunk + 1) * chunkSize)))
+                .toList());
+    }
+
+    //runs task for every index in [0, count), each index is a separate unit of work
+    static void forEach(int count, int parallelism, IntConsumer task) {
+        if (parallelism <= 1 || count <= 1) {
+            for (int i = 0; i < count; i++) {
+                task.accept(i);
+            }
+            return;
+        }
+
+        run(parallelism, () -> {
+            IntStream.range(0, count).parallel().forEach(task);
+            return null;
+        });
+    }
+
+    private static <T> T run(int parallelism, Callable<T> work) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return pool.submit(work).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while processing orders in parallel", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Parallel processing of orders failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    //a few chunks per thread so uneven orders (many promotions) don't leave threads idle
+    static int chunkSize(int count, int parallelism) {
+        int chunks = Math.max(1, parallelism) * 4;
+        return Math.max(MIN_CHUNK_SIZE, (count + chunks - 1) / chunks);
+    }
+
+}
@@ -0,0 +1,280 @@
+package pl.wachala.optimizer;
+
+import java.util.Arrays;
+
+//Greedy pass of FixedPointEngine split into independent parts. Orders interact only through the limits of their card
+//methods and through the shared PUNKTY limit, so rows of other methods are partitioned into connected components of the
+//order - method graph (orders sharing an id always land in one component) and every component runs its own greedy pass
+//on a thread pool. Rows using PUNKTY are handled by a sequential coordinating pass.
+//
+//A component pass treats orders taken with PUNKTY earlier in the global order as covered, the coordinating pass treats
+//orders taken with a card earlier as covered. Both are repeated (components only when their PUNKTY decisions changed)
+//until nothing changes. Each decision then follows the greedy rule applied to all earlier decisions, so the winners
+//are exactly those of FixedPointEngine.selectGreedy. If that doesn't happen within MAX_ROUNDS the sequential pass is used.
+class PartitionedGreedy {
+
+    static final int MAX_ROUNDS = 16;
+
+    private final FixedPointEngine engine;
+    private final CandidateTable candidates;
+    private final int loyaltyPointsIndex;
+    private final long[] methodLimits;
+    private final int ordersCount;
+
+    //dense order id of each row
+    private final int[] rowOrder;
+    //rows of each component and PUNKTY rows, sorted like the global greedy pass
+    private final int[][] componentRows;
+    private final int[][] componentMethods;
+    private final int[] orderComponent;
+    private final int[] loyaltyRows;
+
+    private final long[] availableLimit;
+    private final int[] cardWinner;
+    private int[] loyaltyWinner;
+
+    private int rounds;
+
+    PartitionedGreedy(FixedPointEngine engine) {
+        this.engine = engine;
+        this.candidates = engine.getCandidates();
+        this.loyaltyPointsIndex = engine.getLoyaltyPointsIndex();
+        this.methodLimits = engine.getMethodLimits();
+        this.ordersCount = engine.getOrderIdsCount();
+        this.availableLimit = Arrays.copyOf(methodLimits, methodLimits.length);
+        this.cardWinner = new int[ordersCount];
+        this.loyaltyWinner = new int[ordersCount];
+        Arrays.fill(cardWinner, -1);
+        Arrays.fill(loyaltyWinner, -1);
+
+        int rowsCount = candidates.size();
+        int methodsCount = methodLimits.length;
+        this.rowOrder = new int[rowsCount];
+
+        //union card methods used by the same order
+        int[] parent = new int[methodsCount];
+        for (int method = 0; method < methodsCount; method++) {
+            parent[method] = method;
+        }
+        int[] firstMethod = new int[ordersCount];
+        Arrays.fill(firstMethod, -1);
+        int loyaltyRowsCount = 0;
+        for (int row = 0; row < rowsCount; row++) {
+            int order = engine.getOrderIndex(candidates.getOrderIndex(row));
+            rowOrder[row] = order;
+            int method = candidates.getMethodIndex(row);
+            if (method == loyaltyPointsIndex) {
+                loyaltyRowsCount++;
+            } else if (firstMethod[order] < 0) {
+                firstMethod[order] = method;
+            } else {
+                parent[find(parent, firstMethod[order])] = find(parent, method);
+            }
+        }
+
+        //compact component ids, methods without rows don't form components
+        int[] methodComponent = new int[methodsCount];
+        Arrays.fill(methodComponent, -1);
+        int[] rootComponent = new int[methodsCount];
+        Arrays.fill(rootComponent, -1);
+        int components = 0;
+        int[] rowsPerComponent = new int[methodsCount];
+        int[] methodsPerComponent = new int[methodsCount];
+        boolean[] methodUsed = new boolean[methodsCount];
+        for (int row = 0; row < rowsCount; row++) {
+            int method = candidates.getMethodIndex(row);
+            if (method == loyaltyPointsIndex) {
+                continue;
+            }
+            if (methodComponent[method] < 0) {
+                int root = find(parent, method);
+                if (rootComponent[root] < 0) {
+                    rootComponent[root] = components++;
+                }
+                methodComponent[method] = rootComponent[root];
+            }
+            rowsPerComponent[methodComponent[method]]++;
+            if (!methodUsed[method]) {
+                methodUsed[method] = true;
+                methodsPerComponent[methodComponent[method]]++;
+            }
+        }
+
+        this.componentRows = new int[components][];
+        this.componentMethods = new int[components][];
+        for (int component = 0; component < components; component++) {
+            componentRows[component] = new int[rowsPerComponent[component]];
+            componentMethods[component] = new int[methodsPerComponent[component]];
+        }
+        Arrays.fill(methodsPerComponent, 0);
+        for (int method = 0; method < methodsCount; method++) {
+            if (methodUsed[method]) {
+                int component = methodComponent[method];
+                componentMethods[component][methodsPerComponent[component]++] = method;
+            }
+        }
+
+        this.orderComponent = new int[ordersCount];
+        Arrays.fill(orderComponent, -1);
+        this.loyaltyRows = new int[loyaltyRowsCount];
+        Arrays.fill(rowsPerComponent, 0);
+        int loyaltyFill = 0;
+        for (int row = 0; row < rowsCount; row++) {
+            int method = candidates.getMethodIndex(row);
+            if (method == loyaltyPointsIndex) {
+                loyaltyRows[loyaltyFill++] = row;
+            } else {
+                int component = methodComponent[method];
+                componentRows[component][rowsPerComponent[component]++] = row;
+                orderComponent[rowOrder[row]] = component;
+            }
+        }
+    }
+
+    //candidate rows picked by the greedy pass, in order of acceptance
+    int[] select(int parallelism) {
+        int components = componentRows.length;
+
+        //first round also sorts the rows, PUNKTY rows are sorted as one more task
+        ParallelChunks.forEach(components + 1, parallelism, task -> {
+            if (task == components) {
+                candidates.sortByLimitUsedDescending(loyaltyRows);
+            } else {
+                candidates.sortByLimitUsedDescending(componentRows[task]);
+                solveComponent(task);
+            }
+        });
+        rounds = 1;
+
+        while (true) {
+            int[] coordinated = coordinate();
+            boolean[] dirty = new boolean[components];
+            int dirtyCount = 0;
+            for (int order = 0; order < ordersCount; order++) {
+                if (coordinated[order] != loyaltyWinner[order] && orderComponent[order] >= 0 && !dirty[orderComponent[order]]) {
+                    dirty[orderComponent[order]] = true;
+                    dirtyCount++;
+                }
+            }
+            loyaltyWinner = coordinated;
+            if (dirtyCount == 0) {
+                return winners();
+            }
+            if (rounds == MAX_ROUNDS) {
+                //already inside the greedy phase of the caller
+                return engine.selectGreedyUntimed();
+            }
+
+            int[] dirtyComponents = new int[dirtyCount];
+            int written = 0;
+            for (int component = 0; component < components; component++) {
+                if (dirty[component]) {
+                    dirtyComponents[written++] = component;
+                }
+            }
+            ParallelChunks.forEach(dirtyCount, parallelism, i -> solveComponent(dirtyComponents[i]));
+            rounds++;
+        }
+    }
+
+    private void solveComponent(int component) {
+        int[] rows = componentRows[component];
+        for (int row : rows) {
+            cardWinner[rowOrder[row]] = -1;
+        }
+        for (int method : componentMethods[component]) {
+            availableLimit[method] = methodLimits[method];
+        }
+
+        for (int row : rows) {
+            int order = rowOrder[row];
+            if (cardWinner[order] >= 0 || loyaltyWinner[order] >= 0 && before(loyaltyWinner[order], row)) {
+                continue;
+            }
+            int method = candidates.getMethodIndex(row);
+            long limitUsed = candidates.getLimitUsed(row);
+            if (availableLimit[method] >= limitUsed) {
+                availableLimit[method] -= limitUsed;
+                cardWinner[order] = row;
+            }
+        }
+    }
+
+    //PUNKTY decisions given current card decisions
+    private int[] coordinate() {
+        int[] winners = new int[ordersCount];
+        Arrays.fill(winners, -1);
+        if (loyaltyPointsIndex < 0) {
+            return winners;
+        }
+
+        long available = methodLimits[loyaltyPointsIndex];
+        for (int row : loyaltyRows) {
+            int order = rowOrder[row];
+            if (winners[order] >= 0 || cardWinner[order] >= 0 && before(cardWinner[order], row)) {
+                continue;
+            }
+            long limitUsed = candidates.getLimitUsed(row);
+            if (available >= limitUsed) {
+                available -= limitUsed;
+                winners[order] = row;
+            }
+        }
+        return winners;
+    }
+
+    private int[] winners() {
+        int count = 0;
+        for (int order = 0; order < ordersCount; order++) {
+            if (cardWinner[order] >= 0 || loyaltyWinner[order] >= 0) {
+                count++;
+            }
+        }
+        int[] winners = new int[count];
+        int written = 0;
+        for (int order = 0; order < ordersCount; order++) {
+            if (cardWinner[order] >= 0) {
+                winners[written++] = cardWinner[order];
+            } else if (loyaltyWinner[order] >= 0) {
+                winners[written++] = loyaltyWinner[order];
+            }
+        }
+
+        //row order first, so that equal limits end up in generation order like in the global sort
+        Arrays.sort(winners);
+        candidates.sortByLimitUsedDescending(winners);
+        return winners;
+    }
+
+    //whether row a comes before row b in the global greedy order
+    private boolean before(int a, int b) {
+        long limitA = candidates.getLimitUsed(a);
+        long limitB = candidates.getLimitUsed(b);
+        return limitA > limitB || limitA == limitB && a < b;
+    }
+
+    private static int find(int[] parent, int method) {
+        while (parent[method] != method) {
+            parent[method] = parent[parent[method]];
+            method = parent[method];
+        }
+        return method;
+    }
+
+    int getComponentsCount() {
+        return componentRows.length;
+    }
+
+    int getLargestComponentRows() {
+        int largest = 0;
+        for (int[] rows : componentRows) {
+            largest = Math.max(largest, rows.length);
+        }
+        return largest;
+    }
+
+    int getRounds() {
+        return rounds;
+    }
+
+}
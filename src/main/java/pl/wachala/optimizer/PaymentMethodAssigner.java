@@ -1,38 +1,201 @@
 package pl.wachala.optimizer;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import pl.wachala.config.OptimizerProperties;
+import pl.wachala.metrics.MetricsRegistry;
+import pl.wachala.metrics.Phase;
 import pl.wachala.models.DiscountOption;
 import pl.wachala.models.Order;
 import pl.wachala.models.PaymentMethod;
 import pl.wachala.models.PromotionType;
 import org.springframework.stereotype.Component;
 import pl.wachala.util.Consts;
+import pl.wachala.util.FixedPoint;
+import pl.wachala.util.IdDictionary;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.file.Path;
 import java.util.*;
 
 @Component
 public class PaymentMethodAssigner {
 
+    static final Comparator<DiscountOption> BY_PROMO_LIMIT_USED_DESC = Comparator.comparing(DiscountOption::getPromoLimitUsed).reversed();
+
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+    private final OptimizerProperties properties;
+    private final MetricsRegistry metrics;
+
+    public PaymentMethodAssigner() {
+        this(new OptimizerProperties());
+    }
+
+    public PaymentMethodAssigner(OptimizerProperties properties) {
+        this(properties, new MetricsRegistry());
+    }
+
+    @Autowired
+    public PaymentMethodAssigner(OptimizerProperties properties, MetricsRegistry metrics) {
+        this.properties = properties;
+        this.metrics = metrics;
+    }
+
     public Map<String, DiscountOption> assign(List<Order> orders, List<PaymentMethod> paymentMethods) {
+        return assign(orders, paymentMethods, new IdDictionary(), new IdDictionary());
+    }
+
+    //order and payment method ids may already be interned (e.g. by DataParser), missing ones are added to the dictionaries
+    public Map<String, DiscountOption> assign(List<Order> orders, List<PaymentMethod> paymentMethods, IdDictionary orderIds, IdDictionary methodIds) {
+        return solve(orders, paymentMethods, orderIds, methodIds).getAssignment();
+    }
+
+    //assignment computed by the configured strategy, together with its total discount and optimality gap
+    public AssignmentResult solve(List<Order> orders, List<PaymentMethod> paymentMethods, IdDictionary orderIds, IdDictionary methodIds) {
+        AssignmentResult result = getStrategy().assign(orders, paymentMethods, orderIds, methodIds);
+        metrics.increment(MetricsRegistry.ORDERS, orders.size());
+        metrics.recordLimitUtilization(paymentMethods, result.getAssignment());
+        return result;
+    }
+
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    AssignmentStrategy getStrategy() {
+        return switch (properties.getStrategy()) {
+            case GREEDY -> new GreedyAssignmentStrategy(this);
+            case BRANCH_AND_BOUND -> new BranchAndBoundAssignmentStrategy(this, properties.getSolverTimeBudget());
+            case LOCAL_SEARCH -> new LocalSearchAssignmentStrategy(this, properties.getSolverTimeBudget());
+        };
+    }
+
+    Map<String, DiscountOption> assignGreedy(List<Order> orders, List<PaymentMethod> paymentMethods, IdDictionary orderIds, IdDictionary methodIds) {
         String defaultPaymentMethod = getDefaultPaymentMethod(paymentMethods);
 
-        //payment method id -> payment method mapping
-        HashMap<String, PaymentMethod> methodsMap = new HashMap<>();
-        for (PaymentMethod method : paymentMethods) {
-            methodsMap.put(method.getId(), method);
+        if (usesFixedPoint()) {
+            FixedPointEngine engine = FixedPointEngine.create(this, paymentMethods, defaultPaymentMethod, orderIds, methodIds,
+                    properties.getCandidatesPerOrder());
+            if (engine != null && engine.addAll(orders, properties.getParallelism())) {
+                return assignWithEngine(engine);
+            }
+            //some amount has more than two decimal places or is too large - BigDecimal arithmetic is used instead
         }
 
+        HashMap<String, PaymentMethod> methodsMap = getMethodsMap(paymentMethods);
+
         //calculate possible discounts for each order
-        List<DiscountOption> possibleDiscounts = getPossibleDiscounts(orders, methodsMap, defaultPaymentMethod);
+        List<DiscountOption> possibleDiscounts;
+        try (MetricsRegistry.PhaseTimer ignored = metrics.time(Phase.CANDIDATE_GENERATION)) {
+            possibleDiscounts = getPossibleDiscounts(orders, methodsMap, defaultPaymentMethod);
+        }
+        metrics.increment(MetricsRegistry.CANDIDATES, possibleDiscounts.size());
 
         //sort possible discounts by promotion limits used
-        possibleDiscounts.sort(Comparator.comparing(DiscountOption::getPromoLimitUsed).reversed());
+        try (MetricsRegistry.PhaseTimer ignored = metrics.time(Phase.SORT)) {
+            sortByPromoLimitUsedDesc(possibleDiscounts);
+        }
 
         //assign the most beneficial discount to order within global limit
         return getAssignmentGreedy(orders, paymentMethods, possibleDiscounts, defaultPaymentMethod);
     }
 
+    //same order as sorting with BY_PROMO_LIMIT_USED_DESC, radix sorted on limits in minor units when all of them fit
+    static void sortByPromoLimitUsedDesc(List<DiscountOption> possibleDiscounts) {
+        int count = possibleDiscounts.size();
+        if (count < RadixSort.MIN_SIZE) {
+            possibleDiscounts.sort(BY_PROMO_LIMIT_USED_DESC);
+            return;
+        }
+
+        DiscountOption[] options = possibleDiscounts.toArray(new DiscountOption[0]);
+        long[] keys = new long[count];
+        try {
+            for (int i = 0; i < count; i++) {
+                keys[i] = FixedPoint.toCents(options[i].getPromoLimitUsed());
+            }
+        } catch (ArithmeticException e) {
+            //some limit used has more than two decimal places
+            possibleDiscounts.sort(BY_PROMO_LIMIT_USED_DESC);
+            return;
+        }
+
+        int[] rows = new int[count];
+        for (int i = 0; i < count; i++) {
+            rows[i] = i;
+        }
+        RadixSort.sortDescending(rows, keys, count);
+
+        ListIterator<DiscountOption> iterator = possibleDiscounts.listIterator();
+        for (int row : rows) {
+            iterator.next();
+            iterator.set(options[row]);
+        }
+    }
+
+    //session accepting orders one at a time (e.g. straight from the parser), discount options are generated as orders arrive
+    public AssignmentSession openSession(List<PaymentMethod> paymentMethods) {
+        return openSession(paymentMethods, new IdDictionary(), new IdDictionary());
+    }
+
+    public AssignmentSession openSession(List<PaymentMethod> paymentMethods, IdDictionary orderIds, IdDictionary methodIds) {
+        String defaultPaymentMethod = getDefaultPaymentMethod(paymentMethods);
+        //strategies other than greedy generate candidates themselves, from complete orders kept by the session
+        boolean greedy = properties.getStrategy() == AssignmentStrategyType.GREEDY;
+        FixedPointEngine engine = greedy && usesFixedPoint()
+                ? FixedPointEngine.create(this, paymentMethods, defaultPaymentMethod, orderIds, methodIds, properties.getCandidatesPerOrder())
+                : null;
+        PaymentMethodCatalog catalog = new PaymentMethodCatalog(this, getMethodsMap(paymentMethods), defaultPaymentMethod);
+        return new AssignmentSession(this, paymentMethods, orderIds, methodIds, catalog, defaultPaymentMethod, engine, greedy);
+    }
+
+    //session for batches larger than the heap, discount options are spilled to disk in sorted runs of
+    //optimizer.external-sort-run-size candidates and the result is the summary of the assignment
+    public ExternalSortSession openExternalSession(List<PaymentMethod> paymentMethods) throws IOException {
+        String directory = properties.getSpillDirectory();
+        Path spillDirectory = directory == null || directory.isBlank() ? Path.of(System.getProperty("java.io.tmpdir")) : Path.of(directory);
+        return new ExternalSortSession(this, paymentMethods, getDefaultPaymentMethod(paymentMethods),
+                Math.max(1, properties.getExternalSortRunSize()), spillDirectory);
+    }
+
+    //greedy assignment kept up to date as orders are added or removed and limits change
+    public IncrementalAssignment openIncremental(List<PaymentMethod> paymentMethods) {
+        return new IncrementalAssignment(this, paymentMethods);
+    }
+
+    //partitioned greedy pass and pruning work on the candidate table, so they need fixed point arithmetic as well
+    private boolean usesFixedPoint() {
+        return properties.getArithmetic() == ArithmeticEngine.FIXED_POINT || properties.isPartitioning() || properties.getCandidatesPerOrder() > 0;
+    }
+
+    int getCandidatesPerOrder() {
+        return properties.getCandidatesPerOrder();
+    }
+
+    Map<String, DiscountOption> assignWithEngine(FixedPointEngine engine) {
+        if (properties.isPartitioning()) {
+            //components are sorted inside the parallel pass, so sorting is part of the greedy phase here
+            int[] winners;
+            try (MetricsRegistry.PhaseTimer ignored = metrics.time(Phase.GREEDY)) {
+                winners = new PartitionedGreedy(engine).select(properties.getParallelism());
+            }
+            engine.recordPrunedNeeded(winners, engine.getMethodLimits());
+            return engine.buildAssignment(winners);
+        }
+        return engine.assign();
+    }
+
+    //payment method id -> payment method mapping
+    HashMap<String, PaymentMethod> getMethodsMap(List<PaymentMethod> paymentMethods) {
+        HashMap<String, PaymentMethod> methodsMap = new HashMap<>();
+        for (PaymentMethod method : paymentMethods) {
+            methodsMap.put(method.getId(), method);
+        }
+        return methodsMap;
+    }
+
     //select default payment method that'd be used in case there's no promotion assigned, and we're unable to fully pay with loyalty points
     String getDefaultPaymentMethod(List<PaymentMethod> paymentMethods) {
         return paymentMethods.stream()
@@ -51,57 +214,38 @@ public class PaymentMethodAssigner {
         }
 
         // apply card promotions first
-        for (DiscountOption discountOption : possibleDiscounts) {
-            //we already have this order covered - no further processing needed
-            if (coveredOrders.containsKey(discountOption.getOrderId())) {
-                continue;
-            }
+        try (MetricsRegistry.PhaseTimer ignored = metrics.time(Phase.GREEDY)) {
+            for (DiscountOption discountOption : possibleDiscounts) {
+                //we already have this order covered - no further processing needed
+                if (coveredOrders.containsKey(discountOption.getOrderId())) {
+                    continue;
+                }
 
-            //update limits
-            BigDecimal limitLeft = availableLimit.get(discountOption.getPromoMethodId());
+                //update limits
+                BigDecimal limitLeft = availableLimit.get(discountOption.getPromoMethodId());
 
-            //If limit left is greater or equal to what we want to apply
-            if (limitLeft.compareTo(discountOption.getPromoLimitUsed()) >= 0) {
-                coveredOrders.put(discountOption.getOrderId(), discountOption);
-                availableLimit.put(discountOption.getPromoMethodId(), limitLeft.subtract(discountOption.getPromoLimitUsed()));
+                //If limit left is greater or equal to what we want to apply
+                if (limitLeft.compareTo(discountOption.getPromoLimitUsed()) >= 0) {
+                    coveredOrders.put(discountOption.getOrderId(), discountOption);
+                    availableLimit.put(discountOption.getPromoMethodId(), limitLeft.subtract(discountOption.getPromoLimitUsed()));
+                }
             }
         }
 
         //then try to apply loyalty points (below 10%) if any left (full payment with loyalty points should not be possible here)
         if (availableLimit.containsKey(Consts.LOYALTY_POINTS_PAYMENT_METHOD_ID)) {
-            for (Order order : orders) {
-                //if order is already covered (has assigned promo) - skip it
-                if (coveredOrders.containsKey(order.getId())) {
-                    continue;
-                }
-
-                //get loyalty points left
+            try (MetricsRegistry.PhaseTimer ignored = metrics.time(Phase.LOYALTY_FALLBACK)) {
                 BigDecimal availableLoyaltyPoints = availableLimit.get(Consts.LOYALTY_POINTS_PAYMENT_METHOD_ID);
 
-                //if available limits greater than zero
-                if (availableLoyaltyPoints.compareTo(BigDecimal.ZERO) >= 1) {
-                    //get minimum of (order value, available points)
-                    BigDecimal loyaltyPointsToUse = availableLoyaltyPoints.min(order.getValue());
-                    availableLimit.put(Consts.LOYALTY_POINTS_PAYMENT_METHOD_ID, availableLoyaltyPoints.subtract(loyaltyPointsToUse));
-                    BigDecimal valueAfterDiscount = order.getValue().subtract(loyaltyPointsToUse);
-
-                    coveredOrders.put(order.getId(), DiscountOption.builder()
-                            .orderId(order.getId())
-                            .paymentMethodId(defaultPaymentMethod)
-                            .promoMethodId(Consts.LOYALTY_POINTS_PAYMENT_METHOD_ID)
-                            .discount(loyaltyPointsToUse)
-                            .promoLimitUsed(loyaltyPointsToUse)
-                            .valueAfterDiscount(valueAfterDiscount)
-                            .build());
-                } else {
-                    //No promotion applied - we pay with default card
-                    coveredOrders.put(order.getId(), DiscountOption.builder()
-                            .discount(BigDecimal.ZERO)
-                            .promoLimitUsed(BigDecimal.ZERO)
-                            .paymentMethodId(defaultPaymentMethod)
-                            .promoMethodId(defaultPaymentMethod)
-                            .valueAfterDiscount(order.getValue())
-                            .build());
+                for (Order order : orders) {
+                    //if order is already covered (has assigned promo) - skip it
+                    if (coveredOrders.containsKey(order.getId())) {
+                        continue;
+                    }
+
+                    DiscountOption fallbackOption = getFallbackOption(order.getId(), order.getValue(), availableLoyaltyPoints, defaultPaymentMethod);
+                    availableLoyaltyPoints = availableLoyaltyPoints.subtract(fallbackOption.getPromoLimitUsed());
+                    coveredOrders.put(order.getId(), fallbackOption);
                 }
             }
         }
@@ -109,41 +253,73 @@ public class PaymentMethodAssigner {
         return coveredOrders;
     }
 
-    List<DiscountOption> getPossibleDiscounts(List<Order> orders, HashMap<String, PaymentMethod> methodsMap, String defaultPaymentMethod) {
-        List<DiscountOption> possibleDiscounts = new LinkedList<>();
-        for (Order order : orders) {
-            List<DiscountOption> discountOptions = calculateDiscountPerMethod(order, methodsMap, defaultPaymentMethod);
-            possibleDiscounts.addAll(discountOptions);
+    //order without promotion is partially paid with loyalty points if any left, otherwise with default payment method
+    DiscountOption getFallbackOption(String orderId, BigDecimal orderValue, BigDecimal availableLoyaltyPoints, String defaultPaymentMethod) {
+        //if available limits greater than zero
+        if (availableLoyaltyPoints.compareTo(BigDecimal.ZERO) >= 1) {
+            //get minimum of (order value, available points)
+            BigDecimal loyaltyPointsToUse = availableLoyaltyPoints.min(orderValue);
+            BigDecimal valueAfterDiscount = orderValue.subtract(loyaltyPointsToUse);
+
+            return DiscountOption.builder()
+                    .orderId(orderId)
+                    .paymentMethodId(defaultPaymentMethod)
+                    .promoMethodId(Consts.LOYALTY_POINTS_PAYMENT_METHOD_ID)
+                    .discount(loyaltyPointsToUse)
+                    .promoLimitUsed(loyaltyPointsToUse)
+                    .valueAfterDiscount(valueAfterDiscount)
+                    .build();
         }
-        return possibleDiscounts;
+
+        //No promotion applied - we pay with default card
+        return DiscountOption.builder()
+                .discount(BigDecimal.ZERO)
+                .promoLimitUsed(BigDecimal.ZERO)
+                .paymentMethodId(defaultPaymentMethod)
+                .promoMethodId(defaultPaymentMethod)
+                .valueAfterDiscount(orderValue)
+                .build();
     }
 
-    List<DiscountOption> calculateDiscountPerMethod(Order order, HashMap<String, PaymentMethod> methodsMap, String defaultPaymentMethod) {
-        List<DiscountOption> result = new LinkedList<>();
+    List<DiscountOption> getPossibleDiscounts(List<Order> orders, HashMap<String, PaymentMethod> methodsMap, String defaultPaymentMethod) {
+        PaymentMethodCatalog catalog = new PaymentMethodCatalog(this, methodsMap, defaultPaymentMethod);
+        List<DiscountOption> possibleDiscounts = getPossibleDiscounts(orders, catalog);
+        catalog.recordStatistics(metrics);
+        return possibleDiscounts;
+    }
 
-        //CARD promotions calculated first
-        for (String promo : order.getPromotions()) {
-            PaymentMethod paymentMethod = methodsMap.get(promo);
-            if (paymentMethod != null) {
-                //discount percentage as BigDecimal could be pre-processed
-                result.add(calculateCardPromo(order, paymentMethod));
+    private List<DiscountOption> getPossibleDiscounts(List<Order> orders, PaymentMethodCatalog catalog) {
+        if (properties.getParallelism() <= 1) {
+            List<DiscountOption> possibleDiscounts = new ArrayList<>();
+            for (Order order : orders) {
+                List<DiscountOption> discountOptions = catalog.discountOptions(order);
+                possibleDiscounts.addAll(discountOptions);
             }
+            return possibleDiscounts;
         }
 
-        PaymentMethod loyaltyPointsMethod = methodsMap.get(Consts.LOYALTY_POINTS_PAYMENT_METHOD_ID);
-        if (loyaltyPointsMethod != null) {
-            // discount based on loyalty points >= 10%
-            result.add(calculatePartialLoyaltyPointsPromo(order, defaultPaymentMethod));
+        //chunks of orders processed concurrently, concatenated in order so the greedy pass sees the same sequence
+        List<Order> randomAccessOrders = orders instanceof RandomAccess ? orders : new ArrayList<>(orders);
+        List<List<DiscountOption>> chunks = ParallelChunks.map(randomAccessOrders.size(), properties.getParallelism(), (from, to) -> {
+            List<DiscountOption> chunk = new ArrayList<>();
+            for (int i = from; i < to; i++) {
+                chunk.addAll(catalog.discountOptions(randomAccessOrders.get(i)));
+            }
+            return chunk;
+        });
 
-            // discount based on loyalty points == 100%
-            result.add(calculateFullLoyaltyPointsPromo(order, loyaltyPointsMethod));
+        List<DiscountOption> possibleDiscounts = new ArrayList<>();
+        for (List<DiscountOption> chunk : chunks) {
+            possibleDiscounts.addAll(chunk);
         }
-
-        return result;
+        return possibleDiscounts;
     }
 
     DiscountOption calculateCardPromo(Order order, PaymentMethod paymentMethod) {
-        BigDecimal totalDiscount = calculatePossibleDiscount(order.getValue(), paymentMethod);
+        return cardPromo(order, paymentMethod, calculatePossibleDiscount(order.getValue(), paymentMethod));
+    }
+
+    DiscountOption cardPromo(Order order, PaymentMethod paymentMethod, BigDecimal totalDiscount) {
         return DiscountOption.builder()
                 .orderId(order.getId())
                 .discount(totalDiscount)
@@ -156,8 +332,11 @@ public class PaymentMethodAssigner {
     }
 
     DiscountOption calculatePartialLoyaltyPointsPromo(Order order, String defaultPaymentMethod) {
-        BigDecimal tenPercentOfOrderValue = calculatePercentageDiscount(order.getValue(), Consts.PARTIAL_LOYALTY_POINTS_DISCOUNT_PERCENTAGE);
+        return partialLoyaltyPointsPromo(order, defaultPaymentMethod,
+                calculatePercentageDiscount(order.getValue(), Consts.PARTIAL_LOYALTY_POINTS_DISCOUNT_PERCENTAGE));
+    }
 
+    DiscountOption partialLoyaltyPointsPromo(Order order, String defaultPaymentMethod, BigDecimal tenPercentOfOrderValue) {
         return DiscountOption.builder()
                 .orderId(order.getId())
                 .paymentMethodId(defaultPaymentMethod)
@@ -170,7 +349,10 @@ public class PaymentMethodAssigner {
     }
 
     DiscountOption calculateFullLoyaltyPointsPromo(Order order, PaymentMethod paymentMethod) {
-        BigDecimal fullyPaidDiscount = calculatePossibleDiscount(order.getValue(), paymentMethod);
+        return fullLoyaltyPointsPromo(order, paymentMethod, calculatePossibleDiscount(order.getValue(), paymentMethod));
+    }
+
+    DiscountOption fullLoyaltyPointsPromo(Order order, PaymentMethod paymentMethod, BigDecimal fullyPaidDiscount) {
         BigDecimal valueAfterDiscount = order.getValue().subtract(fullyPaidDiscount);
 
         return DiscountOption.builder()
@@ -191,7 +373,7 @@ public class PaymentMethodAssigner {
 
     BigDecimal calculatePercentageDiscount(BigDecimal orderValue, BigDecimal discountPercentage) {
         return orderValue.multiply(discountPercentage)
-                .divide(BigDecimal.valueOf(100), 4, RoundingMode.HALF_UP)
+                .divide(HUNDRED, 4, RoundingMode.HALF_UP)
                 .setScale(2, RoundingMode.HALF_UP);
     }
 
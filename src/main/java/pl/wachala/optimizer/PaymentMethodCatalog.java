@@ -0,0 +1,150 @@
+package pl.wachala.optimizer;
+
+import pl.wachala.metrics.MetricsRegistry;
+import pl.wachala.models.DiscountOption;
+import pl.wachala.models.Order;
+import pl.wachala.models.PaymentMethod;
+import pl.wachala.util.Consts;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+//Payment methods prepared for generating discount options of many orders: percentages are BigDecimals created once per
+//distinct discount, and discounts are memoized per order value, since many orders (fixed-price baskets) share their
+//value. Discounts are computed by PaymentMethodAssigner.calculatePercentageDiscount, so options are the same as without
+//the catalog. When the cache of a percentage hits less than 3/4 of lookups, values are too diverse and the cache is no
+//longer consulted. Safe to use from many threads.
+class PaymentMethodCatalog {
+
+    //order values cached per percentage, small enough for the caches of all percentages to stay in CPU cache - a lookup
+    //missing it costs more than computing the discount
+    static final int CACHE_SIZE = 1 << 9;
+    //every this many misses the hit rate is checked, a cache hit by less than 3/4 of lookups is bypassed
+    static final int SAMPLE_SIZE = 1 << 12;
+
+    private final PaymentMethodAssigner assigner;
+    private final Map<String, PaymentMethod> methodsMap;
+    private final String defaultPaymentMethod;
+
+    private final Map<String, Rate> cardRates = new HashMap<>();
+    private final PaymentMethod loyaltyPointsMethod;
+    private final Rate partialLoyaltyPointsRate;
+    private final Rate fullLoyaltyPointsRate;
+
+    private final List<Rate> distinctRates;
+
+    PaymentMethodCatalog(PaymentMethodAssigner assigner, Map<String, PaymentMethod> methodsMap, String defaultPaymentMethod) {
+        this.assigner = assigner;
+        this.methodsMap = methodsMap;
+        this.defaultPaymentMethod = defaultPaymentMethod;
+
+        //methods with the same discount share their cached values
+        Map<BigDecimal, Rate> rates = new HashMap<>();
+        for (PaymentMethod method : methodsMap.values()) {
+            cardRates.put(method.getId(), rates.computeIfAbsent(BigDecimal.valueOf(method.getDiscount()), Rate::new));
+        }
+        this.loyaltyPointsMethod = methodsMap.get(Consts.LOYALTY_POINTS_PAYMENT_METHOD_ID);
+        this.partialLoyaltyPointsRate = rates.computeIfAbsent(Consts.PARTIAL_LOYALTY_POINTS_DISCOUNT_PERCENTAGE, Rate::new);
+        this.fullLoyaltyPointsRate = loyaltyPointsMethod != null ? cardRates.get(loyaltyPointsMethod.getId()) : null;
+        this.distinctRates = List.copyOf(rates.values());
+    }
+
+    //same options in the same order as PaymentMethodAssigner.calculateDiscountPerMethod
+    List<DiscountOption> discountOptions(Order order) {
+        List<DiscountOption> result = new ArrayList<>();
+
+        //CARD promotions calculated first
+        for (String promo : order.getPromotions()) {
+            PaymentMethod paymentMethod = methodsMap.get(promo);
+            if (paymentMethod != null) {
+                result.add(assigner.cardPromo(order, paymentMethod, discount(order.getValue(), cardRates.get(promo))));
+            }
+        }
+
+        if (loyaltyPointsMethod != null) {
+            // discount based on loyalty points >= 10%
+            result.add(assigner.partialLoyaltyPointsPromo(order, defaultPaymentMethod, discount(order.getValue(), partialLoyaltyPointsRate)));
+
+            // discount based on loyalty points == 100%
+            result.add(assigner.fullLoyaltyPointsPromo(order, loyaltyPointsMethod, discount(order.getValue(), fullLoyaltyPointsRate)));
+        }
+
+        return result;
+    }
+
+    private BigDecimal discount(BigDecimal orderValue, Rate rate) {
+        if (rate.bypassed) {
+            rate.misses.increment();
+            return assigner.calculatePercentageDiscount(orderValue, rate.percentage);
+        }
+
+        int hash = orderValue.hashCode();
+        int slot = (hash ^ hash >>> 16) & (CACHE_SIZE - 1);
+        Entry entry = rate.entries[slot];
+        if (entry != null && entry.orderValue.equals(orderValue)) {
+            rate.hits.increment();
+            return entry.discount;
+        }
+
+        rate.misses.increment();
+        BigDecimal discount = assigner.calculatePercentageDiscount(orderValue, rate.percentage);
+        rate.entries[slot] = new Entry(orderValue, discount);
+        long misses = rate.misses.sum();
+        if (misses % SAMPLE_SIZE == 0 && rate.hits.sum() < 3 * misses) {
+            rate.bypassed = true;
+        }
+        return discount;
+    }
+
+    long getHits() {
+        long hits = 0;
+        for (Rate rate : distinctRates) {
+            hits += rate.hits.sum();
+        }
+        return hits;
+    }
+
+    //discounts computed, also those not looked up in a bypassed cache
+    long getMisses() {
+        long misses = 0;
+        for (Rate rate : distinctRates) {
+            misses += rate.misses.sum();
+        }
+        return misses;
+    }
+
+    //share of discounts taken from the cache, 0 when nothing was computed
+    double getHitRate() {
+        long lookups = getHits() + getMisses();
+        return lookups > 0 ? (double) getHits() / lookups : 0;
+    }
+
+    //adds all lookups to the discount cache counters, called once the catalog is no longer used
+    void recordStatistics(MetricsRegistry metrics) {
+        metrics.increment(MetricsRegistry.DISCOUNT_CACHE_HITS, getHits());
+        metrics.increment(MetricsRegistry.DISCOUNT_CACHE_MISSES, getMisses());
+    }
+
+    //direct mapped cache of order value -> discount at one percentage, a value replaces the one in its slot; keyed by
+    //BigDecimal.equals (the same value with a different scale is a separate entry, the discount is the same)
+    private static class Rate {
+        private final BigDecimal percentage;
+        private final Entry[] entries = new Entry[CACHE_SIZE];
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private volatile boolean bypassed;
+
+        Rate(BigDecimal percentage) {
+            this.percentage = percentage;
+        }
+    }
+
+    //immutable, so entries written by other threads are either seen whole or not at all
+    private record Entry(BigDecimal orderValue, BigDecimal discount) {
+    }
+
+}
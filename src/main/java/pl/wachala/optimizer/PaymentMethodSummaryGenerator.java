@@ -2,38 +2,148 @@ package pl.wachala.optimizer;
 
 import pl.wachala.models.DiscountOption;
 import pl.wachala.models.PromotionType;
+import pl.wachala.output.AsyncOutputWriter;
+import pl.wachala.util.FixedPoint;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
 
 @Component
 public class PaymentMethodSummaryGenerator {
 
+    //summary has one line per payment method, the order report one line per order
+    private static final int SUMMARY_BUFFER_SIZE = 1 << 16;
+
     public void generateSummary(Map<String, DiscountOption> discountAssignment) {
-        Map<String, BigDecimal> summary = new HashMap<>();
+        try (AsyncOutputWriter writer = AsyncOutputWriter.stdout(SUMMARY_BUFFER_SIZE)) {
+            writeSummary(discountAssignment, writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-        for (DiscountOption discountOption : discountAssignment.values()) {
-            BigDecimal previous = summary.getOrDefault(discountOption.getPaymentMethodId(), BigDecimal.ZERO);
+    //same lines as generateSummary, written to the file instead of standard output
+    public void generateSummary(Map<String, DiscountOption> discountAssignment, Path file) throws IOException {
+        try (AsyncOutputWriter writer = AsyncOutputWriter.file(file, SUMMARY_BUFFER_SIZE)) {
+            writeSummary(discountAssignment, writer);
+        }
+    }
+
+    //"<payment method id> <amount spent>" per line
+    public void writeSummary(Map<String, DiscountOption> discountAssignment, AsyncOutputWriter writer) throws IOException {
+        writeTotals(summarize(discountAssignment), writer);
+    }
+
+    //already summarized amounts (e.g. by ExternalSortSession), printed like generateSummary
+    public void generateTotals(Map<String, BigDecimal> summary) {
+        try (AsyncOutputWriter writer = AsyncOutputWriter.stdout(SUMMARY_BUFFER_SIZE)) {
+            writeTotals(summary, writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void generateTotals(Map<String, BigDecimal> summary, Path file) throws IOException {
+        try (AsyncOutputWriter writer = AsyncOutputWriter.file(file, SUMMARY_BUFFER_SIZE)) {
+            writeTotals(summary, writer);
+        }
+    }
+
+    private void writeTotals(Map<String, BigDecimal> summary, AsyncOutputWriter writer) throws IOException {
+        for (Map.Entry<String, BigDecimal> entry : summary.entrySet()) {
+            writer.write(entry.getKey()).write(' ').write(entry.getValue()).newLine();
+        }
+    }
+
+    //one line per order in the iteration order of the assignment:
+    //"<order id> <payment method id> <promo method id> <discount> <promo limit used> <value after discount>"
+    public void generateOrderReport(Map<String, DiscountOption> discountAssignment, Path file) throws IOException {
+        try (AsyncOutputWriter writer = AsyncOutputWriter.file(file, AsyncOutputWriter.DEFAULT_BUFFER_SIZE)) {
+            writeOrderReport(discountAssignment, writer);
+        }
+    }
+
+    public void writeOrderReport(Map<String, DiscountOption> discountAssignment, AsyncOutputWriter writer) throws IOException {
+        for (Map.Entry<String, DiscountOption> entry : discountAssignment.entrySet()) {
+            DiscountOption option = entry.getValue();
+            writer.write(entry.getKey()).write(' ')
+                    .write(String.valueOf(option.getPaymentMethodId())).write(' ')
+                    .write(String.valueOf(option.getPromoMethodId())).write(' ')
+                    .write(String.valueOf(option.getDiscount())).write(' ')
+                    .write(String.valueOf(option.getPromoLimitUsed())).write(' ')
+                    .write(String.valueOf(option.getValueAfterDiscount())).newLine();
+        }
+    }
 
+    //amount spent per payment method
+    public Map<String, BigDecimal> summarize(Map<String, DiscountOption> discountAssignment) {
+        Map<String, Amount> amounts = new HashMap<>();
+
+        for (DiscountOption discountOption : discountAssignment.values()) {
             if (discountOption.getPromoType() == PromotionType.CARD) {
-                summary.put(discountOption.getPaymentMethodId(), previous.add(discountOption.getValueAfterDiscount()));
+                amount(amounts, discountOption.getPaymentMethodId()).add(discountOption.getValueAfterDiscount());
             } else if (discountOption.getPromoType() == PromotionType.LOYALTY_POINTS_PARTIAL) {
                 //update loyalty points used since we partially paid with it
-                BigDecimal previousLoyaltyPoints = summary.getOrDefault(discountOption.getPromoMethodId(), BigDecimal.ZERO);
-                summary.put(discountOption.getPromoMethodId(), previousLoyaltyPoints.add(discountOption.getPromoLimitUsed()));
+                amount(amounts, discountOption.getPromoMethodId()).add(discountOption.getPromoLimitUsed());
 
                 //update card amount used since we partially paid with it
-                summary.put(discountOption.getPaymentMethodId(), previous.add(discountOption.getValueAfterDiscount()));
+                amount(amounts, discountOption.getPaymentMethodId()).add(discountOption.getValueAfterDiscount());
             } else { //fully paid with loyalty points
-                BigDecimal previousLoyaltyPoints = summary.getOrDefault(discountOption.getPromoMethodId(), BigDecimal.ZERO);
-                summary.put(discountOption.getPromoMethodId(), previousLoyaltyPoints.add(discountOption.getPromoLimitUsed()));
+                amount(amounts, discountOption.getPromoMethodId()).add(discountOption.getPromoLimitUsed());
             }
         }
 
-        for (Map.Entry<String, BigDecimal> entry : summary.entrySet()) {
-            System.out.println(entry.getKey() + " " + entry.getValue());
+        //a HashMap like the summary always was: lines follow the hash order of method ids, not any defined order, and
+        //come out as before only because the keys and the capacity are the same
+        Map<String, BigDecimal> summary = new HashMap<>();
+        for (Map.Entry<String, Amount> entry : amounts.entrySet()) {
+            summary.put(entry.getKey(), entry.getValue().toBigDecimal());
+        }
+        return summary;
+    }
+
+    private static Amount amount(Map<String, Amount> amounts, String paymentMethodId) {
+        Amount amount = amounts.get(paymentMethodId);
+        if (amount == null) {
+            amount = new Amount();
+            amounts.put(paymentMethodId, amount);
+        }
+        return amount;
+    }
+
+    //mutable sum in minor units, equal to BigDecimal.ZERO.add(...).add(...) including its scale; amounts with more than
+    //two decimal places or overflowing long continue as BigDecimal
+    static class Amount {
+        private long cents;
+        //scale of the sum is the largest scale of the addends, and at least that of BigDecimal.ZERO
+        private int scale;
+        private BigDecimal exact;
+
+        void add(BigDecimal value) {
+            if (exact == null) {
+                try {
+                    cents = Math.addExact(cents, FixedPoint.toCents(value));
+                    scale = Math.max(scale, value.scale());
+                    return;
+                } catch (ArithmeticException e) {
+                    exact = toBigDecimal();
+                }
+            }
+            exact = exact.add(value);
+        }
+
+        BigDecimal toBigDecimal() {
+            if (exact != null) {
+                return exact;
+            }
+            //sum of addends with at most this scale is exact at it
+            return FixedPoint.toBigDecimal(cents).setScale(scale, RoundingMode.UNNECESSARY);
         }
     }
 
@@ -0,0 +1,73 @@
+package pl.wachala.optimizer;
+
+//LSD radix sort of row numbers by their long keys, descending. Every pass is a stable counting sort on one byte of the
+//key, so rows with equal keys keep their order, same as in the merge sort of CandidateTable and List.sort. Passes on
+//bytes equal for all keys (high bytes of amounts in grosze) are skipped.
+final class RadixSort {
+
+    //below this the merge sort is faster than clearing and scanning the histograms
+    static final int MIN_SIZE = 256;
+
+    private static final int BITS = 8;
+    private static final int RADIX = 1 << BITS;
+    private static final int PASSES = Long.SIZE / BITS;
+
+    private RadixSort() {
+    }
+
+    //sorts first count rows by keys[row] descending, equal keys keep their order in the array
+    static void sortDescending(int[] rows, long[] keys, int count) {
+        if (count <= 1) {
+            return;
+        }
+
+        //unsigned ascending order of the flipped key is signed descending order of the key
+        long[] sortKeys = new long[count];
+        int[] histograms = new int[PASSES * RADIX];
+        for (int i = 0; i < count; i++) {
+            long key = keys[rows[i]] ^ Long.MAX_VALUE;
+            sortKeys[i] = key;
+            for (int pass = 0; pass < PASSES; pass++) {
+                histograms[pass * RADIX + (int) (key >>> pass * BITS & RADIX - 1)]++;
+            }
+        }
+
+        int[] sourceRows = rows;
+        long[] sourceKeys = sortKeys;
+        int[] targetRows = new int[count];
+        long[] targetKeys = new long[count];
+        int[] positions = new int[RADIX];
+
+        for (int pass = 0; pass < PASSES; pass++) {
+            int offset = pass * RADIX;
+            int shift = pass * BITS;
+            if (histograms[offset + (int) (sourceKeys[0] >>> shift & RADIX - 1)] == count) {
+                continue;
+            }
+
+            int position = 0;
+            for (int digit = 0; digit < RADIX; digit++) {
+                positions[digit] = position;
+                position += histograms[offset + digit];
+            }
+            for (int i = 0; i < count; i++) {
+                long key = sourceKeys[i];
+                int target = positions[(int) (key >>> shift & RADIX - 1)]++;
+                targetRows[target] = sourceRows[i];
+                targetKeys[target] = key;
+            }
+
+            int[] swapRows = sourceRows;
+            sourceRows = targetRows;
+            targetRows = swapRows;
+            long[] swapKeys = sourceKeys;
+            sourceKeys = targetKeys;
+            targetKeys = swapKeys;
+        }
+
+        if (sourceRows != rows) {
+            System.arraycopy(sourceRows, 0, rows, 0, count);
+        }
+    }
+
+}
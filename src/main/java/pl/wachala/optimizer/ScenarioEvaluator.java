@@ -0,0 +1,136 @@
+package pl.wachala.optimizer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import pl.wachala.config.OptimizerProperties;
+import pl.wachala.metrics.MetricsRegistry;
+import pl.wachala.metrics.Phase;
+import pl.wachala.models.DiscountOption;
+import pl.wachala.models.Order;
+import pl.wachala.models.PaymentMethod;
+import pl.wachala.util.Consts;
+import pl.wachala.util.IdDictionary;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+//What-if runs of the greedy assignment: one batch of orders evaluated against many sets of limits. Scenarios may differ
+//in limits only, so discount options are generated and sorted once and each scenario just runs its own greedy pass
+//over them. Scenarios are evaluated on optimizer.parallelism threads, results are the same as separate runs.
+@Component
+public class ScenarioEvaluator {
+
+    private final PaymentMethodAssigner assigner;
+    private final PaymentMethodSummaryGenerator summaryGenerator;
+    private final OptimizerProperties properties;
+
+    public ScenarioEvaluator() {
+        this(new OptimizerProperties());
+    }
+
+    public ScenarioEvaluator(OptimizerProperties properties) {
+        this(new PaymentMethodAssigner(properties), new PaymentMethodSummaryGenerator(), properties);
+    }
+
+    @Autowired
+    public ScenarioEvaluator(PaymentMethodAssigner assigner, PaymentMethodSummaryGenerator summaryGenerator, OptimizerProperties properties) {
+        this.assigner = assigner;
+        this.summaryGenerator = summaryGenerator;
+        this.properties = properties;
+    }
+
+    //results in scenario order, throws IllegalArgumentException when scenarios differ in anything but limits
+    public List<ScenarioResult> evaluate(List<Order> orders, List<List<PaymentMethod>> scenarios) {
+        if (scenarios.isEmpty()) {
+            return List.of();
+        }
+        List<PaymentMethod> base = scenarios.get(0);
+        for (int i = 1; i < scenarios.size(); i++) {
+            checkSameMethods(base, scenarios.get(i), i);
+        }
+
+        String defaultPaymentMethod = assigner.getDefaultPaymentMethod(base);
+        int parallelism = properties.getParallelism();
+        ScenarioResult[] results = new ScenarioResult[scenarios.size()];
+
+        FixedPointEngine engine = FixedPointEngine.create(assigner, base, defaultPaymentMethod, new IdDictionary(), new IdDictionary());
+        long[][] limits = engine != null ? limitsOf(engine, scenarios) : null;
+        if (limits != null && engine.addAll(orders, parallelism)) {
+            int[] sorted = engine.sortedCandidates();
+            ParallelChunks.forEach(scenarios.size(), parallelism, scenario -> {
+                List<PaymentMethod> paymentMethods = scenarios.get(scenario);
+                int[] winners = engine.selectGreedy(sorted, limits[scenario]);
+                engine.recordPrunedNeeded(winners, limits[scenario]);
+                results[scenario] = result(paymentMethods, engine.buildAssignment(winners, loyaltyPointsLimit(paymentMethods)));
+            });
+        } else {
+            //some amount has more than two decimal places or is too large - BigDecimal arithmetic is used instead
+            List<DiscountOption> possibleDiscounts;
+            try (MetricsRegistry.PhaseTimer ignored = assigner.getMetrics().time(Phase.CANDIDATE_GENERATION)) {
+                possibleDiscounts = assigner.getPossibleDiscounts(orders, assigner.getMethodsMap(base), defaultPaymentMethod);
+            }
+            assigner.getMetrics().increment(MetricsRegistry.CANDIDATES, possibleDiscounts.size());
+            try (MetricsRegistry.PhaseTimer ignored = assigner.getMetrics().time(Phase.SORT)) {
+                PaymentMethodAssigner.sortByPromoLimitUsedDesc(possibleDiscounts);
+            }
+
+            ParallelChunks.forEach(scenarios.size(), parallelism, scenario -> {
+                List<PaymentMethod> paymentMethods = scenarios.get(scenario);
+                results[scenario] = result(paymentMethods, assigner.getAssignmentGreedy(orders, paymentMethods, possibleDiscounts, defaultPaymentMethod));
+            });
+        }
+
+        assigner.getMetrics().increment(MetricsRegistry.ORDERS, orders.size());
+        return Arrays.asList(results);
+    }
+
+    private ScenarioResult result(List<PaymentMethod> paymentMethods, Map<String, DiscountOption> assignment) {
+        Map<String, BigDecimal> summary;
+        try (MetricsRegistry.PhaseTimer ignored = assigner.getMetrics().time(Phase.SUMMARY)) {
+            summary = summaryGenerator.summarize(assignment);
+        }
+        return ScenarioResult.builder()
+                .paymentMethods(paymentMethods)
+                .assignment(assignment)
+                .summary(summary)
+                .totalDiscount(AssignmentResult.totalDiscount(assignment))
+                .build();
+    }
+
+    //null when some limit can't be represented in minor units
+    private static long[][] limitsOf(FixedPointEngine engine, List<List<PaymentMethod>> scenarios) {
+        long[][] limits = new long[scenarios.size()][];
+        for (int i = 0; i < limits.length; i++) {
+            limits[i] = engine.limitsOf(scenarios.get(i));
+            if (limits[i] == null) {
+                return null;
+            }
+        }
+        return limits;
+    }
+
+    //limit of the last PUNKTY definition, like in HashMap based lookups
+    private BigDecimal loyaltyPointsLimit(List<PaymentMethod> paymentMethods) {
+        PaymentMethod loyaltyPoints = assigner.getMethodsMap(paymentMethods).get(Consts.LOYALTY_POINTS_PAYMENT_METHOD_ID);
+        return loyaltyPoints != null ? loyaltyPoints.getLimit() : null;
+    }
+
+    //discount options depend on method ids, their order (default method) and discounts, these have to match
+    private static void checkSameMethods(List<PaymentMethod> base, List<PaymentMethod> scenario, int index) {
+        if (base.size() != scenario.size()) {
+            throw new IllegalArgumentException("Scenario " + index + " has " + scenario.size() + " payment methods while the first one has " + base.size() + ".");
+        }
+        for (int i = 0; i < base.size(); i++) {
+            PaymentMethod expected = base.get(i);
+            PaymentMethod actual = scenario.get(i);
+            if (!Objects.equals(expected.getId(), actual.getId()) || expected.getDiscount() != actual.getDiscount()) {
+                throw new IllegalArgumentException("Scenario " + index + " differs from the first one in payment method " + actual.getId()
+                        + " - only limits may change between scenarios.");
+            }
+        }
+    }
+
+}
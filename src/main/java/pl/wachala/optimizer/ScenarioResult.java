@@ -0,0 +1,21 @@
+package pl.wachala.optimizer;
+
+import lombok.Builder;
+import lombok.Getter;
+import pl.wachala.models.DiscountOption;
+import pl.wachala.models.PaymentMethod;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+@Getter
+@Builder
+public class ScenarioResult {
+    //payment methods (with limits of this scenario) the assignment was computed for
+    private List<PaymentMethod> paymentMethods;
+    private Map<String, DiscountOption> assignment;
+    //amount spent per payment method, see PaymentMethodSummaryGenerator
+    private Map<String, BigDecimal> summary;
+    private BigDecimal totalDiscount;
+}
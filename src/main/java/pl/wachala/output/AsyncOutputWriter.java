@@ -0,0 +1,205 @@
+package pl.wachala.output;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+//Text output encoded as UTF-8 into a large buffer, full buffers are written to the sink (stdout, file or any channel) by
+//a dedicated thread while the caller fills the other one. Not thread safe, one thread produces the output. Errors of the
+//sink are thrown by the next write or by close.
+public class AsyncOutputWriter implements Closeable {
+
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+    //handed to the writer thread after the last buffer
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+    private final WritableByteChannel channel;
+    private final boolean closeChannel;
+    //flushed after the last write, System.out buffers what it gets
+    private final Flushable flushable;
+
+    private final BlockingQueue<ByteBuffer> filled = new ArrayBlockingQueue<>(2);
+    private final BlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<>(2);
+    private final Thread writerThread;
+    private volatile IOException failure;
+
+    private ByteBuffer current;
+    private boolean closed;
+
+    private AsyncOutputWriter(WritableByteChannel channel, boolean closeChannel, Flushable flushable, int bufferSize) {
+        this.channel = channel;
+        this.closeChannel = closeChannel;
+        this.flushable = flushable;
+        this.current = ByteBuffer.allocate(bufferSize);
+        free.add(ByteBuffer.allocate(bufferSize));
+
+        this.writerThread = new Thread(this::writeBuffers, "output-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    //System.out at the time of the call
+    public static AsyncOutputWriter stdout(int bufferSize) {
+        return new AsyncOutputWriter(Channels.newChannel(System.out), false, System.out, bufferSize);
+    }
+
+    //file is created or truncated, and closed together with the writer
+    public static AsyncOutputWriter file(Path file, int bufferSize) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        return new AsyncOutputWriter(channel, true, null, bufferSize);
+    }
+
+    //channel stays open after the writer is closed
+    public static AsyncOutputWriter channel(WritableByteChannel channel, int bufferSize) {
+        return new AsyncOutputWriter(channel, false, null, bufferSize);
+    }
+
+    public AsyncOutputWriter write(String text) throws IOException {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char character = text.charAt(i);
+            if (character >= 0x80) {
+                //rest of the text (e.g. a non-ASCII id) goes through the encoder
+                putBytes(text.substring(i).getBytes(StandardCharsets.UTF_8));
+                return this;
+            }
+            putByte((byte) character);
+        }
+        return this;
+    }
+
+    public AsyncOutputWriter write(char character) throws IOException {
+        if (character >= 0x80) {
+            return write(String.valueOf(character));
+        }
+        putByte((byte) character);
+        return this;
+    }
+
+    //same text as String.valueOf(value)
+    public AsyncOutputWriter write(BigDecimal value) throws IOException {
+        return write(value.toString());
+    }
+
+    //System.lineSeparator(), like println
+    public AsyncOutputWriter newLine() throws IOException {
+        putBytes(LINE_SEPARATOR);
+        return this;
+    }
+
+    //writes what is buffered and waits for the writer thread, the sink is flushed (and closed for files)
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        try {
+            current.flip();
+            filled.put(current);
+            filled.put(END);
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while writing output");
+        } finally {
+            current = null;
+        }
+
+        try {
+            if (failure == null && flushable != null) {
+                flushable.flush();
+            }
+        } finally {
+            if (closeChannel) {
+                channel.close();
+            }
+        }
+        if (failure != null) {
+            throw failed();
+        }
+    }
+
+    private void putByte(byte value) throws IOException {
+        if (!current.hasRemaining()) {
+            handOff();
+        }
+        current.put(value);
+    }
+
+    private void putBytes(byte[] bytes) throws IOException {
+        int written = 0;
+        while (written < bytes.length) {
+            if (!current.hasRemaining()) {
+                handOff();
+            }
+            int length = Math.min(current.remaining(), bytes.length - written);
+            current.put(bytes, written, length);
+            written += length;
+        }
+    }
+
+    //full buffer goes to the writer thread, the other one is filled in the meantime
+    private void handOff() throws IOException {
+        if (closed) {
+            throw new IOException("Output writer is closed");
+        }
+        if (failure != null) {
+            throw failed();
+        }
+
+        try {
+            current.flip();
+            filled.put(current);
+            current = free.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while writing output");
+        }
+    }
+
+    //new exception every time, the failure may be thrown by a write and again by close in the same try-with-resources
+    private IOException failed() {
+        return new IOException("Writing output failed: " + failure.getMessage(), failure);
+    }
+
+    //writer thread, after a failure buffers are only returned so that the producer doesn't block
+    private void writeBuffers() {
+        try {
+            while (true) {
+                ByteBuffer buffer = filled.take();
+                if (buffer == END) {
+                    return;
+                }
+                if (failure == null) {
+                    try {
+                        while (buffer.hasRemaining()) {
+                            channel.write(buffer);
+                        }
+                    } catch (IOException e) {
+                        failure = e;
+                    }
+                }
+                buffer.clear();
+                free.put(buffer);
+            }
+        } catch (InterruptedException e) {
+            failure = new InterruptedIOException("Output writer thread interrupted");
+        }
+    }
+
+}
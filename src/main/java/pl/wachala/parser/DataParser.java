@@ -1,25 +1,47 @@
 package pl.wachala.parser;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import lombok.RequiredArgsConstructor;
+import pl.wachala.config.OptimizerProperties;
 import pl.wachala.models.Order;
 import pl.wachala.models.PaymentMethod;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import pl.wachala.util.Consts;
+import pl.wachala.util.IdDictionary;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 @Component
-@RequiredArgsConstructor
 public class DataParser {
 
-    @Autowired
     private final ObjectMapper mapper;
+    private final OptimizerProperties properties;
+
+    public DataParser(ObjectMapper mapper) {
+        this(mapper, new OptimizerProperties());
+    }
+
+    @Autowired
+    public DataParser(ObjectMapper mapper, OptimizerProperties properties) {
+        this.mapper = mapper;
+        this.properties = properties;
+    }
 
     public List<PaymentMethod> parsePaymentMethods(String paymentMethodsFile) throws IOException {
         List<PaymentMethod> paymentMethods = mapper.readValue(new File(paymentMethodsFile), new TypeReference<>() {
@@ -32,20 +54,178 @@ public class DataParser {
         return paymentMethods;
     }
 
+    //parses payment methods and registers their ids in the dictionary
+    public List<PaymentMethod> parsePaymentMethods(String paymentMethodsFile, IdDictionary methodIds) throws IOException {
+        List<PaymentMethod> paymentMethods = parsePaymentMethods(paymentMethodsFile);
+        for (PaymentMethod method : paymentMethods) {
+            methodIds.intern(method.getId());
+        }
+        return paymentMethods;
+    }
+
 
+    //orders.json or a binary snapshot written by convertToSnapshot
     public List<Order> parseOrders(String filePath) throws IOException {
+        if (OrderSnapshot.isSnapshot(Path.of(filePath))) {
+            return OrderSnapshot.open(Path.of(filePath)).toOrders();
+        }
+        if (properties.isMappedOrderScanner()) {
+            List<Order> scanned = MappedOrdersScanner.scan(Path.of(filePath));
+            if (scanned != null) {
+                return scanned;
+            }
+            //unexpected shape - Jackson parses the file or reports what's wrong with it
+        }
+
         List<Order> orders = mapper.readValue(new File(filePath), new TypeReference<>() {
         });
 
         for (Order order : orders) {
-            if (order.getPromotions() == null) {
-                order.setPromotions(new ArrayList<>());
-            }
+            normalizeOrder(order);
         }
 
         return orders;
     }
 
+    //orders sent over the network (service mode), same format as orders file
+    public List<Order> parseOrders(InputStream input) throws IOException {
+        List<Order> orders = mapper.readValue(input, new TypeReference<>() {
+        });
+
+        for (Order order : orders) {
+            normalizeOrder(order);
+        }
+
+        return orders;
+    }
+
+    //parses orders and registers their ids in the dictionary, several files can be given as described in OrderFiles
+    public List<Order> parseOrders(String filePath, IdDictionary orderIds) throws IOException {
+        if (OrderFiles.isPattern(filePath)) {
+            return parseOrderFiles(filePath, orderIds);
+        }
+
+        List<Order> orders = parseOrders(filePath);
+        for (Order order : orders) {
+            orderIds.intern(order.getId());
+        }
+        return orders;
+    }
+
+    //orders of all files named by the argument (see OrderFiles), concatenated in file order with ids registered in the
+    //dictionary; every file is parsed on its own thread, at most optimizer.ingestion-threads at a time, so that reading
+    //from slow (network) storage overlaps with parsing. Throws IOException when an order id appears more than once.
+    public List<Order> parseOrderFiles(String filesArgument, IdDictionary orderIds) throws IOException {
+        List<Path> files = OrderFiles.resolve(filesArgument);
+        List<List<Order>> parsed = parseConcurrently(files);
+
+        Map<String, Path> firstFile = new HashMap<>();
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < files.size(); i++) {
+            for (Order order : parsed.get(i)) {
+                Path previous = firstFile.putIfAbsent(order.getId(), files.get(i));
+                if (previous != null) {
+                    throw new IOException("Order id " + order.getId() + " appears in " + previous + " and " + files.get(i) + ".");
+                }
+                orders.add(order);
+                orderIds.intern(order.getId());
+            }
+        }
+        return orders;
+    }
+
+    //Java 17 has no virtual threads, a platform thread per file (up to the limit) overlaps the waits instead
+    private List<List<Order>> parseConcurrently(List<Path> files) throws IOException {
+        int threads = Math.max(1, Math.min(files.size(), properties.getIngestionThreads()));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<Order>>> futures = new ArrayList<>();
+            for (Path file : files) {
+                futures.add(executor.submit(() -> parseOrders(file.toString())));
+            }
+
+            List<List<Order>> parsed = new ArrayList<>();
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    parsed.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof Error error) {
+                        throw error;
+                    }
+                    //IllegalArgumentException of values the snapshot or the scanner can't represent included, so that the
+                    //failing file is named
+                    throw new IOException("Orders file " + files.get(i) + " can't be read: " + e.getCause().getMessage(), e.getCause());
+                }
+            }
+            return parsed;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while parsing orders files");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    //reads orders one by one and hands each of them to the consumer, so only a single order is held by the parser at a
+    //time; several files (see OrderFiles) are read one after another, without checking for repeated order ids
+    public long streamOrders(String filePath, Consumer<Order> consumer) throws IOException {
+        if (OrderFiles.isPattern(filePath)) {
+            long count = 0;
+            for (Path file : OrderFiles.resolve(filePath)) {
+                count += streamOrders(file.toString(), consumer);
+            }
+            return count;
+        }
+
+        if (OrderSnapshot.isSnapshot(Path.of(filePath))) {
+            OrderSnapshot snapshot = OrderSnapshot.open(Path.of(filePath));
+            snapshot.forEach(consumer);
+            return snapshot.getOrdersCount();
+        }
+
+        long count = 0;
+
+        try (JsonParser jsonParser = mapper.getFactory().createParser(new File(filePath))) {
+            if (jsonParser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Orders file " + filePath + " has to contain an array of orders.");
+            }
+
+            while (jsonParser.nextToken() == JsonToken.START_OBJECT) {
+                Order order = mapper.readValue(jsonParser, Order.class);
+                normalizeOrder(order);
+                consumer.accept(order);
+                count++;
+            }
+
+            if (jsonParser.currentToken() != JsonToken.END_ARRAY) {
+                throw new IOException("Unexpected token " + jsonParser.currentToken() + " in orders file " + filePath + ".");
+            }
+        }
+
+        return count;
+    }
+
+    public long streamOrders(String filePath, Consumer<Order> consumer, IdDictionary orderIds) throws IOException {
+        return streamOrders(filePath, order -> {
+            orderIds.intern(order.getId());
+            consumer.accept(order);
+        });
+    }
+
+    //parses orders.json once into the binary snapshot format, later runs can read the snapshot instead
+    public int convertToSnapshot(String ordersFilePath, String snapshotFilePath) throws IOException {
+        OrderSnapshotWriter writer = new OrderSnapshotWriter();
+        streamOrders(ordersFilePath, writer);
+        writer.write(Path.of(snapshotFilePath));
+        return writer.getOrdersCount();
+    }
+
+    private void normalizeOrder(Order order) {
+        if (order.getPromotions() == null) {
+            order.setPromotions(new ArrayList<>());
+        }
+    }
+
     private boolean methodsValidation(List<PaymentMethod> paymentMethods) {
         boolean hasPoints = false;
         boolean hasOther = false;
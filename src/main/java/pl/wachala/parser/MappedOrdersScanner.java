@@ -0,0 +1,349 @@
+package pl.wachala.parser;
+
+import pl.wachala.models.Order;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+//Reader of orders.json specialized to its fixed schema: an array of objects with "id" (string), "value" (number or
+//numeric string) and optional "promotions" (array of strings or null). Works directly on the memory mapped file, values
+//are accumulated into a long unscaled amount and turned into BigDecimal without String intermediates, repeated
+//promotion ids share one String.
+//
+//Anything else (escapes in strings, exponents, unknown, missing or repeated fields, files over 2 GB, ...) makes scan
+//return null, so that the caller can parse the file with Jackson, which either handles it or reports the error.
+class MappedOrdersScanner {
+
+    private static final int MAX_UNSCALED_DIGITS = 18;
+    private static final int CACHE_SIZE = 1 << 12;
+
+    private final MappedByteBuffer buffer;
+    private final int size;
+    private int position;
+
+    //promotion id bytes -> String, open addressing, entries are never evicted
+    private final byte[][] cachedBytes = new byte[CACHE_SIZE][];
+    private final String[] cachedStrings = new String[CACHE_SIZE];
+    private int cachedCount;
+
+    //bounds of the last scanned string, without quotes
+    private int stringStart;
+    private int stringEnd;
+    private boolean stringAscii;
+
+    private MappedOrdersScanner(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+        this.size = buffer.limit();
+    }
+
+    //null when the file doesn't have the expected shape
+    static List<Order> scan(Path file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                return null;
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        try {
+            return new MappedOrdersScanner(buffer).orders();
+        } catch (UnexpectedShapeException e) {
+            return null;
+        }
+    }
+
+    private List<Order> orders() throws UnexpectedShapeException {
+        List<Order> orders = new ArrayList<>();
+        skipByteOrderMark();
+        expect('[');
+        if (peek() == ']') {
+            position++;
+        } else {
+            while (true) {
+                orders.add(order());
+                byte next = next();
+                if (next == ']') {
+                    break;
+                }
+                if (next != ',') {
+                    throw new UnexpectedShapeException();
+                }
+            }
+        }
+        skipWhitespace();
+        if (position != size) {
+            throw new UnexpectedShapeException();
+        }
+        return orders;
+    }
+
+    private Order order() throws UnexpectedShapeException {
+        String id = null;
+        BigDecimal value = null;
+        List<String> promotions = null;
+        boolean promotionsSeen = false;
+
+        expect('{');
+        if (peek() == '}') {
+            throw new UnexpectedShapeException();
+        }
+        while (true) {
+            expect('"');
+            string();
+            expect(':');
+            if (fieldIs("id") && id == null) {
+                expect('"');
+                string();
+                id = decode();
+            } else if (fieldIs("value") && value == null) {
+                value = value();
+            } else if (fieldIs("promotions") && !promotionsSeen) {
+                promotionsSeen = true;
+                promotions = promotions();
+            } else {
+                throw new UnexpectedShapeException();
+            }
+
+            byte next = next();
+            if (next == '}') {
+                break;
+            }
+            if (next != ',') {
+                throw new UnexpectedShapeException();
+            }
+        }
+
+        if (id == null || value == null) {
+            throw new UnexpectedShapeException();
+        }
+        return new Order(id, value, promotions != null ? promotions : new ArrayList<>());
+    }
+
+    //-?digits(.digits)?, optionally quoted
+    private BigDecimal value() throws UnexpectedShapeException {
+        skipWhitespace();
+        boolean quoted = position < size && buffer.get(position) == '"';
+        if (quoted) {
+            position++;
+        }
+
+        boolean negative = position < size && buffer.get(position) == '-';
+        if (negative) {
+            position++;
+        }
+        //JSON numbers don't have leading zeros
+        boolean leadingZero = position + 1 < size && buffer.get(position) == '0' && buffer.get(position + 1) >= '0' && buffer.get(position + 1) <= '9';
+        if (leadingZero && !quoted) {
+            throw new UnexpectedShapeException();
+        }
+        long unscaled = 0;
+        int digits = 0;
+        int integerDigits = 0;
+        int scale = 0;
+        boolean fraction = false;
+        while (position < size) {
+            byte current = buffer.get(position);
+            if (current >= '0' && current <= '9') {
+                if (++digits > MAX_UNSCALED_DIGITS) {
+                    throw new UnexpectedShapeException();
+                }
+                unscaled = unscaled * 10 + (current - '0');
+                if (fraction) {
+                    scale++;
+                } else {
+                    integerDigits++;
+                }
+            } else if (current == '.' && !fraction && integerDigits > 0) {
+                fraction = true;
+            } else {
+                break;
+            }
+            position++;
+        }
+
+        if (integerDigits == 0 || fraction && scale == 0) {
+            throw new UnexpectedShapeException();
+        }
+        if (quoted) {
+            if (position >= size || buffer.get(position) != '"') {
+                throw new UnexpectedShapeException();
+            }
+            position++;
+        }
+        return BigDecimal.valueOf(negative ? -unscaled : unscaled, scale);
+    }
+
+    private List<String> promotions() throws UnexpectedShapeException {
+        skipWhitespace();
+        if (matchLiteral("null")) {
+            return null;
+        }
+
+        List<String> promotions = new ArrayList<>();
+        expect('[');
+        if (peek() == ']') {
+            position++;
+            return promotions;
+        }
+        while (true) {
+            expect('"');
+            promotions.add(cached());
+            byte next = next();
+            if (next == ']') {
+                return promotions;
+            }
+            if (next != ',') {
+                throw new UnexpectedShapeException();
+            }
+        }
+    }
+
+    //scans string contents after the opening quote, escapes and control characters are not supported
+    private void string() throws UnexpectedShapeException {
+        stringStart = position;
+        stringAscii = true;
+        while (position < size) {
+            byte current = buffer.get(position);
+            if (current == '"') {
+                stringEnd = position++;
+                return;
+            }
+            if (current == '\\' || current >= 0 && current < 0x20) {
+                throw new UnexpectedShapeException();
+            }
+            if (current < 0) {
+                stringAscii = false;
+            }
+            position++;
+        }
+        throw new UnexpectedShapeException();
+    }
+
+    private boolean fieldIs(String name) {
+        if (stringEnd - stringStart != name.length()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (buffer.get(stringStart + i) != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String decode() {
+        byte[] bytes = new byte[stringEnd - stringStart];
+        buffer.get(stringStart, bytes);
+        return new String(bytes, stringAscii ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+    }
+
+    //promotion ids repeat across orders, the String of an id is created once
+    private String cached() throws UnexpectedShapeException {
+        string();
+        int hash = 1;
+        for (int i = stringStart; i < stringEnd; i++) {
+            hash = 31 * hash + buffer.get(i);
+        }
+
+        int length = stringEnd - stringStart;
+        int slot = (hash ^ hash >>> 16) & (CACHE_SIZE - 1);
+        while (cachedBytes[slot] != null) {
+            if (equalsCurrent(cachedBytes[slot], length)) {
+                return cachedStrings[slot];
+            }
+            slot = (slot + 1) & (CACHE_SIZE - 1);
+        }
+
+        String id = decode();
+        //keep the table at most half full
+        if (cachedCount < CACHE_SIZE / 2) {
+            byte[] bytes = new byte[length];
+            buffer.get(stringStart, bytes);
+            cachedBytes[slot] = bytes;
+            cachedStrings[slot] = id;
+            cachedCount++;
+        }
+        return id;
+    }
+
+    private boolean equalsCurrent(byte[] bytes, int length) {
+        if (bytes.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (bytes[i] != buffer.get(stringStart + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean matchLiteral(String literal) {
+        if (position + literal.length() > size) {
+            return false;
+        }
+        for (int i = 0; i < literal.length(); i++) {
+            if (buffer.get(position + i) != literal.charAt(i)) {
+                return false;
+            }
+        }
+        position += literal.length();
+        return true;
+    }
+
+    private void skipByteOrderMark() {
+        if (size >= 3 && buffer.get(0) == (byte) 0xEF && buffer.get(1) == (byte) 0xBB && buffer.get(2) == (byte) 0xBF) {
+            position = 3;
+        }
+    }
+
+    private void expect(char expected) throws UnexpectedShapeException {
+        if (next() != expected) {
+            throw new UnexpectedShapeException();
+        }
+    }
+
+    //next non-whitespace byte, consumed
+    private byte next() throws UnexpectedShapeException {
+        skipWhitespace();
+        if (position >= size) {
+            throw new UnexpectedShapeException();
+        }
+        return buffer.get(position++);
+    }
+
+    //next non-whitespace byte, not consumed
+    private byte peek() throws UnexpectedShapeException {
+        skipWhitespace();
+        if (position >= size) {
+            throw new UnexpectedShapeException();
+        }
+        return buffer.get(position);
+    }
+
+    private void skipWhitespace() {
+        while (position < size) {
+            byte current = buffer.get(position);
+            if (current != ' ' && current != '\n' && current != '\r' && current != '\t') {
+                return;
+            }
+            position++;
+        }
+    }
+
+    //thrown deep inside the scan, turned into a null result
+    private static class UnexpectedShapeException extends Exception {
+        UnexpectedShapeException() {
+            super(null, null, false, false);
+        }
+    }
+
+}
@@ -0,0 +1,94 @@
+package pl.wachala.parser;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+//Orders argument naming several files: comma separated paths and glob patterns, e.g. "stores/*/orders.json,extra.json".
+//The directory before the first wildcard is walked and the rest of the pattern is matched against paths relative to it.
+public final class OrderFiles {
+
+    private static final String GLOB_CHARACTERS = "*?[{";
+
+    private OrderFiles() {
+    }
+
+    //true when the argument names files through a list or a pattern; an existing file is always read as a single file,
+    //even when its name contains a comma or wildcard characters
+    public static boolean isPattern(String argument) {
+        if (!hasPatternCharacters(argument)) {
+            return false;
+        }
+        try {
+            return !Files.exists(Path.of(argument));
+        } catch (InvalidPathException e) {
+            //e.g. '*' on Windows, can't be a literal file name there
+            return true;
+        }
+    }
+
+    private static boolean hasPatternCharacters(String argument) {
+        if (argument.indexOf(',') >= 0) {
+            return true;
+        }
+        for (int i = 0; i < argument.length(); i++) {
+            if (GLOB_CHARACTERS.indexOf(argument.charAt(i)) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //files in the order they are listed, matches of one pattern sorted by path; a file named twice is returned once
+    public static List<Path> resolve(String argument) throws IOException {
+        Set<Path> files = new LinkedHashSet<>();
+        for (String part : argument.split(",")) {
+            String pattern = part.trim();
+            if (pattern.isEmpty()) {
+                continue;
+            }
+            if (isPattern(pattern)) {
+                files.addAll(match(pattern));
+            } else {
+                files.add(Path.of(pattern).normalize());
+            }
+        }
+
+        if (files.isEmpty()) {
+            throw new IOException("No orders files match " + argument + ".");
+        }
+        return new ArrayList<>(files);
+    }
+
+    private static List<Path> match(String pattern) throws IOException {
+        int firstWildcard = 0;
+        while (GLOB_CHARACTERS.indexOf(pattern.charAt(firstWildcard)) < 0) {
+            firstWildcard++;
+        }
+        int separator = Math.max(pattern.lastIndexOf('/', firstWildcard), pattern.lastIndexOf('\\', firstWildcard));
+        Path directory = Path.of(separator >= 0 ? pattern.substring(0, separator + 1) : ".").normalize();
+        String relativePattern = pattern.substring(separator + 1);
+
+        //each separator of the pattern is one more directory level, ** may match any number of them
+        int depth = relativePattern.contains("**") ? Integer.MAX_VALUE : relativePattern.split("[/\\\\]").length;
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + relativePattern);
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> paths = Files.walk(directory, depth)) {
+            return paths.filter(Files::isRegularFile)
+                    .filter(path -> matcher.matches(directory.relativize(path)))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+}
@@ -0,0 +1,220 @@
+package pl.wachala.parser;
+
+import pl.wachala.models.Order;
+import pl.wachala.util.FixedPoint;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+//Pre-parsed batch of orders in a binary columnar file, written by OrderSnapshotWriter. Every column is memory mapped and
+//read in place, nothing is parsed per record:
+//
+//  header     magic, version, orders count, ids count, promotion ids count, promotions count, reserved (32 bytes)
+//  values     long[orders]        order value in grosze
+//  ids        int[orders]         index into the order ids dictionary (orders may share an id)
+//  starts     int[orders + 1]     promotions of order i are promotions[starts[i]..starts[i + 1])
+//  promotions int[promotions]     index into the promotion ids dictionary
+//  dictionaries of order ids and promotion ids: int[count + 1] byte offsets of both
+//  scales     byte[orders]        scale of the value as written in orders.json, so that the same BigDecimal is restored
+//  UTF-8 bytes of order ids, then of promotion ids
+//
+//All numbers are little endian.
+public class OrderSnapshot {
+
+    //"OPTORDS1" in file byte order
+    static final long MAGIC = 0x31534452_4F54504FL;
+    static final int VERSION = 1;
+    static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+    private static final int HEADER_SIZE = 32;
+
+    private final int ordersCount;
+    private final LongBuffer values;
+    private final IntBuffer idIndexes;
+    private final IntBuffer promotionsStart;
+    private final IntBuffer promotions;
+    private final ByteBuffer scales;
+    private final Dictionary ids;
+    private final Dictionary promotionIds;
+
+    private OrderSnapshot(FileChannel channel) throws IOException {
+        ByteBuffer header = map(channel, 0, HEADER_SIZE);
+        if (header.getLong(0) != MAGIC) {
+            throw new IOException("File is not an orders snapshot.");
+        }
+        if (header.getInt(8) != VERSION) {
+            throw new IOException("Unsupported orders snapshot version " + header.getInt(8) + ".");
+        }
+        this.ordersCount = header.getInt(12);
+        int idsCount = header.getInt(16);
+        int promotionIdsCount = header.getInt(20);
+        int promotionsCount = header.getInt(24);
+
+        long offset = HEADER_SIZE;
+        this.values = map(channel, offset, (long) ordersCount * Long.BYTES).asLongBuffer();
+        offset += (long) ordersCount * Long.BYTES;
+        this.idIndexes = map(channel, offset, (long) ordersCount * Integer.BYTES).asIntBuffer();
+        offset += (long) ordersCount * Integer.BYTES;
+        this.promotionsStart = map(channel, offset, (long) (ordersCount + 1) * Integer.BYTES).asIntBuffer();
+        offset += (long) (ordersCount + 1) * Integer.BYTES;
+        this.promotions = map(channel, offset, (long) promotionsCount * Integer.BYTES).asIntBuffer();
+        offset += (long) promotionsCount * Integer.BYTES;
+
+        IntBuffer idOffsets = map(channel, offset, (long) (idsCount + 1) * Integer.BYTES).asIntBuffer();
+        offset += (long) (idsCount + 1) * Integer.BYTES;
+        IntBuffer promotionIdOffsets = map(channel, offset, (long) (promotionIdsCount + 1) * Integer.BYTES).asIntBuffer();
+        offset += (long) (promotionIdsCount + 1) * Integer.BYTES;
+        this.scales = map(channel, offset, ordersCount);
+        offset += ordersCount;
+
+        int idBytes = idOffsets.get(idsCount);
+        this.ids = new Dictionary(idOffsets, map(channel, offset, idBytes), idsCount);
+        offset += idBytes;
+        int promotionIdBytes = promotionIdOffsets.get(promotionIdsCount);
+        this.promotionIds = new Dictionary(promotionIdOffsets, map(channel, offset, promotionIdBytes), promotionIdsCount);
+        offset += promotionIdBytes;
+
+        if (offset != channel.size()) {
+            throw new IOException("Orders snapshot is truncated or corrupted.");
+        }
+    }
+
+    public static OrderSnapshot open(Path file) throws IOException {
+        //mappings stay valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("File is not an orders snapshot.");
+            }
+            return new OrderSnapshot(channel);
+        }
+    }
+
+    //checks the magic number only
+    public static boolean isSnapshot(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(Long.BYTES).order(BYTE_ORDER);
+            while (magic.hasRemaining() && channel.read(magic) >= 0) {
+                //read until the magic number is complete or the file ends
+            }
+            return !magic.hasRemaining() && magic.getLong(0) == MAGIC;
+        }
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long offset, long size) throws IOException {
+        if (size > Integer.MAX_VALUE || offset + size > channel.size()) {
+            throw new IOException("Orders snapshot is truncated or corrupted.");
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+        buffer.order(BYTE_ORDER);
+        return buffer;
+    }
+
+    public int getOrdersCount() {
+        return ordersCount;
+    }
+
+    public long getValueCents(int order) {
+        return values.get(order);
+    }
+
+    //index of the order id in getId, orders sharing an id have the same index
+    public int getIdIndex(int order) {
+        return idIndexes.get(order);
+    }
+
+    public String getId(int idIndex) {
+        return ids.get(idIndex);
+    }
+
+    public int getIdsCount() {
+        return ids.size();
+    }
+
+    //promotions of the order are getPromotion(getPromotionsStart(order)..getPromotionsEnd(order))
+    public int getPromotionsStart(int order) {
+        return promotionsStart.get(order);
+    }
+
+    public int getPromotionsEnd(int order) {
+        return promotionsStart.get(order + 1);
+    }
+
+    //index of the promotion in getPromotionId
+    public int getPromotion(int index) {
+        return promotions.get(index);
+    }
+
+    public String getPromotionId(int promotionIndex) {
+        return promotionIds.get(promotionIndex);
+    }
+
+    public int getPromotionIdsCount() {
+        return promotionIds.size();
+    }
+
+    public Order getOrder(int order) {
+        int start = getPromotionsStart(order);
+        int end = getPromotionsEnd(order);
+        List<String> orderPromotions = new ArrayList<>(end - start);
+        for (int index = start; index < end; index++) {
+            orderPromotions.add(getPromotionId(getPromotion(index)));
+        }
+        BigDecimal value = FixedPoint.toBigDecimal(getValueCents(order)).setScale(scales.get(order), RoundingMode.UNNECESSARY);
+        return new Order(getId(getIdIndex(order)), value, orderPromotions);
+    }
+
+    //orders in file order, ids and promotions are shared String instances
+    public void forEach(Consumer<Order> consumer) {
+        for (int order = 0; order < ordersCount; order++) {
+            consumer.accept(getOrder(order));
+        }
+    }
+
+    public List<Order> toOrders() {
+        List<Order> orders = new ArrayList<>(ordersCount);
+        forEach(orders::add);
+        return orders;
+    }
+
+    //strings are decoded on first use and cached, concurrent decoding of the same id is harmless
+    private static class Dictionary {
+        private final IntBuffer offsets;
+        private final ByteBuffer bytes;
+        private final String[] decoded;
+
+        Dictionary(IntBuffer offsets, ByteBuffer bytes, int size) {
+            this.offsets = offsets;
+            this.bytes = bytes;
+            this.decoded = new String[size];
+        }
+
+        String get(int index) {
+            String id = decoded[index];
+            if (id == null) {
+                int start = offsets.get(index);
+                byte[] encoded = new byte[offsets.get(index + 1) - start];
+                bytes.get(start, encoded);
+                id = new String(encoded, StandardCharsets.UTF_8);
+                decoded[index] = id;
+            }
+            return id;
+        }
+
+        int size() {
+            return decoded.length;
+        }
+    }
+
+}
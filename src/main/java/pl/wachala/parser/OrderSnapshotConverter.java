@@ -0,0 +1,19 @@
+package pl.wachala.parser;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+
+//java -cp ... pl.wachala.parser.OrderSnapshotConverter orders.json orders.snapshot
+public class OrderSnapshotConverter {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("Usage: OrderSnapshotConverter <orders file> <snapshot file>");
+        }
+
+        int ordersCount = new DataParser(new ObjectMapper()).convertToSnapshot(args[0], args[1]);
+        System.out.println("Converted " + ordersCount + " orders to " + args[1]);
+    }
+
+}
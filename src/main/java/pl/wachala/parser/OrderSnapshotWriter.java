@@ -0,0 +1,160 @@
+package pl.wachala.parser;
+
+import pl.wachala.models.Order;
+import pl.wachala.util.FixedPoint;
+import pl.wachala.util.IdDictionary;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+//Collects orders into columns and writes them in the OrderSnapshot format. Only the columns (17 bytes per order plus
+//promotion indexes) and the id dictionaries are kept in memory, so orders can be streamed in straight from the parser.
+public class OrderSnapshotWriter implements Consumer<Order> {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final IdDictionary ids = new IdDictionary();
+    private final IdDictionary promotionIds = new IdDictionary();
+
+    private long[] values = new long[1024];
+    private byte[] scales = new byte[1024];
+    private int[] idIndexes = new int[1024];
+    private int[] promotionsStart = new int[1025];
+    private int[] promotions = new int[1024];
+    private int ordersCount;
+    private int promotionsCount;
+
+    //throws IllegalArgumentException when the order value has more than two decimal places or doesn't fit into long
+    @Override
+    public void accept(Order order) {
+        long cents;
+        try {
+            cents = FixedPoint.toCents(order.getValue());
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Value " + order.getValue() + " of order " + order.getId() + " can't be stored in minor units.");
+        }
+
+        if (ordersCount == values.length) {
+            values = Arrays.copyOf(values, ordersCount * 2);
+            scales = Arrays.copyOf(scales, ordersCount * 2);
+            idIndexes = Arrays.copyOf(idIndexes, ordersCount * 2);
+            promotionsStart = Arrays.copyOf(promotionsStart, ordersCount * 2 + 1);
+        }
+        values[ordersCount] = cents;
+        //toCents accepted the value, so its scale is between -18 and 2
+        scales[ordersCount] = (byte) order.getValue().scale();
+        idIndexes[ordersCount] = ids.intern(order.getId());
+
+        for (String promotion : order.getPromotions()) {
+            if (promotionsCount == promotions.length) {
+                promotions = Arrays.copyOf(promotions, promotionsCount * 2);
+            }
+            promotions[promotionsCount++] = promotionIds.intern(promotion);
+        }
+        ordersCount++;
+        promotionsStart[ordersCount] = promotionsCount;
+    }
+
+    public int getOrdersCount() {
+        return ordersCount;
+    }
+
+    public void write(Path file) throws IOException {
+        byte[][] idBytes = encode(ids);
+        byte[][] promotionIdBytes = encode(promotionIds);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(OrderSnapshot.BYTE_ORDER);
+
+            buffer.putLong(OrderSnapshot.MAGIC);
+            buffer.putInt(OrderSnapshot.VERSION);
+            buffer.putInt(ordersCount);
+            buffer.putInt(ids.size());
+            buffer.putInt(promotionIds.size());
+            buffer.putInt(promotionsCount);
+            buffer.putInt(0);
+
+            for (int i = 0; i < ordersCount; i++) {
+                ensureRemaining(channel, buffer, Long.BYTES);
+                buffer.putLong(values[i]);
+            }
+            putInts(channel, buffer, idIndexes, ordersCount);
+            putInts(channel, buffer, promotionsStart, ordersCount + 1);
+            putInts(channel, buffer, promotions, promotionsCount);
+            putOffsets(channel, buffer, idBytes);
+            putOffsets(channel, buffer, promotionIdBytes);
+            putBytes(channel, buffer, scales, ordersCount);
+            putStrings(channel, buffer, idBytes);
+            putStrings(channel, buffer, promotionIdBytes);
+
+            flush(channel, buffer);
+        }
+    }
+
+    private static byte[][] encode(IdDictionary dictionary) {
+        byte[][] encoded = new byte[dictionary.size()][];
+        for (int i = 0; i < encoded.length; i++) {
+            encoded[i] = dictionary.getId(i).getBytes(StandardCharsets.UTF_8);
+        }
+        return encoded;
+    }
+
+    private static void putInts(FileChannel channel, ByteBuffer buffer, int[] values, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            ensureRemaining(channel, buffer, Integer.BYTES);
+            buffer.putInt(values[i]);
+        }
+    }
+
+    //start of every string in the dictionary bytes, followed by the end of the last one
+    private static void putOffsets(FileChannel channel, ByteBuffer buffer, byte[][] strings) throws IOException {
+        long offset = 0;
+        ensureRemaining(channel, buffer, Integer.BYTES);
+        buffer.putInt(0);
+        for (byte[] string : strings) {
+            offset += string.length;
+            if (offset > Integer.MAX_VALUE) {
+                throw new IOException("Ids of the snapshot take more than 2 GB.");
+            }
+            ensureRemaining(channel, buffer, Integer.BYTES);
+            buffer.putInt((int) offset);
+        }
+    }
+
+    private static void putStrings(FileChannel channel, ByteBuffer buffer, byte[][] strings) throws IOException {
+        for (byte[] string : strings) {
+            putBytes(channel, buffer, string, string.length);
+        }
+    }
+
+    private static void putBytes(FileChannel channel, ByteBuffer buffer, byte[] bytes, int count) throws IOException {
+        int written = 0;
+        while (written < count) {
+            ensureRemaining(channel, buffer, 1);
+            int length = Math.min(buffer.remaining(), count - written);
+            buffer.put(bytes, written, length);
+            written += length;
+        }
+    }
+
+    private static void ensureRemaining(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush(channel, buffer);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+}
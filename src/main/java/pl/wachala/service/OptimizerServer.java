@@ -0,0 +1,183 @@
+package pl.wachala.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import pl.wachala.metrics.MetricsRegistry;
+import pl.wachala.metrics.Phase;
+import pl.wachala.models.Order;
+import pl.wachala.models.PaymentMethod;
+import pl.wachala.optimizer.AssignmentResult;
+import pl.wachala.optimizer.LimitLedger;
+import pl.wachala.optimizer.PaymentMethodAssigner;
+import pl.wachala.optimizer.PaymentMethodSummaryGenerator;
+import pl.wachala.parser.DataParser;
+import pl.wachala.util.IdDictionary;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+//Resident mode: payment methods are parsed once and kept in memory together with the (JIT-warm) assigner, every
+//POST /assign request carries a batch of orders in orders.json format and gets back the summary printed by the
+//command line mode ("METHOD amount" lines). GET /metrics returns request latency and throughput as JSON, together with
+//per-phase optimizer metrics accumulated over all requests.
+//
+//With shared limits, payment method limits are a budget of the whole service instead of every request: a batch is
+//assigned against the limits left and the limit it uses is reserved in a LimitLedger. When a concurrent request
+//reserved part of it first, the batch is assigned again against what is left now.
+@Slf4j
+@Component
+public class OptimizerServer {
+
+    //assignments of a batch before the request gives up on limits changed by concurrent requests
+    private static final int RESERVATION_ATTEMPTS = 8;
+
+    private final DataParser parser;
+    private final PaymentMethodAssigner paymentMethodAssigner;
+    private final PaymentMethodSummaryGenerator paymentMethodSummaryGenerator;
+    private final ObjectMapper mapper;
+    private final ServiceMetrics metrics = new ServiceMetrics();
+
+    private List<PaymentMethod> paymentMethods;
+    //null unless limits are shared by all requests
+    private LimitLedger limitLedger;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    @Autowired
+    public OptimizerServer(DataParser parser, PaymentMethodAssigner paymentMethodAssigner,
+                           PaymentMethodSummaryGenerator paymentMethodSummaryGenerator, ObjectMapper mapper) {
+        this.parser = parser;
+        this.paymentMethodAssigner = paymentMethodAssigner;
+        this.paymentMethodSummaryGenerator = paymentMethodSummaryGenerator;
+        this.mapper = mapper;
+    }
+
+    //port 0 picks a free port, see getPort()
+    public void start(List<PaymentMethod> paymentMethods, int port, int threads) throws IOException {
+        start(paymentMethods, port, threads, false);
+    }
+
+    public void start(List<PaymentMethod> paymentMethods, int port, int threads, boolean sharedLimits) throws IOException {
+        this.paymentMethods = List.copyOf(paymentMethods);
+        this.limitLedger = sharedLimits ? new LimitLedger(paymentMethods) : null;
+        this.executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/assign", this::handleAssign);
+        server.createContext("/metrics", this::handleMetrics);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdown();
+        }
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public ServiceMetrics getMetrics() {
+        return metrics;
+    }
+
+    private void handleAssign(HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            send(exchange, 405, "Only POST is supported.");
+            return;
+        }
+
+        long start = System.nanoTime();
+        int ordersCount = 0;
+        int status;
+        String response;
+        try {
+            MetricsRegistry optimizerMetrics = paymentMethodAssigner.getMetrics();
+            List<Order> orders;
+            try (MetricsRegistry.PhaseTimer ignored = optimizerMetrics.time(Phase.PARSE_ORDERS)) {
+                orders = parser.parseOrders(exchange.getRequestBody());
+            }
+            ordersCount = orders.size();
+
+            //dictionaries are per request, handlers run concurrently
+            AssignmentResult result = limitLedger != null
+                    ? solveWithinSharedLimits(orders)
+                    : paymentMethodAssigner.solve(orders, paymentMethods, new IdDictionary(), new IdDictionary());
+            if (result == null) {
+                metrics.record(System.nanoTime() - start, ordersCount, false);
+                send(exchange, 409, "Limits were changed by concurrent requests, try again.");
+                return;
+            }
+            Map<String, BigDecimal> summary;
+            try (MetricsRegistry.PhaseTimer ignored = optimizerMetrics.time(Phase.SUMMARY)) {
+                summary = paymentMethodSummaryGenerator.summarize(result.getAssignment());
+            }
+
+            StringBuilder lines = new StringBuilder();
+            for (Map.Entry<String, BigDecimal> entry : summary.entrySet()) {
+                lines.append(entry.getKey()).append(' ').append(entry.getValue()).append('\n');
+            }
+            status = 200;
+            response = lines.toString();
+        } catch (IOException | IllegalArgumentException e) {
+            log.error("Invalid orders in request: {}", e.getMessage());
+            status = 400;
+            response = "Invalid orders: " + e.getMessage();
+        } catch (Exception e) {
+            log.error("Error while processing request: {}", e.getMessage());
+            status = 500;
+            response = "Error while processing orders: " + e.getMessage();
+        }
+
+        metrics.record(System.nanoTime() - start, ordersCount, status == 200);
+        send(exchange, status, response);
+    }
+
+    //null when every attempt lost the limits to concurrent requests
+    private AssignmentResult solveWithinSharedLimits(List<Order> orders) {
+        for (int attempt = 0; attempt < RESERVATION_ATTEMPTS; attempt++) {
+            AssignmentResult result = paymentMethodAssigner.solve(orders, limitLedger.remaining(paymentMethods), new IdDictionary(), new IdDictionary());
+            if (limitLedger.tryReserveAll(result.getAssignment().values())) {
+                return result;
+            }
+        }
+        return null;
+    }
+
+    public LimitLedger getLimitLedger() {
+        return limitLedger;
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        Map<String, Object> snapshot = new LinkedHashMap<>(metrics.snapshot());
+        snapshot.put("optimizer", paymentMethodAssigner.getMetrics().snapshot());
+        if (limitLedger != null) {
+            snapshot.put("limits", limitLedger.snapshot());
+        }
+        send(exchange, 200, mapper.writeValueAsString(snapshot));
+    }
+
+    private void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+
+}
@@ -0,0 +1,90 @@
+package pl.wachala.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+//Request counters and latency histogram of the resident service, safe to update from many request threads.
+//Latencies are counted in power of two buckets of microseconds, percentiles report the upper edge of the bucket.
+public class ServiceMetrics {
+
+    private static final int BUCKETS = 40;
+
+    private final long startNanos = System.nanoTime();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder failedRequests = new LongAdder();
+    private final LongAdder orders = new LongAdder();
+    private final LongAdder totalLatencyNanos = new LongAdder();
+    private final LongAccumulator maxLatencyNanos = new LongAccumulator(Long::max, 0);
+    private final AtomicLongArray latencyBuckets = new AtomicLongArray(BUCKETS);
+
+    public void record(long latencyNanos, int ordersCount, boolean success) {
+        requests.increment();
+        if (!success) {
+            failedRequests.increment();
+        }
+        orders.add(ordersCount);
+        totalLatencyNanos.add(latencyNanos);
+        maxLatencyNanos.accumulate(latencyNanos);
+
+        long micros = Math.max(1, latencyNanos / 1_000);
+        int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        latencyBuckets.incrementAndGet(bucket);
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    public long getFailedRequests() {
+        return failedRequests.sum();
+    }
+
+    public long getOrders() {
+        return orders.sum();
+    }
+
+    //latency (ms) below which the given fraction of requests finished
+    public double getLatencyPercentileMillis(double fraction) {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            counts[bucket] = latencyBuckets.get(bucket);
+            total += counts[bucket];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(fraction * total);
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank) {
+                return (1L << bucket) / 1_000.0;
+            }
+        }
+        return maxLatencyNanos.get() / 1_000_000.0;
+    }
+
+    public Map<String, Object> snapshot() {
+        double uptimeSeconds = (System.nanoTime() - startNanos) / 1_000_000_000.0;
+        long requestsCount = getRequests();
+
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("uptimeSeconds", uptimeSeconds);
+        snapshot.put("requests", requestsCount);
+        snapshot.put("failedRequests", getFailedRequests());
+        snapshot.put("orders", getOrders());
+        snapshot.put("requestsPerSecond", uptimeSeconds > 0 ? requestsCount / uptimeSeconds : 0);
+        snapshot.put("ordersPerSecond", uptimeSeconds > 0 ? getOrders() / uptimeSeconds : 0);
+        snapshot.put("latencyAvgMillis", requestsCount > 0 ? totalLatencyNanos.sum() / 1_000_000.0 / requestsCount : 0);
+        snapshot.put("latencyP50Millis", getLatencyPercentileMillis(0.5));
+        snapshot.put("latencyP99Millis", getLatencyPercentileMillis(0.99));
+        snapshot.put("latencyMaxMillis", maxLatencyNanos.get() / 1_000_000.0);
+        return snapshot;
+    }
+
+}
@@ -13,4 +13,11 @@ public class ArgumentsValidator {
         }
     }
 
+    //service mode gets only payment methods file, orders come with requests
+    public void validateServiceArgsNum(int argsNum) {
+        if (argsNum != 1) {
+            throw new RuntimeException("Invalid number of arguments - expected 1 argument in service mode while: " + argsNum + " provided.");
+        }
+    }
+
 }
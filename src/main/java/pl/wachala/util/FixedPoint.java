@@ -0,0 +1,32 @@
+package pl.wachala.util;
+
+import java.math.BigDecimal;
+
+//money represented as long amount of minor units (grosze), rounding matches BigDecimal HALF_UP used by the optimizer
+public final class FixedPoint {
+
+    public static final int SCALE = 2;
+    private static final long PERCENT = 100;
+
+    private FixedPoint() {
+    }
+
+    //throws ArithmeticException when value has more than two decimal places or doesn't fit into long
+    public static long toCents(BigDecimal value) {
+        return value.movePointRight(SCALE).longValueExact();
+    }
+
+    public static BigDecimal toBigDecimal(long cents) {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+
+    //value * percentage / 100 rounded HALF_UP to minor units, value*percentage is exact at scale 4 so a single rounding is enough
+    public static long percentage(long cents, long percentage) {
+        long scaled = Math.multiplyExact(cents, percentage);
+        if (scaled >= 0) {
+            return (scaled + PERCENT / 2) / PERCENT;
+        }
+        return -((-scaled + PERCENT / 2) / PERCENT);
+    }
+
+}
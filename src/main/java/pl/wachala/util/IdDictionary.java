@@ -0,0 +1,45 @@
+package pl.wachala.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+//maps string ids to dense ints (0, 1, 2, ...) in order of first appearance
+public class IdDictionary {
+
+    private final HashMap<String, Integer> indexes = new HashMap<>();
+    private final List<String> ids = new ArrayList<>();
+
+    public static IdDictionary of(List<String> ids) {
+        IdDictionary dictionary = new IdDictionary();
+        for (String id : ids) {
+            dictionary.intern(id);
+        }
+        return dictionary;
+    }
+
+    //returns index of the id, assigning the next free one if the id is new
+    public int intern(String id) {
+        Integer index = indexes.putIfAbsent(id, ids.size());
+        if (index != null) {
+            return index;
+        }
+        ids.add(id);
+        return ids.size() - 1;
+    }
+
+    //returns -1 for unknown ids
+    public int indexOf(String id) {
+        Integer index = indexes.get(id);
+        return index != null ? index : -1;
+    }
+
+    public String getId(int index) {
+        return ids.get(index);
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+}
@@ -0,0 +1,93 @@
+package pl.wachala;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pl.wachala.config.OptimizerProperties;
+import pl.wachala.optimizer.ArithmeticEngine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DirectLauncherTest {
+
+    private final ByteArrayOutputStream outContent = new ByteArrayOutputStream();
+    private final PrintStream originalOut = System.out;
+
+    @BeforeEach
+    void setUpStreams() {
+        System.setOut(new PrintStream(outContent));
+    }
+
+    @AfterEach
+    void restoreStreams() {
+        System.setOut(originalOut);
+    }
+
+    @Test
+    void shouldBindPropertiesLikeSpringBoot() {
+        //given
+        Map<String, String> settings = Map.of(
+                "optimizer.arithmetic", "FIXED_POINT",
+                "optimizer.candidates-per-order", "3",
+                "optimizer.solver-time-budget", "250ms",
+                "optimizer.scenario-files", "a.json,b.json");
+
+        //when
+        OptimizerProperties properties = DirectLauncher.bind(settings);
+
+        //then
+        assertEquals(ArithmeticEngine.FIXED_POINT, properties.getArithmetic());
+        assertEquals(3, properties.getCandidatesPerOrder());
+        assertEquals(Duration.ofMillis(250), properties.getSolverTimeBudget());
+        assertEquals(List.of("a.json", "b.json"), properties.getScenarioFiles());
+        assertFalse(properties.isStreaming());
+    }
+
+    @Test
+    void shouldReadSettingsFromApplicationPropertiesAndSystemProperties() {
+        //given
+        System.setProperty("optimizer.parallelism", "2");
+
+        //when
+        Map<String, String> settings;
+        try {
+            settings = DirectLauncher.settings();
+        } finally {
+            System.clearProperty("optimizer.parallelism");
+        }
+
+        //then
+        assertEquals("false", settings.get("optimizer.streaming"));
+        assertEquals("2", settings.get("optimizer.parallelism"));
+        assertEquals("ERROR", settings.get("logging.level.root"));
+        assertTrue(settings.keySet().stream().allMatch(name -> name.startsWith("optimizer.") || name.startsWith("logging.level.")));
+    }
+
+    @Test
+    void shouldWireComponentsAndPrintSummary() {
+        //given
+        OptimizerProperties properties = new OptimizerProperties();
+
+        //when
+        PaymentOptimizerApplication application = DirectLauncher.create(properties);
+        application.run("src/test/resources/orders.json", "src/test/resources/paymentmethods.json");
+
+        //then
+        assertSame(properties, application.optimizerProperties);
+        assertNotNull(application.optimizerServer);
+        assertNotNull(application.scenarioEvaluator);
+        assertEquals(List.of("BosBankrut 190.00", "PUNKTY 90.00", "mZysk 175.00"),
+                outContent.toString().strip().lines().map(String::strip).sorted().toList());
+    }
+
+}
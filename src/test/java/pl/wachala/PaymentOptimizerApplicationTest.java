@@ -6,20 +6,31 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import pl.wachala.config.OptimizerProperties;
+import pl.wachala.metrics.MetricsRegistry;
 import pl.wachala.models.DiscountOption;
 import pl.wachala.models.Order;
 import pl.wachala.models.PaymentMethod;
+import pl.wachala.optimizer.AssignmentResult;
+import pl.wachala.optimizer.AssignmentStrategyType;
 import pl.wachala.optimizer.PaymentMethodAssigner;
 import pl.wachala.optimizer.PaymentMethodSummaryGenerator;
+import pl.wachala.optimizer.ScenarioEvaluator;
+import pl.wachala.optimizer.ScenarioResult;
 import pl.wachala.parser.DataParser;
+import pl.wachala.service.OptimizerServer;
 import pl.wachala.util.ArgumentsValidator;
+import pl.wachala.util.IdDictionary;
 
 import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -40,6 +51,18 @@ class PaymentOptimizerApplicationTest {
     @Mock
     private PaymentMethodSummaryGenerator paymentMethodSummaryGenerator;
 
+    @Spy
+    private OptimizerProperties optimizerProperties;
+
+    @Mock
+    private OptimizerServer optimizerServer;
+
+    @Spy
+    private MetricsRegistry metricsRegistry;
+
+    @Mock
+    private ScenarioEvaluator scenarioEvaluator;
+
     @Test
     void testApplicationRun() throws Exception {
         // given
@@ -75,21 +98,95 @@ class PaymentOptimizerApplicationTest {
                 .build()
         );
 
-        when(dataParser.parseOrders("orders.csv")).thenReturn(mockOrders);
-        when(dataParser.parsePaymentMethods("payments.csv")).thenReturn(mockMethods);
-        when(paymentMethodAssigner.assign(mockOrders, mockMethods)).thenReturn(mockAssignment);
+        when(dataParser.parseOrders(eq("orders.csv"), any(IdDictionary.class))).thenReturn(mockOrders);
+        when(dataParser.parsePaymentMethods(eq("payments.csv"), any(IdDictionary.class))).thenReturn(mockMethods);
+        AssignmentResult mockResult = AssignmentResult.builder()
+                .strategy(AssignmentStrategyType.GREEDY)
+                .assignment(mockAssignment)
+                .totalDiscount(new BigDecimal("20"))
+                .build();
+        when(paymentMethodAssigner.solve(eq(mockOrders), eq(mockMethods), any(IdDictionary.class), any(IdDictionary.class))).thenReturn(mockResult);
 
         // when
         application.run(args);
 
         // then
         verify(argumentsValidator).validateArgsNum(2);
-        verify(dataParser).parseOrders("orders.csv");
-        verify(dataParser).parsePaymentMethods("payments.csv");
-        verify(paymentMethodAssigner).assign(mockOrders, mockMethods);
+        verify(dataParser).parseOrders(eq("orders.csv"), any(IdDictionary.class));
+        verify(dataParser).parsePaymentMethods(eq("payments.csv"), any(IdDictionary.class));
+        verify(paymentMethodAssigner).solve(eq(mockOrders), eq(mockMethods), any(IdDictionary.class), any(IdDictionary.class));
         verify(paymentMethodSummaryGenerator).generateSummary(mockAssignment);
     }
 
+    @Test
+    void testScenarioFilesAreEvaluatedTogetherWithPaymentMethodsFile() throws Exception {
+        // given
+        optimizerProperties.setScenarioFiles(List.of("tight.csv"));
+        List<Order> mockOrders = List.of(Order.builder()
+                .id("ORDER1")
+                .value(new BigDecimal("200.00"))
+                .promotions(List.of("xBank"))
+                .build());
+        List<PaymentMethod> mockMethods = List.of(new PaymentMethod("xBank", 5, new BigDecimal("300.00")));
+        List<PaymentMethod> tightMethods = List.of(new PaymentMethod("xBank", 5, new BigDecimal("1.00")));
+        ScenarioResult mockResult = ScenarioResult.builder()
+                .summary(Map.of("xBank", new BigDecimal("190.00")))
+                .totalDiscount(new BigDecimal("10.00"))
+                .build();
+
+        when(dataParser.parseOrders(eq("orders.csv"), any(IdDictionary.class))).thenReturn(mockOrders);
+        when(dataParser.parsePaymentMethods(eq("payments.csv"), any(IdDictionary.class))).thenReturn(mockMethods);
+        when(dataParser.parsePaymentMethods("tight.csv")).thenReturn(tightMethods);
+        when(scenarioEvaluator.evaluate(mockOrders, List.of(mockMethods, tightMethods))).thenReturn(List.of(mockResult, mockResult));
+
+        // when
+        application.run("orders.csv", "payments.csv");
+
+        // then
+        verify(scenarioEvaluator).evaluate(mockOrders, List.of(mockMethods, tightMethods));
+        verifyNoInteractions(paymentMethodAssigner, paymentMethodSummaryGenerator);
+    }
+
+    @Test
+    void testServiceModeStartsServerWithParsedPaymentMethods() throws Exception {
+        // given
+        optimizerProperties.setServicePort(8080);
+        List<PaymentMethod> mockMethods = List.of(PaymentMethod.builder()
+                .limit(new BigDecimal("200.00"))
+                .discount(10)
+                .id("PUNKTY")
+                .build());
+        when(dataParser.parsePaymentMethods("payments.csv")).thenReturn(mockMethods);
+
+        // when
+        application.run("payments.csv");
+
+        // then
+        verify(argumentsValidator).validateServiceArgsNum(1);
+        verify(optimizerServer).start(mockMethods, 8080, optimizerProperties.getServiceThreads(), false);
+        verifyNoInteractions(paymentMethodAssigner);
+    }
+
+    @Test
+    void testServiceModePassesSharedLimitsToServer() throws Exception {
+        // given
+        optimizerProperties.setServicePort(8080);
+        optimizerProperties.setServiceSharedLimits(true);
+        List<PaymentMethod> mockMethods = List.of(PaymentMethod.builder()
+                .limit(new BigDecimal("200.00"))
+                .discount(10)
+                .id("PUNKTY")
+                .build());
+        when(dataParser.parsePaymentMethods("payments.csv")).thenReturn(mockMethods);
+
+        // when
+        application.run("payments.csv");
+
+        // then
+        verify(optimizerServer).start(mockMethods, 8080, optimizerProperties.getServiceThreads(), true);
+        verifyNoInteractions(paymentMethodAssigner);
+    }
+
     @Test
     void contextLoads() {
     }
@@ -0,0 +1,152 @@
+package pl.wachala.generator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pl.wachala.models.Order;
+import pl.wachala.models.PaymentMethod;
+import pl.wachala.parser.DataParser;
+import pl.wachala.util.FixedPoint;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WorkloadGeneratorTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldWriteSameFilesForSameSeed() throws IOException {
+        //given
+        WorkloadSpec spec = spec(7);
+
+        //when
+        new WorkloadGenerator(spec).write(tempDir.resolve("orders1.json"), tempDir.resolve("methods1.json"));
+        new WorkloadGenerator(spec).write(tempDir.resolve("orders2.json"), tempDir.resolve("methods2.json"));
+        new WorkloadGenerator(spec(8)).write(tempDir.resolve("orders3.json"), tempDir.resolve("methods3.json"));
+
+        //then
+        assertArrayEquals(Files.readAllBytes(tempDir.resolve("orders1.json")), Files.readAllBytes(tempDir.resolve("orders2.json")));
+        assertArrayEquals(Files.readAllBytes(tempDir.resolve("methods1.json")), Files.readAllBytes(tempDir.resolve("methods2.json")));
+        assertFalse(Arrays.equals(Files.readAllBytes(tempDir.resolve("orders1.json")), Files.readAllBytes(tempDir.resolve("orders3.json"))));
+    }
+
+    @Test
+    void shouldWriteFilesReadableByDataParser() throws IOException {
+        //given
+        WorkloadSpec spec = spec(1);
+        Path ordersFile = tempDir.resolve("orders.json");
+        Path methodsFile = tempDir.resolve("paymentmethods.json");
+        DataParser parser = new DataParser(new ObjectMapper());
+
+        //when
+        List<PaymentMethod> generated = new WorkloadGenerator(spec).write(ordersFile, methodsFile);
+        List<Order> orders = parser.parseOrders(ordersFile.toString());
+        List<PaymentMethod> methods = parser.parsePaymentMethods(methodsFile.toString());
+
+        //then
+        assertEquals(spec.getOrdersCount(), orders.size());
+        assertEquals(generated, methods);
+        assertEquals(spec.getMethodsCount() + 1, methods.size());
+        assertEquals("PUNKTY", methods.get(methods.size() - 1).getId());
+        for (Order order : orders) {
+            assertTrue(order.getValue().compareTo(FixedPoint.toBigDecimal(spec.getMinOrderValue())) >= 0);
+            assertTrue(order.getValue().compareTo(FixedPoint.toBigDecimal(spec.getMaxOrderValue())) <= 0);
+            assertEquals(order.getPromotions().size(), new HashSet<>(order.getPromotions()).size());
+        }
+    }
+
+    @Test
+    void shouldMatchRequestedPromotionsAndPointsShare() {
+        //given
+        WorkloadSpec spec = spec(3);
+        spec.setPromotionsPerOrder(2.5);
+        spec.setLoyaltyPointsShare(0.2);
+        List<Order> orders = new ArrayList<>();
+
+        //when
+        List<PaymentMethod> methods = new WorkloadGenerator(spec).generate(orders::add);
+
+        //then
+        long promotions = orders.stream().mapToLong(order -> order.getPromotions().size()).sum();
+        assertEquals(2.5, (double) promotions / orders.size(), 0.05);
+
+        BigDecimal totalValue = orders.stream().map(Order::getValue).reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal loyaltyPointsLimit = methods.get(methods.size() - 1).getLimit();
+        assertEquals(0, totalValue.multiply(new BigDecimal("0.2")).setScale(2, RoundingMode.HALF_UP).compareTo(loyaltyPointsLimit));
+    }
+
+    @Test
+    void shouldSizeCardLimitsByTightness() {
+        //given
+        WorkloadSpec spec = spec(5);
+        spec.setLimitTightness(1);
+        List<Order> orders = new ArrayList<>();
+
+        //when
+        List<PaymentMethod> methods = new WorkloadGenerator(spec).generate(orders::add);
+
+        //then
+        Map<String, Long> demand = new HashMap<>();
+        Map<String, Integer> discounts = new HashMap<>();
+        methods.forEach(method -> discounts.put(method.getId(), method.getDiscount()));
+        for (Order order : orders) {
+            for (String promotion : order.getPromotions()) {
+                demand.merge(promotion, FixedPoint.percentage(FixedPoint.toCents(order.getValue()), discounts.get(promotion)), Long::sum);
+            }
+        }
+        for (PaymentMethod method : methods.subList(0, spec.getMethodsCount())) {
+            assertEquals((long) demand.getOrDefault(method.getId(), 0L), FixedPoint.toCents(method.getLimit()));
+        }
+    }
+
+    @Test
+    void shouldSkewOrderValuesTowardsMinimum() {
+        //given
+        WorkloadSpec uniform = spec(9);
+        WorkloadSpec skewed = spec(9);
+        skewed.setValueSkew(3);
+        List<Order> uniformOrders = new ArrayList<>();
+        List<Order> skewedOrders = new ArrayList<>();
+
+        //when
+        new WorkloadGenerator(uniform).generate(uniformOrders::add);
+        new WorkloadGenerator(skewed).generate(skewedOrders::add);
+
+        //then
+        assertTrue(median(skewedOrders).compareTo(median(uniformOrders).divide(BigDecimal.valueOf(4))) < 0);
+    }
+
+    @Test
+    void shouldRejectInvalidSpec() {
+        //given
+        WorkloadSpec spec = spec(1);
+        spec.setMethodsCount(0);
+
+        //when & then
+        assertThrows(IllegalArgumentException.class, () -> new WorkloadGenerator(spec));
+    }
+
+    private static BigDecimal median(List<Order> orders) {
+        List<BigDecimal> values = new ArrayList<>(orders.stream().map(Order::getValue).toList());
+        Collections.sort(values);
+        return values.get(values.size() / 2);
+    }
+
+    private static WorkloadSpec spec(long seed) {
+        WorkloadSpec spec = new WorkloadSpec();
+        spec.setSeed(seed);
+        spec.setOrdersCount(5000);
+        spec.setMethodsCount(20);
+        spec.setPromotionsPerOrder(1.5);
+        return spec;
+    }
+
+}
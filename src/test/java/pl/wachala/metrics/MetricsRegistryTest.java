@@ -0,0 +1,127 @@
+package pl.wachala.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import pl.wachala.config.OptimizerProperties;
+import pl.wachala.models.DiscountOption;
+import pl.wachala.models.Order;
+import pl.wachala.models.PaymentMethod;
+import pl.wachala.optimizer.ArithmeticEngine;
+import pl.wachala.optimizer.PaymentMethodAssigner;
+import pl.wachala.util.IdDictionary;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsRegistryTest {
+
+    private static final List<PaymentMethod> METHODS = Arrays.asList(
+            new PaymentMethod("PUNKTY", 15, new BigDecimal("100.00")),
+            new PaymentMethod("mZysk", 10, new BigDecimal("180.00")),
+            new PaymentMethod("BosBankrut", 5, new BigDecimal("200.00")));
+
+    private static final List<Order> ORDERS = Arrays.asList(
+            new Order("ORDER1", new BigDecimal("100.00"), List.of("mZysk")),
+            new Order("ORDER2", new BigDecimal("200.00"), List.of("BosBankrut")),
+            new Order("ORDER3", new BigDecimal("150.00"), List.of("mZysk", "BosBankrut")),
+            new Order("ORDER4", new BigDecimal("50.00"), List.of()));
+
+    @Test
+    void shouldAccumulatePhaseTimings() {
+        //given
+        MetricsRegistry metrics = new MetricsRegistry();
+
+        //when
+        try (MetricsRegistry.PhaseTimer ignored = metrics.time(Phase.SORT)) {
+            new ArrayList<>(List.of(3, 1, 2)).sort(null);
+        }
+        try (MetricsRegistry.PhaseTimer ignored = metrics.time(Phase.SORT)) {
+            new ArrayList<>(List.of(2, 1)).sort(null);
+        }
+
+        //then
+        assertEquals(2, metrics.getCount(Phase.SORT));
+        assertEquals(0, metrics.getCount(Phase.GREEDY));
+        Map<?, ?> sort = (Map<?, ?>) ((Map<?, ?>) metrics.snapshot().get("phases")).get("sort");
+        assertEquals(2L, sort.get("count"));
+        assertTrue((Double) sort.get("totalMillis") >= (Double) sort.get("maxMillis"));
+    }
+
+    @Test
+    void shouldRecordEveryPhaseOfBigDecimalRun() {
+        //given
+        MetricsRegistry metrics = new MetricsRegistry();
+        PaymentMethodAssigner assigner = new PaymentMethodAssigner(new OptimizerProperties(), metrics);
+
+        //when
+        assigner.solve(ORDERS, METHODS, new IdDictionary(), new IdDictionary());
+
+        //then
+        assertPhasesRecorded(metrics);
+        //3 CARD options, 2 PUNKTY options per order
+        assertEquals(12, metrics.getCounter(MetricsRegistry.CANDIDATES));
+        assertEquals(4, metrics.getCounter(MetricsRegistry.ORDERS));
+    }
+
+    @Test
+    void shouldRecordEveryPhaseOfFixedPointRun() {
+        //given
+        MetricsRegistry metrics = new MetricsRegistry();
+        OptimizerProperties properties = new OptimizerProperties();
+        properties.setArithmetic(ArithmeticEngine.FIXED_POINT);
+        PaymentMethodAssigner assigner = new PaymentMethodAssigner(properties, metrics);
+
+        //when
+        assigner.solve(ORDERS, METHODS, new IdDictionary(), new IdDictionary());
+
+        //then
+        assertPhasesRecorded(metrics);
+        assertEquals(12, metrics.getCounter(MetricsRegistry.CANDIDATES));
+    }
+
+    @Test
+    void shouldReportLimitUtilizationOfAssignment() {
+        //given
+        MetricsRegistry metrics = new MetricsRegistry();
+        Map<String, DiscountOption> assignment = new PaymentMethodAssigner().assign(ORDERS, METHODS);
+
+        //when
+        metrics.recordLimitUtilization(METHODS, assignment);
+
+        //then
+        Map<String, Map<String, BigDecimal>> utilization = metrics.getLimitUtilization();
+        assertEquals(METHODS.size(), utilization.size());
+        for (PaymentMethod method : METHODS) {
+            Map<String, BigDecimal> stats = utilization.get(method.getId());
+            assertEquals(method.getLimit(), stats.get("limit"));
+            assertTrue(stats.get("used").compareTo(method.getLimit()) <= 0);
+            assertTrue(stats.get("utilization").compareTo(BigDecimal.ONE) <= 0);
+        }
+    }
+
+    @Test
+    void shouldSerializeSnapshotAsJson() throws Exception {
+        //given
+        MetricsRegistry metrics = new MetricsRegistry();
+        new PaymentMethodAssigner(new OptimizerProperties(), metrics).solve(ORDERS, METHODS, new IdDictionary(), new IdDictionary());
+        ObjectMapper mapper = new ObjectMapper();
+
+        //when
+        Map<?, ?> json = mapper.readValue(mapper.writeValueAsString(metrics.snapshot()), Map.class);
+
+        //then
+        assertEquals(Set.of("phases", "allocatedBytes", "counters", "limitUtilization"), json.keySet());
+        assertEquals(Phase.values().length, ((Map<?, ?>) json.get("phases")).size());
+    }
+
+    private static void assertPhasesRecorded(MetricsRegistry metrics) {
+        assertEquals(1, metrics.getCount(Phase.CANDIDATE_GENERATION));
+        assertEquals(1, metrics.getCount(Phase.SORT));
+        assertEquals(1, metrics.getCount(Phase.GREEDY));
+        assertEquals(1, metrics.getCount(Phase.LOYALTY_FALLBACK));
+        assertEquals(0, metrics.getCount(Phase.PARSE_ORDERS));
+    }
+
+}
@@ -0,0 +1,119 @@
+package pl.wachala.optimizer;
+
+import org.junit.jupiter.api.Test;
+import pl.wachala.config.OptimizerProperties;
+import pl.wachala.models.Order;
+import pl.wachala.models.PaymentMethod;
+import pl.wachala.util.IdDictionary;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AssignmentSessionTest {
+
+    private static final int ORDERS_COUNT = 1000;
+    private static final int PROMOTIONS_PER_ORDER = 30;
+
+    private final PaymentMethodAssigner assigner = new PaymentMethodAssigner();
+    private final List<PaymentMethod> methods = List.of(
+            new PaymentMethod("PUNKTY", 15, new BigDecimal("100.00")),
+            new PaymentMethod("mZysk", 10, new BigDecimal("180.00")));
+
+    @Test
+    void shouldKeepOnlyIdAndValueOfStreamedOrders() {
+        //given
+        AssignmentSession session = assigner.openSession(methods);
+        AssignmentSession sessionWithoutPromotions = assigner.openSession(methods);
+
+        //when
+        for (int i = 0; i < ORDERS_COUNT; i++) {
+            session.accept(order(i, PROMOTIONS_PER_ORDER));
+            sessionWithoutPromotions.accept(order(i, 0));
+        }
+
+        //then
+        //promotions without a payment method produce no options, only PUNKTY options are kept
+        assertEquals(sessionWithoutPromotions.getCandidatesCount(), session.getCandidatesCount());
+        assertEquals(ORDERS_COUNT, session.getRetainedOrders().size());
+        assertTrue(session.getRetainedOrders().stream().allMatch(order -> order.getPromotions().isEmpty()));
+    }
+
+    @Test
+    void shouldNotKeepOrdersWithFixedPointArithmetic() {
+        //given
+        OptimizerProperties properties = new OptimizerProperties();
+        properties.setArithmetic(ArithmeticEngine.FIXED_POINT);
+        AssignmentSession session = new PaymentMethodAssigner(properties).openSession(methods);
+
+        //when
+        for (int i = 0; i < ORDERS_COUNT; i++) {
+            session.accept(order(i, PROMOTIONS_PER_ORDER));
+        }
+
+        //then
+        assertEquals(ORDERS_COUNT, session.getOrdersCount());
+        assertTrue(session.getRetainedOrders().isEmpty());
+        assertTrue(session.getCandidatesCount() > 0);
+    }
+
+    @Test
+    void shouldUseConfiguredStrategy() {
+        //given
+        //greedy takes 8.00 from ORDER1 first and has no limit left for ORDER2 and ORDER3 (5.00 each)
+        List<Order> orders = List.of(
+                new Order("ORDER1", new BigDecimal("80.00"), List.of("mZysk")),
+                new Order("ORDER2", new BigDecimal("50.00"), List.of("mZysk")),
+                new Order("ORDER3", new BigDecimal("50.00"), List.of("mZysk")));
+        List<PaymentMethod> tightMethods = List.of(
+                new PaymentMethod("mZysk", 10, new BigDecimal("10.00")),
+                new PaymentMethod("PUNKTY", 0, new BigDecimal("0.00")));
+        OptimizerProperties properties = new OptimizerProperties();
+        properties.setStrategy(AssignmentStrategyType.BRANCH_AND_BOUND);
+        PaymentMethodAssigner branchAndBoundAssigner = new PaymentMethodAssigner(properties);
+
+        //when
+        AssignmentSession session = branchAndBoundAssigner.openSession(tightMethods);
+        orders.forEach(session);
+        AssignmentResult result = session.solve();
+
+        //then
+        assertEquals(AssignmentStrategyType.BRANCH_AND_BOUND, result.getStrategy());
+        assertEquals(new BigDecimal("8.00"), result.getGreedyDiscount());
+        assertEquals(new BigDecimal("10.00"), result.getTotalDiscount());
+        assertTrue(result.isOptimal());
+        assertEquals(3, session.getOrdersCount());
+    }
+
+    @Test
+    void shouldReportGreedyResult() {
+        //given
+        List<Order> orders = List.of(
+                new Order("ORDER1", new BigDecimal("100.00"), List.of("mZysk")),
+                new Order("ORDER2", new BigDecimal("200.00"), List.of("mZysk")));
+        AssignmentSession session = assigner.openSession(methods);
+        orders.forEach(session);
+
+        //when
+        AssignmentResult result = session.solve();
+
+        //then
+        AssignmentResult expected = new PaymentMethodAssigner().solve(orders, methods, new IdDictionary(), new IdDictionary());
+        assertEquals(AssignmentStrategyType.GREEDY, result.getStrategy());
+        assertEquals(expected.getTotalDiscount(), result.getTotalDiscount());
+        assertEquals(result.getTotalDiscount(), result.getGreedyDiscount());
+        assertEquals(AssignmentResult.totalDiscount(result.getAssignment()), result.getTotalDiscount());
+    }
+
+    //every promotion is a separate String, like the ones created by the parser
+    private static Order order(int index, int promotionsPerOrder) {
+        List<String> promotions = new ArrayList<>(promotionsPerOrder);
+        for (int i = 0; i < promotionsPerOrder; i++) {
+            promotions.add("PROMOTION" + i);
+        }
+        return new Order("ORDER" + index, BigDecimal.valueOf(10_000 + index % 5_000, 2), promotions);
+    }
+
+}
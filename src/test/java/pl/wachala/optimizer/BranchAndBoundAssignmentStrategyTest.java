@@ -0,0 +1,134 @@
+package pl.wachala.optimizer;
+
+import org.junit.jupiter.api.Test;
+import pl.wachala.config.OptimizerProperties;
+import pl.wachala.models.DiscountOption;
+import pl.wachala.models.Order;
+import pl.wachala.models.PaymentMethod;
+import pl.wachala.util.IdDictionary;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BranchAndBoundAssignmentStrategyTest {
+
+    private final PaymentMethodAssigner assigner = new PaymentMethodAssigner();
+
+    @Test
+    void shouldFindBetterAssignmentThanGreedyWhenLimitIsTight() {
+        //given
+        //greedy takes 8.00 from ORDER1 first and has no limit left for ORDER2 and ORDER3 (5.00 each)
+        List<Order> orders = Arrays.asList(
+                new Order("ORDER1", new BigDecimal("80.00"), List.of("mZysk")),
+                new Order("ORDER2", new BigDecimal("50.00"), List.of("mZysk")),
+                new Order("ORDER3", new BigDecimal("50.00"), List.of("mZysk")));
+        List<PaymentMethod> methods = Arrays.asList(
+                new PaymentMethod("mZysk", 10, new BigDecimal("10.00")),
+                new PaymentMethod("PUNKTY", 0, new BigDecimal("0.00")));
+
+        //when
+        AssignmentResult result = strategy(Duration.ofSeconds(5)).assign(orders, methods, new IdDictionary(), new IdDictionary());
+
+        //then
+        assertEquals(new BigDecimal("8.00"), result.getGreedyDiscount());
+        assertEquals(new BigDecimal("10.00"), result.getTotalDiscount());
+        assertEquals(new BigDecimal("10.00"), result.getUpperBound());
+        assertEquals(0, result.getOptimalityGap().signum());
+        assertTrue(result.isOptimal());
+        assertEquals("mZysk", result.getAssignment().get("ORDER2").getPromoMethodId());
+        assertEquals("mZysk", result.getAssignment().get("ORDER3").getPromoMethodId());
+        assertNull(result.getAssignment().get("ORDER1").getPromoType());
+    }
+
+    @Test
+    void shouldSearchAllCandidatesWhenPruningIsEnabled() {
+        //given
+        //with one card candidate per order only mZysk is left, whose limit fits one order: 10.00 would be claimed optimal
+        List<Order> orders = Arrays.asList(
+                new Order("ORDER1", new BigDecimal("100.00"), List.of("mZysk", "BosBankrut")),
+                new Order("ORDER2", new BigDecimal("100.00"), List.of("mZysk", "BosBankrut")));
+        List<PaymentMethod> methods = Arrays.asList(
+                new PaymentMethod("mZysk", 10, new BigDecimal("10.00")),
+                new PaymentMethod("BosBankrut", 5, new BigDecimal("50.00")));
+        OptimizerProperties properties = new OptimizerProperties();
+        properties.setCandidatesPerOrder(1);
+        PaymentMethodAssigner pruningAssigner = new PaymentMethodAssigner(properties);
+
+        //when
+        AssignmentResult result = new BranchAndBoundAssignmentStrategy(pruningAssigner, Duration.ofSeconds(5))
+                .assign(orders, methods, new IdDictionary(), new IdDictionary());
+
+        //then
+        assertTrue(result.isOptimal());
+        assertEquals(new BigDecimal("15.00"), result.getTotalDiscount());
+        assertEquals(new BigDecimal("15.00"), result.getUpperBound());
+        assertEquals(Set.of("mZysk", "BosBankrut"), Set.of(
+                result.getAssignment().get("ORDER1").getPromoMethodId(),
+                result.getAssignment().get("ORDER2").getPromoMethodId()));
+    }
+
+    @Test
+    void shouldNeverReturnLessThanGreedy() {
+        //given
+        Random random = new Random(7);
+        List<PaymentMethod> methods = new ArrayList<>();
+        methods.add(new PaymentMethod("PUNKTY", 15, new BigDecimal("300.00")));
+        for (int i = 0; i < 5; i++) {
+            methods.add(new PaymentMethod("BANK" + i, 5 + random.nextInt(20), BigDecimal.valueOf(random.nextInt(20000), 2)));
+        }
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            orders.add(new Order("ORDER" + i, BigDecimal.valueOf(random.nextInt(50000), 2), List.of("BANK" + random.nextInt(5), "BANK" + random.nextInt(5))));
+        }
+
+        //when
+        Map<String, DiscountOption> greedy = assigner.assign(orders, methods);
+        AssignmentResult result = strategy(Duration.ofMillis(50)).assign(orders, methods, new IdDictionary(), new IdDictionary());
+
+        //then
+        assertTrue(result.getTotalDiscount().compareTo(AssignmentResult.totalDiscount(greedy)) >= 0);
+        assertEquals(AssignmentResult.totalDiscount(result.getAssignment()), result.getTotalDiscount());
+        assertTrue(result.getUpperBound().compareTo(result.getTotalDiscount()) >= 0);
+        assertEquals(orders.size(), result.getAssignment().size());
+        assertWithinLimits(result.getAssignment(), methods);
+    }
+
+    @Test
+    void shouldUseConfiguredStrategyInAssigner() {
+        //given
+        OptimizerProperties properties = new OptimizerProperties();
+        properties.setStrategy(AssignmentStrategyType.BRANCH_AND_BOUND);
+        PaymentMethodAssigner branchAndBoundAssigner = new PaymentMethodAssigner(properties);
+        List<Order> orders = List.of(new Order("ORDER1", new BigDecimal("100.00"), List.of("mZysk")));
+        List<PaymentMethod> methods = List.of(
+                new PaymentMethod("mZysk", 10, new BigDecimal("100.00")),
+                new PaymentMethod("PUNKTY", 15, new BigDecimal("0.00")));
+
+        //when
+        AssignmentResult result = branchAndBoundAssigner.solve(orders, methods, new IdDictionary(), new IdDictionary());
+
+        //then
+        assertEquals(AssignmentStrategyType.BRANCH_AND_BOUND, result.getStrategy());
+        assertEquals(new BigDecimal("10.00"), result.getTotalDiscount());
+    }
+
+    private BranchAndBoundAssignmentStrategy strategy(Duration timeBudget) {
+        return new BranchAndBoundAssignmentStrategy(assigner, timeBudget);
+    }
+
+    private void assertWithinLimits(Map<String, DiscountOption> assignment, List<PaymentMethod> methods) {
+        Map<String, BigDecimal> used = new HashMap<>();
+        for (DiscountOption option : assignment.values()) {
+            if (option.getPromoType() != null) {
+                used.merge(option.getPromoMethodId(), option.getPromoLimitUsed(), BigDecimal::add);
+            }
+        }
+        for (PaymentMethod method : methods) {
+            assertTrue(used.getOrDefault(method.getId(), BigDecimal.ZERO).compareTo(method.getLimit()) <= 0);
+        }
+    }
+
+}
@@ -0,0 +1,86 @@
+package pl.wachala.optimizer;
+
+import org.junit.jupiter.api.Test;
+import pl.wachala.models.PromotionType;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CandidateTableTest {
+
+    @Test
+    void shouldStoreRowsBeyondInitialCapacity() {
+        //given
+        CandidateTable table = new CandidateTable(2);
+
+        //when
+        for (int i = 0; i < 100; i++) {
+            table.add(i, i % 3, PromotionType.LOYALTY_POINTS_FULL, i * 2L, i * 3L);
+        }
+
+        //then
+        assertEquals(100, table.size());
+        assertEquals(57, table.getOrderIndex(57));
+        assertEquals(0, table.getMethodIndex(57));
+        assertEquals(114, table.getDiscount(57));
+        assertEquals(171, table.getLimitUsed(57));
+        assertEquals(PromotionType.LOYALTY_POINTS_FULL, table.getPromoType(57));
+    }
+
+    @Test
+    void shouldDropRowsOnTruncate() {
+        //given
+        CandidateTable table = new CandidateTable();
+        table.add(0, 0, PromotionType.CARD, 10, 10);
+        table.add(0, 1, PromotionType.LOYALTY_POINTS_PARTIAL, 5, 5);
+
+        //when
+        table.truncate(1);
+        table.add(1, 2, PromotionType.CARD, 7, 7);
+
+        //then
+        assertEquals(2, table.size());
+        assertEquals(1, table.getOrderIndex(1));
+        assertEquals(PromotionType.CARD, table.getPromoType(1));
+    }
+
+    @Test
+    void shouldSortStableByLimitUsedDescending() {
+        //given
+        CandidateTable table = new CandidateTable();
+        long[] limitUsed = {5, 7, 5, 9, 7, 5};
+        for (int i = 0; i < limitUsed.length; i++) {
+            table.add(i, 0, PromotionType.CARD, limitUsed[i], limitUsed[i]);
+        }
+
+        //when
+        int[] rows = table.sortedByLimitUsedDescending();
+
+        //then
+        assertArrayEquals(new int[]{3, 1, 4, 0, 2, 5}, rows);
+    }
+
+    @Test
+    void shouldKeepRowsWithLargestDiscountsInTheirOrder() {
+        //given
+        CandidateTable table = new CandidateTable();
+        CandidateTable removed = new CandidateTable();
+        table.add(0, 9, PromotionType.CARD, 100, 100);
+        long[] discounts = {5, 8, 3, 8, 9, 1};
+        for (int i = 0; i < discounts.length; i++) {
+            table.add(1, i, PromotionType.CARD, discounts[i], discounts[i]);
+        }
+
+        //when
+        table.keepLargestDiscounts(1, 3, removed);
+
+        //then
+        assertEquals(4, table.size());
+        assertEquals(9, table.getMethodIndex(0));
+        assertEquals(1, table.getMethodIndex(1));
+        assertEquals(3, table.getMethodIndex(2));
+        assertEquals(4, table.getMethodIndex(3));
+        assertEquals(3, removed.size());
+        assertEquals(5 + 3 + 1, removed.getDiscount(0) + removed.getDiscount(1) + removed.getDiscount(2));
+    }
+
+}
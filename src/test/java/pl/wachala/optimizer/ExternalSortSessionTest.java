@@ -0,0 +1,149 @@
+package pl.wachala.optimizer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pl.wachala.config.OptimizerProperties;
+import pl.wachala.generator.WorkloadGenerator;
+import pl.wachala.generator.WorkloadSpec;
+import pl.wachala.metrics.MetricsRegistry;
+import pl.wachala.models.Order;
+import pl.wachala.models.PaymentMethod;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExternalSortSessionTest {
+
+    private final PaymentMethodSummaryGenerator summaryGenerator = new PaymentMethodSummaryGenerator();
+
+    @Test
+    void shouldMatchSummaryOfInMemoryAssignmentForAnyRunSize(@TempDir Path spillDirectory) throws IOException {
+        //given
+        List<Order> orders = new ArrayList<>();
+        List<PaymentMethod> methods = new WorkloadGenerator(spec()).generate(orders::add);
+        Map<String, BigDecimal> expected = summaryGenerator.summarize(new PaymentMethodAssigner().assign(orders, methods));
+
+        for (int runSize : new int[]{1, 10, 1000, 1_000_000}) {
+            PaymentMethodAssigner assigner = new PaymentMethodAssigner(properties(runSize, spillDirectory));
+
+            //when
+            Map<String, BigDecimal> summary;
+            try (ExternalSortSession session = assigner.openExternalSession(methods)) {
+                orders.forEach(session);
+                summary = session.finish();
+            }
+
+            //then
+            assertEquals(expected, summary, "run size " + runSize);
+            assertEquals(orders.size(), assigner.getMetrics().getCounter(MetricsRegistry.ORDERS));
+            assertTrue(assigner.getMetrics().getCounter(MetricsRegistry.SPILLED_RUNS) > 0);
+        }
+        try (var files = Files.list(spillDirectory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void shouldMergeRunsInPassesWhenThereAreMoreRunsThanFanIn(@TempDir Path spillDirectory) throws IOException {
+        //given
+        List<Order> orders = new ArrayList<>();
+        List<PaymentMethod> methods = new WorkloadGenerator(spec()).generate(orders::add);
+        Map<String, BigDecimal> expected = summaryGenerator.summarize(new PaymentMethodAssigner().assign(orders, methods));
+        PaymentMethodAssigner assigner = new PaymentMethodAssigner(properties(10, spillDirectory));
+
+        //when
+        Map<String, BigDecimal> summary;
+        try (ExternalSortSession session = new ExternalSortSession(assigner, methods,
+                assigner.getDefaultPaymentMethod(methods), 10, 3, spillDirectory)) {
+            orders.forEach(session);
+            summary = session.finish();
+        }
+
+        //then
+        assertEquals(expected, summary);
+        assertTrue(assigner.getMetrics().getCounter(MetricsRegistry.MERGE_PASSES) > 1);
+        try (var files = Files.list(spillDirectory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void shouldKeepScaleAndFallbackOfInMemoryAssignment(@TempDir Path spillDirectory) throws IOException {
+        //given
+        List<Order> orders = Arrays.asList(
+                new Order("ORDER1", new BigDecimal("100.0"), Arrays.asList("mZysk")),
+                new Order("ORDER2", new BigDecimal("200"), Arrays.asList("mZysk", "BosBankrut")),
+                new Order("ORDER3", new BigDecimal("50.00"), Collections.emptyList()),
+                new Order("ORDER4", new BigDecimal("30"), Collections.emptyList()),
+                new Order("ORDER5", new BigDecimal("80"), Collections.emptyList()));
+        List<PaymentMethod> methods = Arrays.asList(
+                new PaymentMethod("mZysk", 10, new BigDecimal("100")),
+                new PaymentMethod("BosBankrut", 5, new BigDecimal("10.5")),
+                new PaymentMethod("PUNKTY", 15, new BigDecimal("40")));
+        Map<String, BigDecimal> expected = summaryGenerator.summarize(new PaymentMethodAssigner().assign(orders, methods));
+
+        //when
+        Map<String, BigDecimal> summary;
+        try (ExternalSortSession session = new PaymentMethodAssigner(properties(2, spillDirectory)).openExternalSession(methods)) {
+            orders.forEach(session);
+            summary = session.finish();
+        }
+
+        //then
+        assertEquals(expected, summary);
+    }
+
+    @Test
+    void shouldLeaveUncoveredOrdersOutWithoutLoyaltyPoints(@TempDir Path spillDirectory) throws IOException {
+        //given
+        List<Order> orders = Arrays.asList(
+                new Order("ORDER1", new BigDecimal("100.00"), Arrays.asList("mZysk")),
+                new Order("ORDER2", new BigDecimal("200.00"), Arrays.asList("mZysk")),
+                new Order("ORDER3", new BigDecimal("50.00"), Collections.emptyList()));
+        List<PaymentMethod> methods = List.of(new PaymentMethod("mZysk", 10, new BigDecimal("20.00")));
+
+        //when
+        Map<String, BigDecimal> summary;
+        try (ExternalSortSession session = new PaymentMethodAssigner(properties(1, spillDirectory)).openExternalSession(methods)) {
+            orders.forEach(session);
+            summary = session.finish();
+        }
+
+        //then
+        assertEquals(Map.of("mZysk", new BigDecimal("180.00")), summary);
+    }
+
+    @Test
+    void shouldRejectValuesWithMoreThanTwoDecimalPlaces(@TempDir Path spillDirectory) throws IOException {
+        //given
+        List<PaymentMethod> methods = List.of(new PaymentMethod("mZysk", 10, new BigDecimal("20.00")));
+
+        try (ExternalSortSession session = new PaymentMethodAssigner(properties(1, spillDirectory)).openExternalSession(methods)) {
+            //when & then
+            assertThrows(IllegalArgumentException.class,
+                    () -> session.accept(new Order("ORDER1", new BigDecimal("1.005"), List.of("mZysk"))));
+        }
+    }
+
+    private static OptimizerProperties properties(int runSize, Path spillDirectory) {
+        OptimizerProperties properties = new OptimizerProperties();
+        properties.setExternalSortRunSize(runSize);
+        properties.setSpillDirectory(spillDirectory.toString());
+        return properties;
+    }
+
+    private static WorkloadSpec spec() {
+        WorkloadSpec spec = new WorkloadSpec();
+        spec.setSeed(11);
+        spec.setOrdersCount(3000);
+        spec.setMethodsCount(6);
+        spec.setPromotionsPerOrder(2);
+        return spec;
+    }
+
+}
@@ -0,0 +1,214 @@
+package pl.wachala.optimizer;
+
+import org.junit.jupiter.api.Test;
+import pl.wachala.config.OptimizerProperties;
+import pl.wachala.metrics.MetricsRegistry;
+import pl.wachala.models.DiscountOption;
+import pl.wachala.models.Order;
+import pl.wachala.models.PaymentMethod;
+import pl.wachala.util.IdDictionary;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FixedPointEngineTest {
+
+    private final PaymentMethodAssigner bigDecimalAssigner = new PaymentMethodAssigner();
+    private final PaymentMethodAssigner fixedPointAssigner = new PaymentMethodAssigner(fixedPointProperties());
+
+    @Test
+    void shouldProduceSameAssignmentAsBigDecimalArithmetic() {
+        //given
+        List<Order> orders = Arrays.asList(
+                new Order("ORDER1", new BigDecimal("100.00"), Arrays.asList("mZysk")),
+                new Order("ORDER2", new BigDecimal("200.00"), Arrays.asList("BosBankrut")),
+                new Order("ORDER3", new BigDecimal("150.00"), Arrays.asList("mZysk", "BosBankrut")),
+                new Order("ORDER4", new BigDecimal("50.00"), Collections.emptyList()),
+                new Order("ORDER5", new BigDecimal("33.33"), Arrays.asList("PUNKTY", "UNKNOWN")),
+                new Order("ORDER6", new BigDecimal("17"), Arrays.asList("mZysk")));
+
+        List<PaymentMethod> methods = Arrays.asList(
+                new PaymentMethod("PUNKTY", 15, new BigDecimal("100.00")),
+                new PaymentMethod("mZysk", 10, new BigDecimal("180.00")),
+                new PaymentMethod("BosBankrut", 5, new BigDecimal("200.00")));
+
+        //when
+        Map<String, DiscountOption> expected = bigDecimalAssigner.assign(orders, methods);
+        Map<String, DiscountOption> result = fixedPointAssigner.assign(orders, methods);
+
+        //then
+        assertSameAssignment(expected, result);
+    }
+
+    @Test
+    void shouldTreatOrdersWithSameIdAsBigDecimalArithmetic() {
+        //given
+        List<Order> orders = Arrays.asList(
+                new Order("ORDER1", new BigDecimal("100.00"), Arrays.asList("mZysk")),
+                new Order("ORDER1", new BigDecimal("300.00"), Arrays.asList("mZysk")),
+                new Order("ORDER2", new BigDecimal("20.00"), Collections.emptyList()));
+
+        List<PaymentMethod> methods = Arrays.asList(
+                new PaymentMethod("mZysk", 10, new BigDecimal("5.00")),
+                new PaymentMethod("PUNKTY", 15, new BigDecimal("10")));
+
+        //when
+        Map<String, DiscountOption> expected = bigDecimalAssigner.assign(orders, methods);
+        Map<String, DiscountOption> result = fixedPointAssigner.assign(orders, methods);
+
+        //then
+        assertSameAssignment(expected, result);
+    }
+
+    @Test
+    void shouldFallBackToBigDecimalWhenValueHasMoreThanTwoDecimalPlaces() {
+        //given
+        List<Order> orders = Arrays.asList(
+                new Order("ORDER1", new BigDecimal("100.00"), Arrays.asList("mZysk")),
+                new Order("ORDER2", new BigDecimal("10.005"), Arrays.asList("mZysk")));
+
+        List<PaymentMethod> methods = Arrays.asList(
+                new PaymentMethod("mZysk", 10, new BigDecimal("180.00")),
+                new PaymentMethod("PUNKTY", 15, new BigDecimal("100.00")));
+
+        //when
+        Map<String, DiscountOption> expected = bigDecimalAssigner.assign(orders, methods);
+        Map<String, DiscountOption> result = fixedPointAssigner.assign(orders, methods);
+        AssignmentSession session = fixedPointAssigner.openSession(methods);
+        orders.forEach(session);
+        Map<String, DiscountOption> streamed = session.finish();
+
+        //then
+        assertSameAssignment(expected, result);
+        assertSameAssignment(expected, streamed);
+    }
+
+    @Test
+    void shouldProduceSameAssignmentRegardlessOfParallelism() {
+        //given
+        Random random = new Random(42);
+        List<PaymentMethod> methods = new ArrayList<>();
+        methods.add(new PaymentMethod("PUNKTY", 15, new BigDecimal("2500.00")));
+        for (int i = 0; i < 20; i++) {
+            methods.add(new PaymentMethod("BANK" + i, random.nextInt(25), BigDecimal.valueOf(random.nextInt(200000), 2)));
+        }
+
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            List<String> promotions = new ArrayList<>();
+            for (int j = random.nextInt(4); j > 0; j--) {
+                promotions.add("BANK" + random.nextInt(25));
+            }
+            orders.add(new Order("ORDER" + i, BigDecimal.valueOf(random.nextInt(100000), 2), promotions));
+        }
+
+        OptimizerProperties parallelProperties = fixedPointProperties();
+        parallelProperties.setParallelism(4);
+        PaymentMethodAssigner parallelAssigner = new PaymentMethodAssigner(parallelProperties);
+
+        //when
+        Map<String, DiscountOption> expected = bigDecimalAssigner.assign(orders, methods);
+        Map<String, DiscountOption> sequential = fixedPointAssigner.assign(orders, methods);
+        Map<String, DiscountOption> parallel = parallelAssigner.assign(orders, methods);
+
+        //then
+        assertSameAssignment(expected, sequential);
+        assertSameAssignment(expected, parallel);
+    }
+
+    @Test
+    void shouldKeepAssignmentWhenPruningLeavesAllCardCandidates() {
+        //given
+        List<Order> orders = Arrays.asList(
+                new Order("ORDER1", new BigDecimal("100.00"), Arrays.asList("mZysk", "BosBankrut")),
+                new Order("ORDER2", new BigDecimal("200.00"), Arrays.asList("BosBankrut")),
+                new Order("ORDER3", new BigDecimal("50.00"), Collections.emptyList()));
+        List<PaymentMethod> methods = Arrays.asList(
+                new PaymentMethod("mZysk", 10, new BigDecimal("10.00")),
+                new PaymentMethod("BosBankrut", 5, new BigDecimal("10.00")),
+                new PaymentMethod("PUNKTY", 15, new BigDecimal("30.00")));
+        OptimizerProperties properties = new OptimizerProperties();
+        properties.setCandidatesPerOrder(2);
+        PaymentMethodAssigner pruningAssigner = new PaymentMethodAssigner(properties);
+
+        //when
+        Map<String, DiscountOption> expected = bigDecimalAssigner.assign(orders, methods);
+        Map<String, DiscountOption> result = pruningAssigner.assign(orders, methods);
+
+        //then
+        assertSameAssignment(expected, result);
+        assertEquals(0, pruningAssigner.getMetrics().getCounter(MetricsRegistry.PRUNED_CANDIDATES));
+        assertEquals(0, pruningAssigner.getMetrics().getCounter(MetricsRegistry.PRUNED_CANDIDATES_NEEDED));
+    }
+
+    @Test
+    void shouldCountOrdersWhichNeededPrunedCandidate() {
+        //given
+        List<Order> orders = Arrays.asList(
+                new Order("ORDER1", new BigDecimal("100.00"), Arrays.asList("mZysk", "BosBankrut")),
+                new Order("ORDER2", new BigDecimal("100.00"), Arrays.asList("mZysk", "BosBankrut")));
+        List<PaymentMethod> methods = Arrays.asList(
+                new PaymentMethod("mZysk", 10, new BigDecimal("10.00")),
+                new PaymentMethod("BosBankrut", 5, new BigDecimal("50.00")));
+        OptimizerProperties properties = new OptimizerProperties();
+        properties.setCandidatesPerOrder(1);
+        PaymentMethodAssigner pruningAssigner = new PaymentMethodAssigner(properties);
+
+        //when
+        Map<String, DiscountOption> result = pruningAssigner.assign(orders, methods);
+
+        //then
+        //only one order fits into mZysk limit, the other one would have used the pruned BosBankrut promotion
+        assertEquals("mZysk", result.get("ORDER1").getPromoMethodId());
+        assertFalse(result.containsKey("ORDER2"));
+        assertEquals(2, pruningAssigner.getMetrics().getCounter(MetricsRegistry.PRUNED_CANDIDATES));
+        assertEquals(1, pruningAssigner.getMetrics().getCounter(MetricsRegistry.PRUNED_CANDIDATES_NEEDED));
+    }
+
+    @Test
+    void shouldPruneCandidatesOnlyForGreedyStrategy() {
+        //given
+        List<Order> orders = Arrays.asList(
+                new Order("ORDER1", new BigDecimal("100.00"), Arrays.asList("mZysk", "BosBankrut")),
+                new Order("ORDER2", new BigDecimal("100.00"), Arrays.asList("mZysk", "BosBankrut")));
+        List<PaymentMethod> methods = Arrays.asList(
+                new PaymentMethod("mZysk", 10, new BigDecimal("10.00")),
+                new PaymentMethod("BosBankrut", 5, new BigDecimal("50.00")));
+        OptimizerProperties properties = new OptimizerProperties();
+        properties.setCandidatesPerOrder(1);
+        properties.setStrategy(AssignmentStrategyType.LOCAL_SEARCH);
+        PaymentMethodAssigner pruningAssigner = new PaymentMethodAssigner(properties);
+
+        //when
+        AssignmentResult result = pruningAssigner.solve(orders, methods, new IdDictionary(), new IdDictionary());
+
+        //then
+        //the BosBankrut promotion pruned for the greedy pass is still available to local search
+        assertEquals("BosBankrut", result.getAssignment().get("ORDER2").getPromoMethodId());
+        assertEquals(0, pruningAssigner.getMetrics().getCounter(MetricsRegistry.PRUNED_CANDIDATES));
+    }
+
+    private static OptimizerProperties fixedPointProperties() {
+        OptimizerProperties properties = new OptimizerProperties();
+        properties.setArithmetic(ArithmeticEngine.FIXED_POINT);
+        return properties;
+    }
+
+    private void assertSameAssignment(Map<String, DiscountOption> expected, Map<String, DiscountOption> result) {
+        assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(result.keySet()));
+        for (String orderId : expected.keySet()) {
+            DiscountOption expectedOption = expected.get(orderId);
+            DiscountOption option = result.get(orderId);
+            assertEquals(expectedOption.getOrderId(), option.getOrderId());
+            assertEquals(expectedOption.getDiscount(), option.getDiscount());
+            assertEquals(expectedOption.getValueAfterDiscount(), option.getValueAfterDiscount());
+            assertEquals(expectedOption.getPromoLimitUsed(), option.getPromoLimitUsed());
+            assertEquals(expectedOption.getPromoType(), option.getPromoType());
+            assertEquals(expectedOption.getPromoMethodId(), option.getPromoMethodId());
+            assertEquals(expectedOption.getPaymentMethodId(), option.getPaymentMethodId());
+        }
+    }
+
+}
@@ -0,0 +1,115 @@
+package pl.wachala.optimizer;
+
+import org.junit.jupiter.api.Test;
+import pl.wachala.models.DiscountOption;
+import pl.wachala.models.Order;
+import pl.wachala.models.PaymentMethod;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IncrementalAssignmentTest {
+
+    private final PaymentMethodAssigner assigner = new PaymentMethodAssigner();
+
+    @Test
+    void shouldMatchFullRecomputeAfterEveryChange() {
+        //given
+        Random random = new Random(17);
+        List<PaymentMethod> methods = Arrays.asList(
+                new PaymentMethod("PUNKTY", 15, new BigDecimal("40.00")),
+                new PaymentMethod("mZysk", 10, new BigDecimal("30.00")),
+                new PaymentMethod("BosBankrut", 5, new BigDecimal("25.00")));
+        IncrementalAssignment incremental = assigner.openIncremental(methods);
+        LinkedHashMap<String, Order> orders = new LinkedHashMap<>();
+        for (int i = 0; i < 20; i++) {
+            orders.put("ORDER" + i, randomOrder("ORDER" + i, random));
+        }
+        incremental.addOrders(new ArrayList<>(orders.values()));
+        assertSameAssignment(assigner.assign(new ArrayList<>(orders.values()), methods), incremental.getAssignment());
+
+        for (int step = 0; step < 500; step++) {
+            //when
+            int operation = random.nextInt(3);
+            if (operation == 0 || orders.isEmpty()) {
+                Order order = randomOrder("NEW" + step, random);
+                incremental.addOrder(order);
+                orders.put(order.getId(), order);
+            } else if (operation == 1) {
+                String orderId = new ArrayList<>(orders.keySet()).get(random.nextInt(orders.size()));
+                assertTrue(incremental.removeOrder(orderId));
+                orders.remove(orderId);
+            } else {
+                String methodId = methods.get(random.nextInt(methods.size())).getId();
+                incremental.updateLimit(methodId, BigDecimal.valueOf(random.nextInt(6000), 2));
+            }
+
+            //then
+            Map<String, DiscountOption> expected = assigner.assign(new ArrayList<>(orders.values()), incremental.getPaymentMethods());
+            assertSameAssignment(expected, incremental.getAssignment());
+        }
+    }
+
+    @Test
+    void shouldReevaluateOnlyOptionsOfNewOrderWhenNothingElseChanges() {
+        //given
+        List<PaymentMethod> methods = Arrays.asList(
+                new PaymentMethod("PUNKTY", 15, new BigDecimal("10.00")),
+                new PaymentMethod("mZysk", 10, new BigDecimal("100.00")));
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            orders.add(new Order("ORDER" + i, new BigDecimal("50.00"), List.of("mZysk")));
+        }
+        IncrementalAssignment incremental = assigner.openIncremental(methods);
+        incremental.addOrders(orders);
+
+        //when
+        //its options come last in greedy order and both limits are already used up
+        incremental.addOrder(new Order("LATE", new BigDecimal("1.00"), List.of("mZysk")));
+
+        //then
+        assertEquals(3, incremental.getLastReevaluated());
+        assertEquals(1001, incremental.getOrdersCount());
+    }
+
+    @Test
+    void shouldRejectInvalidChanges() {
+        //given
+        IncrementalAssignment incremental = assigner.openIncremental(List.of(
+                new PaymentMethod("PUNKTY", 15, new BigDecimal("10.00")),
+                new PaymentMethod("mZysk", 10, new BigDecimal("100.00"))));
+        incremental.addOrder(new Order("ORDER1", new BigDecimal("50.00"), List.of("mZysk")));
+
+        //when & then
+        assertThrows(IllegalArgumentException.class, () -> incremental.addOrder(new Order("ORDER1", new BigDecimal("10.00"), List.of())));
+        assertThrows(IllegalArgumentException.class, () -> incremental.updateLimit("UNKNOWN", BigDecimal.ONE));
+        assertFalse(incremental.removeOrder("UNKNOWN"));
+    }
+
+    private Order randomOrder(String id, Random random) {
+        List<String> promotions = switch (random.nextInt(4)) {
+            case 0 -> List.of();
+            case 1 -> List.of("mZysk");
+            case 2 -> List.of("BosBankrut");
+            default -> List.of("mZysk", "BosBankrut");
+        };
+        return new Order(id, BigDecimal.valueOf(random.nextInt(20000), 2), promotions);
+    }
+
+    private void assertSameAssignment(Map<String, DiscountOption> expected, Map<String, DiscountOption> result) {
+        assertEquals(expected.keySet(), result.keySet());
+        for (String orderId : expected.keySet()) {
+            DiscountOption expectedOption = expected.get(orderId);
+            DiscountOption option = result.get(orderId);
+            assertEquals(expectedOption.getDiscount(), option.getDiscount());
+            assertEquals(expectedOption.getValueAfterDiscount(), option.getValueAfterDiscount());
+            assertEquals(expectedOption.getPromoLimitUsed(), option.getPromoLimitUsed());
+            assertEquals(expectedOption.getPromoType(), option.getPromoType());
+            assertEquals(expectedOption.getPromoMethodId(), option.getPromoMethodId());
+            assertEquals(expectedOption.getPaymentMethodId(), option.getPaymentMethodId());
+        }
+    }
+
+}
@@ -0,0 +1,137 @@
+package pl.wachala.optimizer;
+
+import org.junit.jupiter.api.Test;
+import pl.wachala.models.DiscountOption;
+import pl.wachala.models.PaymentMethod;
+import pl.wachala.models.PromotionType;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LimitLedgerTest {
+
+    private final List<PaymentMethod> paymentMethods = List.of(
+            new PaymentMethod("PUNKTY", 15, new BigDecimal("100.00")),
+            new PaymentMethod("mZysk", 10, new BigDecimal("180.00")));
+
+    @Test
+    void shouldReserveUntilLimitIsUsed() {
+        //given
+        LimitLedger ledger = new LimitLedger(paymentMethods);
+
+        //when
+        boolean first = ledger.tryReserve("mZysk", 15000);
+        boolean second = ledger.tryReserve("mZysk", 3001);
+        boolean third = ledger.tryReserve("mZysk", 3000);
+
+        //then
+        assertTrue(first);
+        assertFalse(second);
+        assertTrue(third);
+        assertEquals(0, ledger.getAvailableCents("mZysk"));
+        assertEquals(10000, ledger.getAvailableCents("PUNKTY"));
+        assertEquals(1, ledger.getRejections("mZysk"));
+    }
+
+    @Test
+    void shouldRejectReleaseAboveLimitAndUnknownMethods() {
+        //given
+        LimitLedger ledger = new LimitLedger(paymentMethods);
+        ledger.tryReserve("PUNKTY", 1000);
+
+        //when
+        ledger.release("PUNKTY", 1000);
+
+        //then
+        assertEquals(10000, ledger.getAvailableCents("PUNKTY"));
+        assertThrows(IllegalStateException.class, () -> ledger.release("PUNKTY", 1));
+        assertThrows(IllegalArgumentException.class, () -> ledger.tryReserve("BosBankrut", 1));
+        assertThrows(IllegalArgumentException.class, () -> ledger.tryReserve("PUNKTY", -1));
+    }
+
+    @Test
+    void shouldReserveAllOrNothing() {
+        //given
+        LimitLedger ledger = new LimitLedger(paymentMethods);
+        List<DiscountOption> fitting = List.of(
+                option("ORDER1", "mZysk", "90.00"),
+                option("ORDER2", "PUNKTY", "60.00"),
+                option("ORDER3", "mZysk", "90.00"));
+        List<DiscountOption> exceeding = List.of(
+                option("ORDER4", "mZysk", "0.00"),
+                option("ORDER5", "PUNKTY", "30.00"),
+                option("ORDER6", "PUNKTY", "20.00"));
+
+        //when
+        boolean fittingReserved = ledger.tryReserveAll(fitting);
+        boolean exceedingReserved = ledger.tryReserveAll(exceeding);
+
+        //then
+        assertTrue(fittingReserved);
+        assertFalse(exceedingReserved);
+        assertEquals(0, ledger.getAvailableCents("mZysk"));
+        assertEquals(4000, ledger.getAvailableCents("PUNKTY"));
+
+        ledger.releaseAll(fitting);
+        assertEquals(18000, ledger.getAvailableCents("mZysk"));
+        assertEquals(10000, ledger.getAvailableCents("PUNKTY"));
+    }
+
+    @Test
+    void shouldNeverReserveMoreThanLimitFromManyThreads() throws Exception {
+        //given
+        LimitLedger ledger = new LimitLedger(paymentMethods);
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        //when
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int thread = 0; thread < threads; thread++) {
+            futures.add(executor.submit(() -> {
+                int reserved = 0;
+                for (int i = 0; i < 10_000; i++) {
+                    if (ledger.tryReserve("mZysk", 1)) {
+                        reserved++;
+                    }
+                    if (i % 2 == 0 && ledger.tryReserve("PUNKTY", 1)) {
+                        ledger.release("PUNKTY", 1);
+                    }
+                }
+                return reserved;
+            }));
+        }
+        int reserved = 0;
+        for (Future<Integer> future : futures) {
+            reserved += future.get();
+        }
+        executor.shutdown();
+
+        //then
+        assertEquals(18000, reserved);
+        assertEquals(0, ledger.getAvailableCents("mZysk"));
+        assertEquals(10000, ledger.getAvailableCents("PUNKTY"));
+        Map<String, Object> stats = ledger.snapshot().get("mZysk");
+        assertEquals(18000L, stats.get("reservations"));
+        assertEquals(threads * 10_000L - 18000, stats.get("rejections"));
+        assertEquals(threads * 5_000L, ledger.snapshot().get("PUNKTY").get("releases"));
+    }
+
+    @Test
+    void shouldRejectLimitsWithMoreThanTwoDecimals() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new LimitLedger(List.of(new PaymentMethod("PUNKTY", 15, new BigDecimal("1.005")))));
+    }
+
+    private static DiscountOption option(String orderId, String promoMethodId, String limitUsed) {
+        return new DiscountOption(orderId, new BigDecimal(limitUsed), BigDecimal.ZERO, new BigDecimal(limitUsed),
+                PromotionType.CARD, promoMethodId, promoMethodId);
+    }
+
+}
@@ -0,0 +1,123 @@
+package pl.wachala.optimizer;
+
+import org.junit.jupiter.api.Test;
+import pl.wachala.models.DiscountOption;
+import pl.wachala.models.Order;
+import pl.wachala.models.PaymentMethod;
+import pl.wachala.util.IdDictionary;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LocalSearchAssignmentStrategyTest {
+
+    private final PaymentMethodAssigner assigner = new PaymentMethodAssigner();
+
+    @Test
+    void shouldShareLimitTakenByGreedyAmongSmallerOrders() {
+        //given
+        //greedy takes 8.00 from ORDER1 first and has no limit left for ORDER2 and ORDER3 (5.00 each)
+        List<Order> orders = Arrays.asList(
+                new Order("ORDER1", new BigDecimal("80.00"), List.of("mZysk")),
+                new Order("ORDER2", new BigDecimal("50.00"), List.of("mZysk")),
+                new Order("ORDER3", new BigDecimal("50.00"), List.of("mZysk")));
+        List<PaymentMethod> methods = Arrays.asList(
+                new PaymentMethod("mZysk", 10, new BigDecimal("10.00")),
+                new PaymentMethod("PUNKTY", 0, new BigDecimal("0.00")));
+
+        //when
+        AssignmentResult result = strategy(Duration.ofSeconds(5)).assign(orders, methods, new IdDictionary(), new IdDictionary());
+
+        //then
+        assertEquals(AssignmentStrategyType.LOCAL_SEARCH, result.getStrategy());
+        assertEquals(new BigDecimal("8.00"), result.getGreedyDiscount());
+        assertEquals(new BigDecimal("10.00"), result.getTotalDiscount());
+        assertNull(result.getUpperBound());
+        assertTrue(result.getIterations() > 0);
+        assertTrue(result.getGainPerMillis().signum() > 0);
+        assertEquals("mZysk", result.getAssignment().get("ORDER2").getPromoMethodId());
+        assertEquals("mZysk", result.getAssignment().get("ORDER3").getPromoMethodId());
+        assertNull(result.getAssignment().get("ORDER1").getPromoType());
+    }
+
+    @Test
+    void shouldMoveOrderToOtherCardToFreeLimitForLargerDiscount() {
+        //given
+        //greedy puts ORDER1 on mZysk (20%) leaving nothing for ORDER2, which only has mZysk; ORDER1 could use BosBankrut instead
+        List<Order> orders = Arrays.asList(
+                new Order("ORDER1", new BigDecimal("100.00"), List.of("mZysk", "BosBankrut")),
+                new Order("ORDER2", new BigDecimal("90.00"), List.of("mZysk")));
+        List<PaymentMethod> methods = Arrays.asList(
+                new PaymentMethod("mZysk", 20, new BigDecimal("20.00")),
+                new PaymentMethod("BosBankrut", 10, new BigDecimal("100.00")));
+
+        //when
+        AssignmentResult result = strategy(Duration.ofSeconds(5)).assign(orders, methods, new IdDictionary(), new IdDictionary());
+
+        //then
+        assertEquals(new BigDecimal("20.00"), result.getGreedyDiscount());
+        assertEquals(new BigDecimal("28.00"), result.getTotalDiscount());
+        assertEquals("BosBankrut", result.getAssignment().get("ORDER1").getPromoMethodId());
+        assertEquals("mZysk", result.getAssignment().get("ORDER2").getPromoMethodId());
+    }
+
+    @Test
+    void shouldReturnGreedyAssignmentWhenBudgetIsZero() {
+        //given
+        List<Order> orders = Arrays.asList(
+                new Order("ORDER1", new BigDecimal("80.00"), List.of("mZysk")),
+                new Order("ORDER2", new BigDecimal("50.00"), List.of("mZysk")));
+        List<PaymentMethod> methods = Arrays.asList(
+                new PaymentMethod("mZysk", 10, new BigDecimal("10.00")),
+                new PaymentMethod("PUNKTY", 15, new BigDecimal("20.00")));
+
+        //when
+        Map<String, DiscountOption> greedy = assigner.assign(orders, methods);
+        AssignmentResult result = strategy(Duration.ZERO).assign(orders, methods, new IdDictionary(), new IdDictionary());
+
+        //then
+        assertEquals(AssignmentResult.totalDiscount(greedy), result.getTotalDiscount());
+        assertEquals(result.getGreedyDiscount(), result.getTotalDiscount());
+    }
+
+    @Test
+    void shouldNeverReturnLessThanGreedy() {
+        //given
+        Random random = new Random(11);
+        List<PaymentMethod> methods = new ArrayList<>();
+        methods.add(new PaymentMethod("PUNKTY", 15, new BigDecimal("300.00")));
+        for (int i = 0; i < 5; i++) {
+            methods.add(new PaymentMethod("BANK" + i, 5 + random.nextInt(20), BigDecimal.valueOf(random.nextInt(20000), 2)));
+        }
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            orders.add(new Order("ORDER" + i, BigDecimal.valueOf(random.nextInt(50000), 2), List.of("BANK" + random.nextInt(5), "BANK" + random.nextInt(5))));
+        }
+
+        //when
+        Map<String, DiscountOption> greedy = assigner.assign(orders, methods);
+        AssignmentResult result = strategy(Duration.ofMillis(100)).assign(orders, methods, new IdDictionary(), new IdDictionary());
+
+        //then
+        assertTrue(result.getTotalDiscount().compareTo(AssignmentResult.totalDiscount(greedy)) >= 0);
+        assertEquals(AssignmentResult.totalDiscount(result.getAssignment()), result.getTotalDiscount());
+        assertEquals(orders.size(), result.getAssignment().size());
+        Map<String, BigDecimal> used = new HashMap<>();
+        for (DiscountOption option : result.getAssignment().values()) {
+            if (option.getPromoType() != null) {
+                used.merge(option.getPromoMethodId(), option.getPromoLimitUsed(), BigDecimal::add);
+            }
+        }
+        for (PaymentMethod method : methods) {
+            assertTrue(used.getOrDefault(method.getId(), BigDecimal.ZERO).compareTo(method.getLimit()) <= 0);
+        }
+    }
+
+    private LocalSearchAssignmentStrategy strategy(Duration timeBudget) {
+        return new LocalSearchAssignmentStrategy(assigner, timeBudget);
+    }
+
+}
@@ -0,0 +1,69 @@
+package pl.wachala.optimizer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelChunksTest {
+
+    @Test
+    void shouldCoverWholeRangeInChunkOrder() {
+        //given
+        int count = 10000;
+
+        //when
+        List<int[]> chunks = ParallelChunks.map(count, 4, (from, to) -> new int[]{from, to});
+
+        //then
+        assertTrue(chunks.size() > 1);
+        int expectedFrom = 0;
+        for (int[] chunk : chunks) {
+            assertEquals(expectedFrom, chunk[0]);
+            expectedFrom = chunk[1];
+        }
+        assertEquals(count, expectedFrom);
+    }
+
+    @Test
+    void shouldProcessInlineWithSingleThread() {
+        //given
+        List<String> threads = new ArrayList<>();
+
+        //when
+        List<Integer> result = ParallelChunks.map(10000, 1, (from, to) -> {
+            threads.add(Thread.currentThread().getName());
+            return to - from;
+        });
+
+        //then
+        assertEquals(List.of(10000), result);
+        assertEquals(List.of(Thread.currentThread().getName()), threads);
+    }
+
+    @Test
+    void shouldRunTaskForEveryIndex() {
+        //given
+        int count = 100;
+        AtomicIntegerArray calls = new AtomicIntegerArray(count);
+
+        //when
+        ParallelChunks.forEach(count, 4, calls::incrementAndGet);
+
+        //then
+        for (int i = 0; i < count; i++) {
+            assertEquals(1, calls.get(i));
+        }
+    }
+
+    @Test
+    void shouldRethrowRuntimeExceptionFromChunk() {
+        assertThrows(ArithmeticException.class, () -> ParallelChunks.map(10000, 4, (from, to) -> {
+            throw new ArithmeticException("overflow");
+        }));
+    }
+
+}
@@ -0,0 +1,139 @@
+package pl.wachala.optimizer;
+
+import org.junit.jupiter.api.Test;
+import pl.wachala.config.OptimizerProperties;
+import pl.wachala.metrics.Phase;
+import pl.wachala.models.DiscountOption;
+import pl.wachala.models.Order;
+import pl.wachala.models.PaymentMethod;
+import pl.wachala.util.IdDictionary;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PartitionedGreedyTest {
+
+    private final PaymentMethodAssigner assigner = new PaymentMethodAssigner();
+
+    @Test
+    void shouldSplitOrdersIntoComponentsOfSharedMethods() {
+        //given
+        List<Order> orders = Arrays.asList(
+                new Order("ORDER1", new BigDecimal("100.00"), List.of("mZysk", "BosBankrut")),
+                new Order("ORDER2", new BigDecimal("200.00"), List.of("BosBankrut")),
+                new Order("ORDER3", new BigDecimal("150.00"), List.of("Alior")),
+                new Order("ORDER4", new BigDecimal("50.00"), List.of()));
+        List<PaymentMethod> methods = Arrays.asList(
+                new PaymentMethod("PUNKTY", 15, new BigDecimal("100.00")),
+                new PaymentMethod("mZysk", 10, new BigDecimal("180.00")),
+                new PaymentMethod("BosBankrut", 5, new BigDecimal("200.00")),
+                new PaymentMethod("Alior", 7, new BigDecimal("200.00")));
+        FixedPointEngine engine = engine(orders, methods);
+
+        //when
+        PartitionedGreedy partitionedGreedy = new PartitionedGreedy(engine);
+        int[] winners = partitionedGreedy.select(1);
+
+        //then
+        assertEquals(2, partitionedGreedy.getComponentsCount());
+        assertArrayEquals(engine.selectGreedy(), winners);
+    }
+
+    @Test
+    void shouldSelectSameRowsAsSequentialGreedy() {
+        //given
+        Random random = new Random(3);
+        List<PaymentMethod> methods = new ArrayList<>();
+        methods.add(new PaymentMethod("PUNKTY", 15, new BigDecimal("2000.00")));
+        for (int i = 0; i < 30; i++) {
+            methods.add(new PaymentMethod("BANK" + i, 5 + random.nextInt(20), BigDecimal.valueOf(random.nextInt(200000), 2)));
+        }
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            //pairs of banks form separate components, some orders also list PUNKTY or repeat an id
+            int bank = random.nextInt(15) * 2;
+            List<String> promotions = random.nextInt(10) == 0
+                    ? List.of("BANK" + bank, "PUNKTY")
+                    : List.of("BANK" + bank, "BANK" + (bank + random.nextInt(2)));
+            String id = random.nextInt(50) == 0 ? "REPEATED" + bank : "ORDER" + i;
+            orders.add(new Order(id, BigDecimal.valueOf(random.nextInt(50000), 2), promotions));
+        }
+        FixedPointEngine engine = engine(orders, methods);
+        int[] expected = engine.selectGreedy();
+
+        //when
+        PartitionedGreedy sequential = new PartitionedGreedy(engine);
+        int[] singleThread = sequential.select(1);
+        PartitionedGreedy parallel = new PartitionedGreedy(engine);
+        int[] multiThread = parallel.select(4);
+
+        //then
+        assertEquals(15, parallel.getComponentsCount());
+        assertTrue(parallel.getRounds() < PartitionedGreedy.MAX_ROUNDS);
+        assertArrayEquals(expected, singleThread);
+        assertArrayEquals(expected, multiThread);
+    }
+
+    @Test
+    void shouldProduceSameAssignmentWhenEnabledInAssigner() {
+        //given
+        OptimizerProperties properties = new OptimizerProperties();
+        properties.setPartitioning(true);
+        properties.setParallelism(4);
+        PaymentMethodAssigner partitionedAssigner = new PaymentMethodAssigner(properties);
+        List<Order> orders = Arrays.asList(
+                new Order("ORDER1", new BigDecimal("100.00"), List.of("mZysk")),
+                new Order("ORDER2", new BigDecimal("200.00"), List.of("BosBankrut")),
+                new Order("ORDER3", new BigDecimal("150.00"), List.of("mZysk", "BosBankrut")),
+                new Order("ORDER4", new BigDecimal("50.00"), List.of()));
+        List<PaymentMethod> methods = Arrays.asList(
+                new PaymentMethod("PUNKTY", 15, new BigDecimal("100.00")),
+                new PaymentMethod("mZysk", 10, new BigDecimal("180.00")),
+                new PaymentMethod("BosBankrut", 5, new BigDecimal("200.00")));
+
+        //when
+        Map<String, DiscountOption> expected = assigner.assign(orders, methods);
+        Map<String, DiscountOption> result = partitionedAssigner.assign(orders, methods);
+
+        //then
+        assertEquals(expected.keySet(), result.keySet());
+        for (String orderId : expected.keySet()) {
+            assertEquals(expected.get(orderId).getPaymentMethodId(), result.get(orderId).getPaymentMethodId());
+            assertEquals(expected.get(orderId).getPromoMethodId(), result.get(orderId).getPromoMethodId());
+            assertEquals(expected.get(orderId).getDiscount(), result.get(orderId).getDiscount());
+            assertEquals(expected.get(orderId).getPromoLimitUsed(), result.get(orderId).getPromoLimitUsed());
+        }
+    }
+
+    @Test
+    void shouldNotRecordPhasesInSequentialFallback() {
+        //given
+        List<Order> orders = Arrays.asList(
+                new Order("ORDER1", new BigDecimal("100.00"), List.of("mZysk")),
+                new Order("ORDER2", new BigDecimal("200.00"), List.of("BosBankrut")));
+        List<PaymentMethod> methods = Arrays.asList(
+                new PaymentMethod("PUNKTY", 15, new BigDecimal("100.00")),
+                new PaymentMethod("mZysk", 10, new BigDecimal("180.00")),
+                new PaymentMethod("BosBankrut", 5, new BigDecimal("200.00")));
+        FixedPointEngine engine = engine(orders, methods);
+
+        //when
+        int[] untimed = engine.selectGreedyUntimed();
+
+        //then
+        //PartitionedGreedy falls back to this pass inside the greedy phase timed by PaymentMethodAssigner
+        assertEquals(0, assigner.getMetrics().getCount(Phase.SORT));
+        assertEquals(0, assigner.getMetrics().getCount(Phase.GREEDY));
+        assertArrayEquals(engine.selectGreedy(), untimed);
+    }
+
+    private FixedPointEngine engine(List<Order> orders, List<PaymentMethod> methods) {
+        FixedPointEngine engine = FixedPointEngine.create(assigner, methods, assigner.getDefaultPaymentMethod(methods), new IdDictionary(), new IdDictionary());
+        assertNotNull(engine);
+        assertTrue(engine.addAll(orders, 1));
+        return engine;
+    }
+
+}
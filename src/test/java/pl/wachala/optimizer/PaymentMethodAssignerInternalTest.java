@@ -1,6 +1,7 @@
 package pl.wachala.optimizer;
 
 import org.junit.jupiter.api.Test;
+import pl.wachala.config.OptimizerProperties;
 import pl.wachala.models.DiscountOption;
 import pl.wachala.models.Order;
 import pl.wachala.models.PaymentMethod;
@@ -138,4 +139,35 @@ class PaymentMethodAssignerInternalTest {
         assertTrue(options.stream().anyMatch(o -> o.getPromoType() == PromotionType.LOYALTY_POINTS_FULL));
     }
 
+    @Test
+    void testGetPossibleDiscountsKeepsOrderWhenGeneratedInParallel() {
+        //given
+        OptimizerProperties properties = new OptimizerProperties();
+        properties.setParallelism(4);
+        PaymentMethodAssigner parallelAssigner = new PaymentMethodAssigner(properties);
+
+        PaymentMethod card = new PaymentMethod("CARDX", 10, new BigDecimal("1000"));
+        PaymentMethod points = new PaymentMethod("PUNKTY", 10, new BigDecimal("1000"));
+        HashMap<String, PaymentMethod> map = new HashMap<>();
+        map.put("CARDX", card);
+        map.put("PUNKTY", points);
+
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            orders.add(new Order("O" + i, BigDecimal.valueOf(i, 2), i % 2 == 0 ? List.of("CARDX") : List.of()));
+        }
+
+        //when
+        List<DiscountOption> sequential = assigner.getPossibleDiscounts(orders, map, "DEFAULT");
+        List<DiscountOption> parallel = parallelAssigner.getPossibleDiscounts(orders, map, "DEFAULT");
+
+        //then
+        assertEquals(sequential.size(), parallel.size());
+        for (int i = 0; i < sequential.size(); i++) {
+            assertEquals(sequential.get(i).getOrderId(), parallel.get(i).getOrderId());
+            assertEquals(sequential.get(i).getPromoType(), parallel.get(i).getPromoType());
+            assertEquals(sequential.get(i).getPromoLimitUsed(), parallel.get(i).getPromoLimitUsed());
+        }
+    }
+
 }
@@ -194,6 +194,34 @@ public class PaymentMethodAssignerTest {
 
     }
 
+    @Test
+    void shouldProduceSameAssignmentWhenOrdersAreStreamedIntoSession() {
+        //given
+        List<Order> orders = Arrays.asList(
+                new Order("ORDER1", new BigDecimal("100.00"), Arrays.asList("mZysk")),
+                new Order("ORDER2", new BigDecimal("200.00"), Arrays.asList("BosBankrut")),
+                new Order("ORDER3", new BigDecimal("150.00"), Arrays.asList("mZysk", "BosBankrut")),
+                new Order("ORDER4", new BigDecimal("50.00"), Collections.emptyList()));
+
+        List<PaymentMethod> methods = Arrays.asList(
+                new PaymentMethod("PUNKTY", 15, new BigDecimal("100.00")),
+                new PaymentMethod("mZysk", 10, new BigDecimal("180.00")),
+                new PaymentMethod("BosBankrut", 5, new BigDecimal("200.00")));
+
+        //when
+        Map<String, DiscountOption> expected = assigner.assign(orders, methods);
+        AssignmentSession session = assigner.openSession(methods);
+        orders.forEach(session);
+        Map<String, DiscountOption> streamed = session.finish();
+
+        //then
+        assertEquals(4, session.getOrdersCount());
+        assertEquals(expected.keySet(), streamed.keySet());
+        for (String orderId : expected.keySet()) {
+            assertDiscountOption(streamed, orderId, expected.get(orderId).getDiscount(), expected.get(orderId).getValueAfterDiscount(), expected.get(orderId).getPromoMethodId());
+        }
+    }
+
     @Test
     void testDefaultPaymentMethodAccess() {
         //given
@@ -0,0 +1,102 @@
+package pl.wachala.optimizer;
+
+import org.junit.jupiter.api.Test;
+import pl.wachala.config.OptimizerProperties;
+import pl.wachala.generator.WorkloadGenerator;
+import pl.wachala.generator.WorkloadSpec;
+import pl.wachala.models.DiscountOption;
+import pl.wachala.models.Order;
+import pl.wachala.models.PaymentMethod;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//regression over generated workloads: limits hold, every order is paid and all arithmetic / partitioning settings agree
+public class PaymentMethodAssignerWorkloadTest {
+
+    @Test
+    void shouldRespectLimitsOnTightWorkload() {
+        //given
+        WorkloadSpec spec = spec(11);
+        spec.setLimitTightness(0.2);
+        spec.setLoyaltyPointsShare(0.02);
+
+        //when & then
+        verify(spec);
+    }
+
+    @Test
+    void shouldRespectLimitsOnLooseSkewedWorkload() {
+        //given
+        WorkloadSpec spec = spec(12);
+        spec.setLimitTightness(0.9);
+        spec.setLoyaltyPointsShare(0.3);
+        spec.setValueSkew(2);
+        spec.setPromotionsPerOrder(3);
+
+        //when & then
+        verify(spec);
+    }
+
+    @Test
+    void shouldRespectLimitsWithSingleCardMethod() {
+        //given
+        WorkloadSpec spec = spec(13);
+        spec.setMethodsCount(1);
+
+        //when & then
+        verify(spec);
+    }
+
+    private static void verify(WorkloadSpec spec) {
+        List<Order> orders = new ArrayList<>();
+        List<PaymentMethod> methods = new WorkloadGenerator(spec).generate(orders::add);
+
+        Map<String, DiscountOption> bigDecimal = assigner(ArithmeticEngine.BIG_DECIMAL, false).assign(orders, methods);
+        Map<String, DiscountOption> fixedPoint = assigner(ArithmeticEngine.FIXED_POINT, false).assign(orders, methods);
+        Map<String, DiscountOption> partitioned = assigner(ArithmeticEngine.FIXED_POINT, true).assign(orders, methods);
+
+        assertEquals(orders.size(), bigDecimal.size());
+        assertEquals(describe(bigDecimal), describe(fixedPoint));
+        assertEquals(describe(bigDecimal), describe(partitioned));
+
+        Map<String, BigDecimal> used = new HashMap<>();
+        //fallback without points uses no limit
+        for (DiscountOption option : bigDecimal.values()) {
+            used.merge(option.getPromoMethodId(), option.getPromoLimitUsed(), BigDecimal::add);
+        }
+        for (PaymentMethod method : methods) {
+            assertTrue(used.getOrDefault(method.getId(), BigDecimal.ZERO).compareTo(method.getLimit()) <= 0, method.getId());
+        }
+    }
+
+    private static PaymentMethodAssigner assigner(ArithmeticEngine arithmetic, boolean partitioning) {
+        OptimizerProperties properties = new OptimizerProperties();
+        properties.setArithmetic(arithmetic);
+        properties.setPartitioning(partitioning);
+        properties.setParallelism(partitioning ? 4 : 1);
+        return new PaymentMethodAssigner(properties);
+    }
+
+    private static Map<String, String> describe(Map<String, DiscountOption> assignment) {
+        Map<String, String> described = new TreeMap<>();
+        for (Map.Entry<String, DiscountOption> entry : assignment.entrySet()) {
+            DiscountOption option = entry.getValue();
+            described.put(entry.getKey(), option.getPromoType() + " " + option.getPromoMethodId() + " " + option.getPaymentMethodId()
+                    + " " + option.getDiscount() + " " + option.getPromoLimitUsed() + " " + option.getValueAfterDiscount());
+        }
+        return described;
+    }
+
+    private static WorkloadSpec spec(long seed) {
+        WorkloadSpec spec = new WorkloadSpec();
+        spec.setSeed(seed);
+        spec.setOrdersCount(50_000);
+        spec.setMethodsCount(50);
+        spec.setPromotionsPerOrder(1.5);
+        return spec;
+    }
+
+}
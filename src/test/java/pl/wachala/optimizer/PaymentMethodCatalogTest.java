@@ -0,0 +1,98 @@
+package pl.wachala.optimizer;
+
+import org.junit.jupiter.api.Test;
+import pl.wachala.metrics.MetricsRegistry;
+import pl.wachala.models.DiscountOption;
+import pl.wachala.models.Order;
+import pl.wachala.models.PaymentMethod;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PaymentMethodCatalogTest {
+
+    private final PaymentMethodAssigner assigner = new PaymentMethodAssigner();
+
+    private final List<PaymentMethod> methods = Arrays.asList(
+            new PaymentMethod("mZysk", 10, new BigDecimal("180.00")),
+            new PaymentMethod("BosBankrut", 5, new BigDecimal("200.00")),
+            new PaymentMethod("PUNKTY", 15, new BigDecimal("100.00")));
+
+    @Test
+    void shouldGenerateSameOptionsAsUncachedCalculations() {
+        //given
+        PaymentMethodCatalog catalog = new PaymentMethodCatalog(assigner, assigner.getMethodsMap(methods), "mZysk");
+        Order order = new Order("ORDER1", new BigDecimal("123.45"), Arrays.asList("BosBankrut", "UNKNOWN", "mZysk"));
+
+        //when
+        List<DiscountOption> first = catalog.discountOptions(order);
+        List<DiscountOption> second = catalog.discountOptions(order);
+
+        //then
+        List<DiscountOption> expected = Arrays.asList(
+                assigner.calculateCardPromo(order, methods.get(1)),
+                assigner.calculateCardPromo(order, methods.get(0)),
+                assigner.calculatePartialLoyaltyPointsPromo(order, "mZysk"),
+                assigner.calculateFullLoyaltyPointsPromo(order, methods.get(2)));
+        assertSameOptions(expected, first);
+        assertSameOptions(expected, second);
+    }
+
+    @Test
+    void shouldCountHitsForRepeatedOrderValues() {
+        //given
+        PaymentMethodCatalog catalog = new PaymentMethodCatalog(assigner, assigner.getMethodsMap(methods), "mZysk");
+        MetricsRegistry metrics = new MetricsRegistry();
+
+        //when
+        for (int i = 0; i < 10; i++) {
+            catalog.discountOptions(new Order("ORDER" + i, new BigDecimal("49.99"), List.of("mZysk")));
+        }
+        catalog.recordStatistics(metrics);
+
+        //then
+        //mZysk and the partial loyalty points discount share 10%, so only 10% and 15% are computed
+        assertEquals(2, catalog.getMisses());
+        assertEquals(28, catalog.getHits());
+        assertEquals(28.0 / 30, catalog.getHitRate(), 1e-9);
+        assertEquals(28, metrics.getCounter(MetricsRegistry.DISCOUNT_CACHE_HITS));
+        assertEquals(2, metrics.getCounter(MetricsRegistry.DISCOUNT_CACHE_MISSES));
+    }
+
+    @Test
+    void shouldBypassCacheForUniqueOrderValues() {
+        //given
+        PaymentMethodCatalog catalog = new PaymentMethodCatalog(assigner, assigner.getMethodsMap(methods.subList(0, 1)), "mZysk");
+        int values = PaymentMethodCatalog.SAMPLE_SIZE * 2;
+
+        //when
+        for (int i = 0; i < values; i++) {
+            catalog.discountOptions(new Order("ORDER" + i, BigDecimal.valueOf(i, 2), List.of("mZysk")));
+        }
+        DiscountOption repeated = catalog.discountOptions(new Order("ORDER", BigDecimal.valueOf(values - 1, 2), List.of("mZysk"))).get(0);
+
+        //then
+        //values are unique, so the cache isn't looked up anymore even for the repeated one
+        assertEquals(0, catalog.getHits());
+        assertEquals(values + 1, catalog.getMisses());
+        assertEquals(assigner.calculatePossibleDiscount(BigDecimal.valueOf(values - 1, 2), methods.get(0)), repeated.getDiscount());
+    }
+
+    private void assertSameOptions(List<DiscountOption> expected, List<DiscountOption> result) {
+        assertEquals(expected.size(), result.size());
+        for (int i = 0; i < expected.size(); i++) {
+            DiscountOption expectedOption = expected.get(i);
+            DiscountOption option = result.get(i);
+            assertEquals(expectedOption.getOrderId(), option.getOrderId());
+            assertEquals(expectedOption.getDiscount(), option.getDiscount());
+            assertEquals(expectedOption.getValueAfterDiscount(), option.getValueAfterDiscount());
+            assertEquals(expectedOption.getPromoLimitUsed(), option.getPromoLimitUsed());
+            assertEquals(expectedOption.getPromoType(), option.getPromoType());
+            assertEquals(expectedOption.getPromoMethodId(), option.getPromoMethodId());
+            assertEquals(expectedOption.getPaymentMethodId(), option.getPaymentMethodId());
+        }
+    }
+
+}
@@ -3,13 +3,19 @@ package pl.wachala.optimizer;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import pl.wachala.models.DiscountOption;
 import pl.wachala.models.PromotionType;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.PrintStream;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -89,5 +95,65 @@ public class PaymentMethodSummaryGeneratorTest {
         assertTrue(lines[0].strip().equals("PUNKTY 10.00") || lines[1].strip().equals("PUNKTY 10.00"));
     }
 
+    @Test
+    void shouldSumAmountsWithTheScaleOfBigDecimalAddition() {
+        //given
+        Map<String, DiscountOption> discountAssignment = new HashMap<>();
+        discountAssignment.put("ORDER1", cardOption("ORDER1", "CARD1", new BigDecimal("10")));
+        discountAssignment.put("ORDER2", cardOption("ORDER2", "CARD1", new BigDecimal("0.5")));
+        discountAssignment.put("ORDER3", cardOption("ORDER3", "CARD2", new BigDecimal("1.125")));
+        discountAssignment.put("ORDER4", cardOption("ORDER4", "CARD2", new BigDecimal("2.00")));
+        discountAssignment.put("ORDER5", cardOption("ORDER5", "CARD3", new BigDecimal("9223372036854775807")));
+        discountAssignment.put("ORDER6", cardOption("ORDER6", "CARD3", new BigDecimal("1.00")));
+
+        //when
+        Map<String, BigDecimal> summary = generator.summarize(discountAssignment);
+
+        //then
+        assertEquals(new BigDecimal("10.5"), summary.get("CARD1"));
+        assertEquals(new BigDecimal("3.125"), summary.get("CARD2"));
+        assertEquals(new BigDecimal("9223372036854775808.00"), summary.get("CARD3"));
+    }
+
+    @Test
+    void shouldWriteSummaryAndOrderReportToFiles(@TempDir Path tempDir) throws IOException {
+        //given
+        Map<String, DiscountOption> discountAssignment = new LinkedHashMap<>();
+        discountAssignment.put("ORDER1", cardOption("ORDER1", "CARD1", new BigDecimal("90.00")));
+        discountAssignment.put("ORDER2", DiscountOption.builder()
+                .orderId("ORDER2")
+                .paymentMethodId("PUNKTY")
+                .promoMethodId("PUNKTY")
+                .promoType(PromotionType.LOYALTY_POINTS_FULL)
+                .discount(new BigDecimal("15.00"))
+                .promoLimitUsed(new BigDecimal("85.00"))
+                .valueAfterDiscount(new BigDecimal("85.00"))
+                .build());
+        Path summaryFile = tempDir.resolve("summary.txt");
+        Path reportFile = tempDir.resolve("report.txt");
+
+        //when
+        generator.generateSummary(discountAssignment, summaryFile);
+        generator.generateOrderReport(discountAssignment, reportFile);
+
+        //then
+        assertEquals(List.of("CARD1 90.00", "PUNKTY 85.00").stream().sorted().toList(),
+                Files.readAllLines(summaryFile).stream().sorted().toList());
+        assertEquals(List.of("ORDER1 CARD1 CARD1 10.00 0 90.00", "ORDER2 PUNKTY PUNKTY 15.00 85.00 85.00"),
+                Files.readAllLines(reportFile));
+        assertEquals("", outContent.toString());
+    }
+
+    private static DiscountOption cardOption(String orderId, String paymentMethodId, BigDecimal valueAfterDiscount) {
+        return DiscountOption.builder()
+                .orderId(orderId)
+                .paymentMethodId(paymentMethodId)
+                .promoMethodId(paymentMethodId)
+                .promoType(PromotionType.CARD)
+                .discount(new BigDecimal("10.00"))
+                .promoLimitUsed(BigDecimal.ZERO)
+                .valueAfterDiscount(valueAfterDiscount)
+                .build();
+    }
 
 }
@@ -0,0 +1,70 @@
+package pl.wachala.optimizer;
+
+import org.junit.jupiter.api.Test;
+import pl.wachala.models.DiscountOption;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RadixSortTest {
+
+    @Test
+    void shouldSortStableDescendingLikeComparator() {
+        //given
+        Random random = new Random(18);
+        int count = 5000;
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = switch (i % 4) {
+                case 0 -> random.nextInt(50);
+                case 1 -> random.nextLong();
+                case 2 -> -random.nextInt(1000);
+                default -> random.nextInt(100_000_000);
+            };
+        }
+        int[] rows = new int[count];
+        Integer[] expected = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            rows[i] = i;
+            expected[i] = i;
+        }
+        Arrays.sort(expected, Comparator.comparingLong((Integer row) -> keys[row]).reversed());
+
+        //when
+        RadixSort.sortDescending(rows, keys, count);
+
+        //then
+        assertArrayEquals(Arrays.stream(expected).mapToInt(Integer::intValue).toArray(), rows);
+    }
+
+    @Test
+    void shouldSortPossibleDiscountsLikeComparator() {
+        //given
+        Random random = new Random(18);
+        List<DiscountOption> options = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            options.add(DiscountOption.builder()
+                    .orderId("ORDER" + i)
+                    .promoLimitUsed(BigDecimal.valueOf(random.nextInt(500), random.nextInt(3)))
+                    .build());
+        }
+        List<DiscountOption> withThreeDecimalPlaces = new ArrayList<>(options);
+        withThreeDecimalPlaces.add(DiscountOption.builder().orderId("ORDER").promoLimitUsed(new BigDecimal("1.234")).build());
+
+        List<DiscountOption> expected = new ArrayList<>(options);
+        expected.sort(PaymentMethodAssigner.BY_PROMO_LIMIT_USED_DESC);
+        List<DiscountOption> expectedWithThreeDecimalPlaces = new ArrayList<>(withThreeDecimalPlaces);
+        expectedWithThreeDecimalPlaces.sort(PaymentMethodAssigner.BY_PROMO_LIMIT_USED_DESC);
+
+        //when
+        PaymentMethodAssigner.sortByPromoLimitUsedDesc(options);
+        PaymentMethodAssigner.sortByPromoLimitUsedDesc(withThreeDecimalPlaces);
+
+        //then
+        assertEquals(expected, options);
+        assertEquals(expectedWithThreeDecimalPlaces, withThreeDecimalPlaces);
+    }
+
+}
@@ -0,0 +1,108 @@
+package pl.wachala.optimizer;
+
+import org.junit.jupiter.api.Test;
+import pl.wachala.config.OptimizerProperties;
+import pl.wachala.generator.WorkloadGenerator;
+import pl.wachala.generator.WorkloadSpec;
+import pl.wachala.models.Order;
+import pl.wachala.models.PaymentMethod;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScenarioEvaluatorTest {
+
+    private final PaymentMethodSummaryGenerator summaryGenerator = new PaymentMethodSummaryGenerator();
+
+    @Test
+    void shouldMatchSeparateRunsForEveryScenario() {
+        //given
+        List<Order> orders = new ArrayList<>();
+        List<PaymentMethod> methods = new WorkloadGenerator(spec()).generate(orders::add);
+        List<List<PaymentMethod>> scenarios = List.of(methods, scaledLimits(methods, "0.25"), scaledLimits(methods, "3"), scaledLimits(methods, "0"));
+
+        for (ArithmeticEngine arithmetic : ArithmeticEngine.values()) {
+            OptimizerProperties properties = new OptimizerProperties();
+            properties.setArithmetic(arithmetic);
+            properties.setParallelism(3);
+
+            //when
+            List<ScenarioResult> results = new ScenarioEvaluator(properties).evaluate(orders, scenarios);
+
+            //then
+            assertEquals(scenarios.size(), results.size());
+            for (int i = 0; i < scenarios.size(); i++) {
+                Map<String, BigDecimal> expected = summaryGenerator.summarize(new PaymentMethodAssigner().assign(orders, scenarios.get(i)));
+                assertEquals(expected, results.get(i).getSummary(), arithmetic + " scenario " + i);
+                assertSame(scenarios.get(i), results.get(i).getPaymentMethods());
+                assertEquals(orders.size(), results.get(i).getAssignment().size());
+            }
+        }
+    }
+
+    @Test
+    void shouldUseBigDecimalWhenScenarioLimitHasMoreThanTwoDecimalPlaces() {
+        //given
+        List<Order> orders = Arrays.asList(
+                new Order("ORDER1", new BigDecimal("100.00"), Arrays.asList("mZysk")),
+                new Order("ORDER2", new BigDecimal("200.00"), Arrays.asList("mZysk")),
+                new Order("ORDER3", new BigDecimal("50.00"), Collections.emptyList()));
+        List<PaymentMethod> loose = Arrays.asList(
+                new PaymentMethod("mZysk", 10, new BigDecimal("100.00")),
+                new PaymentMethod("PUNKTY", 15, new BigDecimal("100.00")));
+        List<PaymentMethod> tight = Arrays.asList(
+                new PaymentMethod("mZysk", 10, new BigDecimal("10.001")),
+                new PaymentMethod("PUNKTY", 15, new BigDecimal("5")));
+        OptimizerProperties properties = new OptimizerProperties();
+        properties.setArithmetic(ArithmeticEngine.FIXED_POINT);
+
+        //when
+        List<ScenarioResult> results = new ScenarioEvaluator(properties).evaluate(orders, List.of(loose, tight));
+
+        //then
+        assertEquals(summaryGenerator.summarize(new PaymentMethodAssigner().assign(orders, loose)), results.get(0).getSummary());
+        assertEquals(summaryGenerator.summarize(new PaymentMethodAssigner().assign(orders, tight)), results.get(1).getSummary());
+    }
+
+    @Test
+    void shouldRejectScenarioChangingDiscounts() {
+        //given
+        List<Order> orders = List.of(new Order("ORDER1", new BigDecimal("100.00"), List.of("mZysk")));
+        List<PaymentMethod> base = List.of(new PaymentMethod("mZysk", 10, new BigDecimal("100.00")));
+        List<PaymentMethod> changed = List.of(new PaymentMethod("mZysk", 20, new BigDecimal("100.00")));
+
+        //when & then
+        assertThrows(IllegalArgumentException.class, () -> new ScenarioEvaluator().evaluate(orders, List.of(base, changed)));
+    }
+
+    @Test
+    void shouldReturnNoResultsWithoutScenarios() {
+        //when
+        List<ScenarioResult> results = new ScenarioEvaluator().evaluate(List.of(), List.of());
+
+        //then
+        assertTrue(results.isEmpty());
+    }
+
+    private static WorkloadSpec spec() {
+        WorkloadSpec spec = new WorkloadSpec();
+        spec.setSeed(16);
+        spec.setOrdersCount(5000);
+        spec.setMethodsCount(5);
+        spec.setPromotionsPerOrder(2);
+        return spec;
+    }
+
+    private static List<PaymentMethod> scaledLimits(List<PaymentMethod> methods, String factor) {
+        List<PaymentMethod> scaled = new ArrayList<>();
+        for (PaymentMethod method : methods) {
+            BigDecimal limit = method.getLimit().multiply(new BigDecimal(factor)).setScale(2, RoundingMode.DOWN);
+            scaled.add(new PaymentMethod(method.getId(), method.getDiscount(), limit));
+        }
+        return scaled;
+    }
+
+}
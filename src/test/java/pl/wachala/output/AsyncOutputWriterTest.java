@@ -0,0 +1,111 @@
+package pl.wachala.output;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AsyncOutputWriterTest {
+
+    @Test
+    void shouldWriteTextLikePrintlnAcrossManyBuffers() throws IOException {
+        //given
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StringBuilder expected = new StringBuilder();
+
+        //when
+        try (AsyncOutputWriter writer = AsyncOutputWriter.channel(Channels.newChannel(out), 16)) {
+            for (int i = 0; i < 1000; i++) {
+                BigDecimal value = BigDecimal.valueOf(i, 2);
+                writer.write("METHOD_" + i).write(' ').write(value).newLine();
+                expected.append("METHOD_" + i).append(' ').append(value).append(System.lineSeparator());
+            }
+        }
+
+        //then
+        assertEquals(expected.toString(), out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldEncodeNonAsciiTextAsUtf8() throws IOException {
+        //given
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        //when
+        try (AsyncOutputWriter writer = AsyncOutputWriter.channel(Channels.newChannel(out), 4)) {
+            writer.write("PŁATNOŚĆ").write(' ').write('ż').newLine();
+        }
+
+        //then
+        assertEquals("PŁATNOŚĆ ż" + System.lineSeparator(), out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldWriteToStandardOutputAndFile(@TempDir Path tempDir) throws IOException {
+        //given
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PrintStream originalOut = System.out;
+        Path file = tempDir.resolve("out.txt");
+        System.setOut(new PrintStream(out));
+
+        //when
+        try {
+            try (AsyncOutputWriter writer = AsyncOutputWriter.stdout(AsyncOutputWriter.DEFAULT_BUFFER_SIZE)) {
+                writer.write("PUNKTY 10.00").newLine();
+            }
+        } finally {
+            System.setOut(originalOut);
+        }
+        try (AsyncOutputWriter writer = AsyncOutputWriter.file(file, AsyncOutputWriter.DEFAULT_BUFFER_SIZE)) {
+            writer.write("PUNKTY 20.00").newLine();
+        }
+
+        //then
+        assertEquals("PUNKTY 10.00", out.toString().strip());
+        assertEquals("PUNKTY 20.00", Files.readString(file).strip());
+    }
+
+    @Test
+    void shouldReportFailureOfTheSink() {
+        //given
+        WritableByteChannel failing = new WritableByteChannel() {
+            @Override
+            public int write(ByteBuffer source) throws IOException {
+                throw new IOException("Disk full");
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        //when & then
+        IOException exception = assertThrows(IOException.class, () -> {
+            try (AsyncOutputWriter writer = AsyncOutputWriter.channel(failing, 8)) {
+                for (int i = 0; i < 100; i++) {
+                    writer.write("LINE").newLine();
+                }
+            }
+        });
+        assertTrue(exception.getMessage().contains("Disk full"));
+    }
+
+}
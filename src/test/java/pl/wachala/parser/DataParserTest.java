@@ -3,10 +3,15 @@ package pl.wachala.parser;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import pl.wachala.models.Order;
 import pl.wachala.models.PaymentMethod;
+import pl.wachala.util.IdDictionary;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -82,6 +87,57 @@ public class DataParserTest {
         assertTrue(orders.contains(fourth));
     }
 
+    @Test
+    void testStreamOrdersMatchesParseOrders() throws IOException {
+        //given
+        List<Order> expected = parser.parseOrders("src/test/resources/orders.json");
+        List<Order> streamed = new ArrayList<>();
+
+        //when
+        long count = parser.streamOrders("src/test/resources/orders.json", streamed::add);
+
+        //then
+        assertEquals(4, count);
+        assertEquals(expected, streamed);
+    }
+
+    @Test
+    void testParseFillsIdDictionaries() throws IOException {
+        //given
+        IdDictionary methodIds = new IdDictionary();
+        IdDictionary orderIds = new IdDictionary();
+
+        //when
+        parser.parsePaymentMethods("src/test/resources/paymentmethods.json", methodIds);
+        parser.parseOrders("src/test/resources/orders.json", orderIds);
+
+        //then
+        assertEquals(3, methodIds.size());
+        assertEquals(0, methodIds.indexOf("PUNKTY"));
+        assertEquals(2, methodIds.indexOf("BosBankrut"));
+        assertEquals(4, orderIds.size());
+        assertEquals("ORDER3", orderIds.getId(2));
+    }
+
+    @Test
+    void testStreamOrdersRejectsNonArrayFile(@TempDir Path tempDir) throws IOException {
+        //given
+        Path file = tempDir.resolve("orders.json");
+        Files.writeString(file, "{\"id\": \"ORDER1\", \"value\": \"10.00\"}");
+
+        //when & then
+        assertThrows(IOException.class, () -> parser.streamOrders(file.toString(), order -> {
+        }));
+    }
+
+    @Test
+    void testStreamOrdersFileNotFound() {
+        assertThrows(IOException.class, () -> {
+            parser.streamOrders("nonexistent_orders.json", order -> {
+            });
+        });
+    }
+
     @Test
     void testParsePaymentMethodsFileNotFound() {
         assertThrows(IOException.class, () -> {
@@ -117,6 +173,103 @@ public class DataParserTest {
         });
     }
 
+    @Test
+    void testParseOrdersOfSeveralFilesInFileOrder(@TempDir Path tempDir) throws IOException {
+        //given
+        Files.createDirectories(tempDir.resolve("storeB"));
+        Files.createDirectories(tempDir.resolve("storeA"));
+        Files.writeString(tempDir.resolve("storeB/orders.json"), "[{\"id\": \"B1\", \"value\": \"20.00\"}]");
+        Files.writeString(tempDir.resolve("storeA/orders.json"), "[{\"id\": \"A1\", \"value\": \"10.00\"}, {\"id\": \"A2\", \"value\": \"15.00\"}]");
+        Files.writeString(tempDir.resolve("extra.json"), "[{\"id\": \"E1\", \"value\": \"5.00\", \"promotions\": [\"mZysk\"]}]");
+        IdDictionary orderIds = new IdDictionary();
+
+        //when
+        List<Order> orders = parser.parseOrders(tempDir + "/*/orders.json," + tempDir.resolve("extra.json"), orderIds);
+
+        //then
+        assertEquals(List.of("A1", "A2", "B1", "E1"), orders.stream().map(Order::getId).toList());
+        assertEquals(List.of("mZysk"), orders.get(3).getPromotions());
+        assertEquals(4, orderIds.size());
+    }
+
+    @Test
+    void testParseOrdersOfSeveralFilesRejectsRepeatedId(@TempDir Path tempDir) throws IOException {
+        //given
+        Files.writeString(tempDir.resolve("a.json"), "[{\"id\": \"ORDER1\", \"value\": \"10.00\"}]");
+        Files.writeString(tempDir.resolve("b.json"), "[{\"id\": \"ORDER1\", \"value\": \"20.00\"}]");
+
+        //when
+        IOException exception = assertThrows(IOException.class, () -> parser.parseOrders(tempDir + "/*.json", new IdDictionary()));
+
+        //then
+        assertTrue(exception.getMessage().contains("ORDER1"));
+        assertTrue(exception.getMessage().contains("a.json"));
+        assertTrue(exception.getMessage().contains("b.json"));
+    }
+
+    @Test
+    void testStreamOrdersOfSeveralFiles(@TempDir Path tempDir) throws IOException {
+        //given
+        Files.writeString(tempDir.resolve("a.json"), "[{\"id\": \"A1\", \"value\": \"10.00\"}]");
+        Files.writeString(tempDir.resolve("b.json"), "[{\"id\": \"B1\", \"value\": \"20.00\"}, {\"id\": \"B2\", \"value\": \"30.00\"}]");
+        List<String> streamed = new ArrayList<>();
+
+        //when
+        long count = parser.streamOrders(tempDir.resolve("b.json") + "," + tempDir.resolve("a.json"), order -> streamed.add(order.getId()));
+
+        //then
+        assertEquals(3, count);
+        assertEquals(List.of("B1", "B2", "A1"), streamed);
+    }
+
+    @Test
+    void testParseOrdersFromLiteralPathWithPatternCharacters(@TempDir Path tempDir) throws IOException {
+        //given
+        Path file = Files.writeString(tempDir.resolve("orders[2025],store.json"), "[{\"id\": \"ORDER1\", \"value\": \"10.00\"}]");
+
+        //when
+        List<Order> orders = parser.parseOrders(file.toString(), new IdDictionary());
+
+        //then
+        assertEquals(1, orders.size());
+        assertEquals("ORDER1", orders.get(0).getId());
+    }
+
+    @Test
+    void testParseOrdersOfSeveralFilesNamesFileFailingWithRuntimeException(@TempDir Path tempDir) throws IOException {
+        //given
+        Files.writeString(tempDir.resolve("a.json"), "[{\"id\": \"A1\", \"value\": \"10.00\"}]");
+        Files.writeString(tempDir.resolve("b.json"), "[]");
+        Files.writeString(tempDir.resolve("c.json"), "[{\"id\": \"C1\", \"value\": \"10.00\"}]");
+        DataParser failingParser = new DataParser(new ObjectMapper()) {
+            @Override
+            public List<Order> parseOrders(String filePath) throws IOException {
+                if (filePath.endsWith("b.json")) {
+                    throw new IllegalArgumentException("Value 1.005 of order B1 can't be stored in minor units.");
+                }
+                return super.parseOrders(filePath);
+            }
+        };
+
+        //when
+        IOException exception = assertThrows(IOException.class, () -> failingParser.parseOrders(tempDir + "/*.json", new IdDictionary()));
+
+        //then
+        assertTrue(exception.getMessage().contains("b.json"));
+        assertTrue(exception.getMessage().contains("B1"));
+        assertTrue(exception.getCause() instanceof IllegalArgumentException);
+    }
+
+    @Test
+    void testParseOrdersOfSeveralFilesReportsUnreadableFile(@TempDir Path tempDir) throws IOException {
+        //given
+        Files.writeString(tempDir.resolve("a.json"), "[{\"id\": \"A1\", \"value\": \"10.00\"}]");
+        Files.writeString(tempDir.resolve("b.json"), "{}");
+
+        //when & then
+        assertThrows(IOException.class, () -> parser.parseOrders(tempDir + "/*.json", new IdDictionary()));
+    }
+
 
 
 }
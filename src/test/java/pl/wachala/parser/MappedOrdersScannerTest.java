@@ -0,0 +1,129 @@
+package pl.wachala.parser;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pl.wachala.config.OptimizerProperties;
+import pl.wachala.generator.WorkloadGenerator;
+import pl.wachala.generator.WorkloadSpec;
+import pl.wachala.models.Order;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MappedOrdersScannerTest {
+
+    private final DataParser jacksonParser = new DataParser(new ObjectMapper());
+    private final DataParser scanningParser = new DataParser(new ObjectMapper(), scannerProperties());
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldScanOrdersLikeJackson() throws IOException {
+        //given
+        Path file = Path.of("./src/test/resources/orders.json");
+
+        //when
+        List<Order> scanned = MappedOrdersScanner.scan(file);
+
+        //then
+        assertNotNull(scanned);
+        assertEquals(jacksonParser.parseOrders(file.toString()), scanned);
+    }
+
+    @Test
+    void shouldScanGeneratedWorkloadLikeJackson() throws IOException {
+        //given
+        WorkloadSpec spec = new WorkloadSpec();
+        spec.setOrdersCount(20_000);
+        spec.setMethodsCount(30);
+        spec.setPromotionsPerOrder(2.5);
+        Path ordersFile = tempDir.resolve("orders.json");
+        new WorkloadGenerator(spec).write(ordersFile, tempDir.resolve("paymentmethods.json"));
+
+        //when
+        List<Order> scanned = MappedOrdersScanner.scan(ordersFile);
+
+        //then
+        assertEquals(jacksonParser.parseOrders(ordersFile.toString()), scanned);
+    }
+
+    @Test
+    void shouldScanOptionalAndUnusualButSupportedValues() throws IOException {
+        //given
+        Path file = write("""
+                ﻿[ {"value": 12, "id": "ZAMÓWIENIE1"},
+                  {"id":"ORDER2","value":"-0.50","promotions":null},
+                  {"id" : "ORDER3" , "promotions" : [ "mZysk" , "mZysk" ] , "value" : 7.125 }
+                ]
+                """);
+
+        //when
+        List<Order> scanned = MappedOrdersScanner.scan(file);
+
+        //then
+        assertNotNull(scanned);
+        assertEquals(jacksonParser.parseOrders(file.toString()), scanned);
+        assertEquals(new BigDecimal("7.125"), scanned.get(2).getValue());
+        assertSame(scanned.get(2).getPromotions().get(0), scanned.get(2).getPromotions().get(1));
+    }
+
+    @Test
+    void shouldLeaveUnexpectedShapesToJackson() throws IOException {
+        //given
+        List<String> unexpected = List.of(
+                "[{\"id\":\"OR\\u0044ER1\",\"value\":1.00}]",
+                "[{\"id\":\"ORDER1\",\"value\":1e2}]",
+                "[{\"id\":\"ORDER1\",\"value\":01}]",
+                "[{\"id\":\"ORDER1\",\"value\":1.00,\"note\":\"x\"}]",
+                "[{\"id\":\"ORDER1\",\"value\":1.00,\"value\":2.00}]",
+                "[{\"id\":\"ORDER1\"}]",
+                "[{\"id\":1,\"value\":1.00}]",
+                "[{\"id\":\"ORDER1\",\"value\":12345678901234567890}]",
+                "{\"id\":\"ORDER1\",\"value\":1.00}");
+
+        for (String json : unexpected) {
+            //when
+            List<Order> scanned = MappedOrdersScanner.scan(write(json));
+
+            //then
+            assertNull(scanned, json);
+        }
+    }
+
+    @Test
+    void shouldFallBackToJacksonWhenEnabled() throws IOException {
+        //given
+        Path supported = write("[{\"id\":\"ORDER1\",\"value\":10.00,\"promotions\":[\"mZysk\"]}]");
+        Path escaped = write("[{\"id\":\"OR\\u0044ER1\",\"value\":10.00,\"promotions\":[\"mZysk\"]}]");
+
+        //when
+        List<Order> scanned = scanningParser.parseOrders(supported.toString());
+        List<Order> parsed = scanningParser.parseOrders(escaped.toString());
+
+        //then
+        assertEquals(jacksonParser.parseOrders(supported.toString()), scanned);
+        assertEquals("ORDER1", parsed.get(0).getId());
+        assertEquals(scanned, parsed);
+    }
+
+    private Path write(String json) throws IOException {
+        Path file = Files.createTempFile(tempDir, "orders", ".json");
+        Files.writeString(file, json, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    private static OptimizerProperties scannerProperties() {
+        OptimizerProperties properties = new OptimizerProperties();
+        properties.setMappedOrderScanner(true);
+        return properties;
+    }
+
+}
@@ -0,0 +1,75 @@
+package pl.wachala.parser;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OrderFilesTest {
+
+    @Test
+    void testIsPattern() {
+        assertFalse(OrderFiles.isPattern("/data/orders.json"));
+        assertTrue(OrderFiles.isPattern("/data/*.json"));
+        assertTrue(OrderFiles.isPattern("/data/store?/orders.json"));
+        assertTrue(OrderFiles.isPattern("/data/{a,b}.json"));
+        assertTrue(OrderFiles.isPattern("a.json,b.json"));
+    }
+
+    @Test
+    void testExistingFileIsNotPattern(@TempDir Path tempDir) throws IOException {
+        //given
+        Path bracketed = Files.writeString(tempDir.resolve("orders[2025].json"), "[]");
+        Path withComma = Files.writeString(tempDir.resolve("a,b.json"), "[]");
+
+        //when & then
+        assertFalse(OrderFiles.isPattern(bracketed.toString()));
+        assertFalse(OrderFiles.isPattern(withComma.toString()));
+        assertTrue(OrderFiles.isPattern(tempDir.resolve("orders[2026].json").toString()));
+        assertEquals(List.of(bracketed), OrderFiles.resolve(bracketed + "," + bracketed));
+    }
+
+    @Test
+    void testResolveMatchesPatternsSortedAndListsInGivenOrder(@TempDir Path tempDir) throws IOException {
+        //given
+        Files.createDirectories(tempDir.resolve("store2"));
+        Files.createDirectories(tempDir.resolve("store1/archive"));
+        Files.writeString(tempDir.resolve("store2/orders.json"), "[]");
+        Files.writeString(tempDir.resolve("store1/orders.json"), "[]");
+        Files.writeString(tempDir.resolve("store1/archive/orders.json"), "[]");
+        Files.writeString(tempDir.resolve("store1/notes.txt"), "");
+        Files.writeString(tempDir.resolve("extra.json"), "[]");
+
+        //when
+        List<Path> files = OrderFiles.resolve(tempDir.resolve("extra.json") + ", " + tempDir + "/store*/orders.json," + tempDir.resolve("extra.json"));
+
+        //then
+        assertEquals(List.of(tempDir.resolve("extra.json"), tempDir.resolve("store1/orders.json"), tempDir.resolve("store2/orders.json")), files);
+    }
+
+    @Test
+    void testResolveMatchesAnyDepthWithDoubleStar(@TempDir Path tempDir) throws IOException {
+        //given
+        Files.createDirectories(tempDir.resolve("store1/archive"));
+        Files.writeString(tempDir.resolve("store1/orders.json"), "[]");
+        Files.writeString(tempDir.resolve("store1/archive/orders.json"), "[]");
+
+        //when
+        List<Path> files = OrderFiles.resolve(tempDir + "/**/orders.json");
+
+        //then
+        assertEquals(List.of(tempDir.resolve("store1/archive/orders.json"), tempDir.resolve("store1/orders.json")), files);
+    }
+
+    @Test
+    void testResolveWithoutMatchesThrows(@TempDir Path tempDir) {
+        assertThrows(IOException.class, () -> OrderFiles.resolve(tempDir + "/*.json"));
+        assertThrows(IOException.class, () -> OrderFiles.resolve(tempDir.resolve("missing") + "/*.json"));
+    }
+
+}
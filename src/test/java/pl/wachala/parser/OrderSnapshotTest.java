@@ -0,0 +1,95 @@
+package pl.wachala.parser;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pl.wachala.models.Order;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OrderSnapshotTest {
+
+    private final DataParser parser = new DataParser(new ObjectMapper());
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldReadBackWrittenOrders() throws IOException {
+        //given
+        List<Order> orders = Arrays.asList(
+                new Order("ORDER1", new BigDecimal("100.00"), List.of("mZysk")),
+                new Order("ZAMÓWIENIE2", new BigDecimal("0.05"), List.of()),
+                new Order("ORDER1", new BigDecimal("12345678.9"), List.of("BosBankrut", "mZysk", "PUNKTY")));
+        OrderSnapshotWriter writer = new OrderSnapshotWriter();
+        orders.forEach(writer);
+        Path file = tempDir.resolve("orders.snapshot");
+
+        //when
+        writer.write(file);
+        OrderSnapshot snapshot = OrderSnapshot.open(file);
+
+        //then
+        assertEquals(3, snapshot.getOrdersCount());
+        assertEquals(2, snapshot.getIdsCount());
+        assertEquals(3, snapshot.getPromotionIdsCount());
+        assertEquals(snapshot.getIdIndex(0), snapshot.getIdIndex(2));
+        assertEquals(1_234_567_890L, snapshot.getValueCents(2));
+        assertEquals(snapshot.getPromotionsStart(1), snapshot.getPromotionsEnd(1));
+        assertEquals(orders, snapshot.toOrders());
+    }
+
+    @Test
+    void shouldParseSnapshotLikeJsonFile() throws IOException {
+        //given
+        String json = "./src/test/resources/orders.json";
+        String snapshotFile = tempDir.resolve("orders.snapshot").toString();
+
+        //when
+        int converted = parser.convertToSnapshot(json, snapshotFile);
+        List<Order> fromSnapshot = parser.parseOrders(snapshotFile);
+        List<Order> streamed = new ArrayList<>();
+        long streamedCount = parser.streamOrders(snapshotFile, streamed::add);
+
+        //then
+        List<Order> fromJson = parser.parseOrders(json);
+        assertEquals(fromJson.size(), converted);
+        assertEquals(fromJson, fromSnapshot);
+        assertEquals(fromJson, streamed);
+        assertEquals(fromJson.size(), streamedCount);
+        assertFalse(OrderSnapshot.isSnapshot(Path.of(json)));
+        assertTrue(OrderSnapshot.isSnapshot(Path.of(snapshotFile)));
+    }
+
+    @Test
+    void shouldRejectValueWithMoreThanTwoDecimalPlaces() {
+        //given
+        OrderSnapshotWriter writer = new OrderSnapshotWriter();
+
+        //when & then
+        assertThrows(IllegalArgumentException.class, () -> writer.accept(new Order("ORDER1", new BigDecimal("1.005"), List.of())));
+    }
+
+    @Test
+    void shouldRejectTruncatedSnapshot() throws IOException {
+        //given
+        OrderSnapshotWriter writer = new OrderSnapshotWriter();
+        writer.accept(new Order("ORDER1", new BigDecimal("10.00"), List.of("mZysk")));
+        Path file = tempDir.resolve("orders.snapshot");
+        writer.write(file);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+
+        //when & then
+        assertThrows(IOException.class, () -> OrderSnapshot.open(file));
+    }
+
+}
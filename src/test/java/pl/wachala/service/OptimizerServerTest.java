@@ -0,0 +1,135 @@
+package pl.wachala.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pl.wachala.models.PaymentMethod;
+import pl.wachala.optimizer.PaymentMethodAssigner;
+import pl.wachala.optimizer.PaymentMethodSummaryGenerator;
+import pl.wachala.parser.DataParser;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OptimizerServerTest {
+
+    private static final String ORDERS = """
+            [
+              {"id": "ORDER1", "value": "100.00", "promotions": ["mZysk"]},
+              {"id": "ORDER2", "value": "200.00", "promotions": ["BosBankrut"]},
+              {"id": "ORDER3", "value": "150.00", "promotions": ["mZysk", "BosBankrut"]},
+              {"id": "ORDER4", "value": "50.00"}
+            ]
+            """;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HttpClient client = HttpClient.newHttpClient();
+    private OptimizerServer server;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new OptimizerServer(new DataParser(mapper), new PaymentMethodAssigner(), new PaymentMethodSummaryGenerator(), mapper);
+        server.start(List.of(
+                new PaymentMethod("PUNKTY", 15, new BigDecimal("100.00")),
+                new PaymentMethod("mZysk", 10, new BigDecimal("180.00")),
+                new PaymentMethod("BosBankrut", 5, new BigDecimal("200.00"))), 0, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    void shouldReturnSummaryForEveryBatch() throws Exception {
+        //given
+        Set<String> expected = Set.of("mZysk 175.00", "BosBankrut 190.00", "PUNKTY 90.00");
+
+        //when
+        HttpResponse<String> first = post(ORDERS);
+        HttpResponse<String> second = post(ORDERS);
+
+        //then
+        assertEquals(200, first.statusCode());
+        assertEquals(expected, new HashSet<>(Arrays.asList(first.body().split("\n"))));
+        assertEquals(first.body(), second.body());
+        assertEquals(2, server.getMetrics().getRequests());
+        assertEquals(8, server.getMetrics().getOrders());
+    }
+
+    @Test
+    void shouldRejectInvalidOrders() throws Exception {
+        //when
+        HttpResponse<String> response = post("{\"id\": ");
+
+        //then
+        assertEquals(400, response.statusCode());
+        assertEquals(1, server.getMetrics().getFailedRequests());
+    }
+
+    @Test
+    void shouldExposeMetricsAsJson() throws Exception {
+        //given
+        post(ORDERS);
+
+        //when
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri("/metrics")).GET().build(), HttpResponse.BodyHandlers.ofString());
+
+        //then
+        assertEquals(200, response.statusCode());
+        Map<?, ?> metrics = mapper.readValue(response.body(), Map.class);
+        assertEquals(1, ((Number) metrics.get("requests")).intValue());
+        assertEquals(4, ((Number) metrics.get("orders")).intValue());
+        assertTrue(((Number) metrics.get("latencyP99Millis")).doubleValue() > 0);
+        assertTrue(metrics.containsKey("ordersPerSecond"));
+        Map<?, ?> phases = (Map<?, ?>) ((Map<?, ?>) metrics.get("optimizer")).get("phases");
+        assertEquals(1, ((Number) ((Map<?, ?>) phases.get("parseOrders")).get("count")).intValue());
+        assertEquals(1, ((Number) ((Map<?, ?>) phases.get("greedy")).get("count")).intValue());
+    }
+
+    @Test
+    void shouldShareLimitsBetweenRequests() throws Exception {
+        //given
+        server.stop();
+        server = new OptimizerServer(new DataParser(mapper), new PaymentMethodAssigner(), new PaymentMethodSummaryGenerator(), mapper);
+        server.start(List.of(
+                new PaymentMethod("PUNKTY", 15, new BigDecimal("100.00")),
+                new PaymentMethod("mZysk", 10, new BigDecimal("180.00")),
+                new PaymentMethod("BosBankrut", 5, new BigDecimal("200.00"))), 0, 2, true);
+
+        //when
+        HttpResponse<String> first = post(ORDERS);
+        HttpResponse<String> second = post(ORDERS);
+        HttpResponse<String> metricsResponse = client.send(HttpRequest.newBuilder(uri("/metrics")).GET().build(), HttpResponse.BodyHandlers.ofString());
+
+        //then
+        assertEquals(200, first.statusCode());
+        assertEquals(Set.of("mZysk 175.00", "BosBankrut 190.00", "PUNKTY 90.00"), new HashSet<>(Arrays.asList(first.body().split("\n"))));
+        assertEquals(200, second.statusCode());
+        assertNotEquals(first.body(), second.body());
+        for (String method : List.of("PUNKTY", "mZysk", "BosBankrut")) {
+            assertTrue(server.getLimitLedger().getAvailableCents(method) >= 0);
+        }
+        Map<?, ?> limits = (Map<?, ?>) mapper.readValue(metricsResponse.body(), Map.class).get("limits");
+        assertEquals(2, ((Number) ((Map<?, ?>) limits.get("mZysk")).get("reservations")).intValue());
+    }
+
+    private HttpResponse<String> post(String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(uri("/assign"))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + server.getPort() + path);
+    }
+
+}
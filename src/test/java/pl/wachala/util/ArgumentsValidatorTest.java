@@ -40,4 +40,11 @@ public class ArgumentsValidatorTest {
             validator.validateArgsNum(argsNum);
         });
     }
+
+    @Test
+    public void ShouldAcceptSingleArgumentInServiceMode() {
+        //when & then
+        assertDoesNotThrow(() -> validator.validateServiceArgsNum(1));
+        assertThrows(RuntimeException.class, () -> validator.validateServiceArgsNum(2));
+    }
 }
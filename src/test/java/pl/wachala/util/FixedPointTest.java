@@ -0,0 +1,49 @@
+package pl.wachala.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FixedPointTest {
+
+    @Test
+    void shouldConvertAmountsWithUpToTwoDecimalPlaces() {
+        assertEquals(10000, FixedPoint.toCents(new BigDecimal("100")));
+        assertEquals(10050, FixedPoint.toCents(new BigDecimal("100.5")));
+        assertEquals(10055, FixedPoint.toCents(new BigDecimal("100.55")));
+        assertEquals(10050, FixedPoint.toCents(new BigDecimal("100.500")));
+    }
+
+    @Test
+    void shouldRejectAmountsNotRepresentableInMinorUnits() {
+        assertThrows(ArithmeticException.class, () -> FixedPoint.toCents(new BigDecimal("100.555")));
+        assertThrows(ArithmeticException.class, () -> FixedPoint.toCents(new BigDecimal("1E+20")));
+    }
+
+    @Test
+    void shouldRoundPercentageHalfUpLikeBigDecimal() {
+        for (long cents = -2000; cents <= 2000; cents++) {
+            for (int percentage = 0; percentage <= 100; percentage += 7) {
+                //given
+                BigDecimal expected = FixedPoint.toBigDecimal(cents).multiply(BigDecimal.valueOf(percentage))
+                        .divide(BigDecimal.valueOf(100), 4, RoundingMode.HALF_UP)
+                        .setScale(2, RoundingMode.HALF_UP);
+
+                //when
+                long result = FixedPoint.percentage(cents, percentage);
+
+                //then
+                assertEquals(expected, FixedPoint.toBigDecimal(result));
+            }
+        }
+    }
+
+    @Test
+    void shouldThrowWhenPercentageOverflows() {
+        assertThrows(ArithmeticException.class, () -> FixedPoint.percentage(Long.MAX_VALUE / 2, 10));
+    }
+
+}
@@ -0,0 +1,40 @@
+package pl.wachala.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IdDictionaryTest {
+
+    @Test
+    void shouldAssignDenseIndexesInOrderOfFirstAppearance() {
+        //given
+        IdDictionary dictionary = new IdDictionary();
+
+        //when
+        int first = dictionary.intern("ORDER1");
+        int second = dictionary.intern("ORDER2");
+        int repeated = dictionary.intern("ORDER1");
+
+        //then
+        assertEquals(0, first);
+        assertEquals(1, second);
+        assertEquals(0, repeated);
+        assertEquals(2, dictionary.size());
+        assertEquals("ORDER2", dictionary.getId(1));
+    }
+
+    @Test
+    void shouldReturnMinusOneForUnknownId() {
+        //given
+        IdDictionary dictionary = IdDictionary.of(List.of("PUNKTY", "mZysk"));
+
+        //when & then
+        assertEquals(1, dictionary.indexOf("mZysk"));
+        assertEquals(-1, dictionary.indexOf("BosBankrut"));
+        assertEquals(2, dictionary.size());
+    }
+
+}